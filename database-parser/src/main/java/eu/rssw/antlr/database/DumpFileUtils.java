@@ -20,35 +20,47 @@
 package eu.rssw.antlr.database;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.StandardOpenOption;
 
 import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.IntStream;
 import org.antlr.v4.runtime.tree.ParseTree;
 
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
-import com.google.common.io.LineProcessor;
 
 import eu.rssw.antlr.database.objects.DatabaseDescription;
 
 public final class DumpFileUtils {
+  private static final String CODEPAGE_PREFIX = "cpstream=";
+  // DF trailer (PSC, cpstream=..., offset) is always in the last lines of the file
+  private static final int TAIL_SIZE = 4096;
+  private static final int BUFFER_SIZE = 16384;
 
   private DumpFileUtils() {
     // Not instantiated
   }
 
   public static final ParseTree getDumpFileParseTree(File file) throws IOException {
-    return getDumpFileParseTree(new FileInputStream(file), null);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return getDumpFileParseTree(channel, null);
+    }
   }
 
   /**
@@ -56,26 +68,56 @@ public final class DumpFileUtils {
    * right value.
    */
   public static final ParseTree getDumpFileParseTree(InputStream stream, Charset defaultCharset) throws IOException {
-    // FileInputStream doesn't support mark for example, so we read the entire file in memory
-    ByteArrayOutputStream outStream = new ByteArrayOutputStream();
-    byte[] buffer = new byte[16384];
-    for (int len = stream.read(buffer); len != -1; len = stream.read(buffer)) {
-      outStream.write(buffer, 0, len);
+    if (stream instanceof FileInputStream)
+      return getDumpFileParseTree(((FileInputStream) stream).getChannel(), defaultCharset);
+
+    // Stream can't be read backwards, so content is kept in memory until code page is known
+    byte[] content = ByteStreams.toByteArray(stream);
+    int tailStart = Math.max(0, content.length - TAIL_SIZE);
+    Charset charset = readCodePage(content, tailStart, content.length - tailStart, tailStart == 0, defaultCharset);
+    return parse(CharStreams.fromStream(new ByteArrayInputStream(content), charset));
+  }
+
+  /**
+   * Read code page from the end of the channel, then parse DF from current position. Channel is not closed.
+   */
+  public static final ParseTree getDumpFileParseTree(FileChannel channel, Charset defaultCharset) throws IOException {
+    long start = channel.position();
+    long tailStart = Math.max(start, channel.size() - TAIL_SIZE);
+    ByteBuffer tail = ByteBuffer.allocate((int) (channel.size() - tailStart));
+    while (tail.hasRemaining() && (channel.read(tail, tailStart + tail.position()) != -1)) {
+      // Positional reads, channel position is unchanged
     }
-    ByteArrayInputStream buffdInput = new ByteArrayInputStream(outStream.toByteArray());
-
-    // Trying to read codepage from DF footer
-    LineProcessor<Charset> charsetReader = new DFCodePageProcessor(defaultCharset);
-    com.google.common.io.CharStreams.readLines(
-        new InputStreamReader(buffdInput, defaultCharset == null ? Charset.defaultCharset() : defaultCharset),
-        charsetReader);
-    buffdInput.reset();
-    return getDumpFileParseTree(new InputStreamReader(buffdInput, charsetReader.getResult()));
+    Charset charset = readCodePage(tail.array(), 0, tail.position(), tailStart == start, defaultCharset);
+    // Charset is ignored by CharStreams.fromChannel(ReadableByteChannel, Charset) in ANTLR 4.7, and channel is always
+    // closed at the end
+    ReadableByteChannel input = new ReadableByteChannel() {
+      @Override
+      public int read(ByteBuffer dst) throws IOException {
+        return channel.read(dst);
+      }
+
+      @Override
+      public boolean isOpen() {
+        return channel.isOpen();
+      }
+
+      @Override
+      public void close() {
+        // Closed by caller
+      }
+    };
+    return parse(CharStreams.fromChannel(input, charset, BUFFER_SIZE, CodingErrorAction.REPLACE,
+        IntStream.UNKNOWN_SOURCE_NAME, channel.size() - start));
   }
 
   public static final ParseTree getDumpFileParseTree(Reader reader) throws IOException {
+    return parse(CharStreams.fromReader(reader));
+  }
+
+  private static ParseTree parse(CharStream input) {
     ANTLRErrorListener listener = new DescriptiveErrorListener();
-    DumpFileGrammarLexer lexer = new DumpFileGrammarLexer(CharStreams.fromReader(reader));
+    DumpFileGrammarLexer lexer = new DumpFileGrammarLexer(input);
     lexer.removeErrorListeners();
     lexer.addErrorListener(listener);
 
@@ -88,6 +130,35 @@ public final class DumpFileUtils {
     return parser.dump();
   }
 
+  /**
+   * Find <code>cpstream=</code> line in a chunk of DF content
+   * 
+   * @param startOfFile False if chunk may start in the middle of a line
+   * @return Code page, or default charset if not found or invalid
+   */
+  private static Charset readCodePage(byte[] buf, int off, int len, boolean startOfFile, Charset defaultCharset) {
+    Charset charset = defaultCharset == null ? Charset.defaultCharset() : defaultCharset;
+    // Code page name is pure ASCII, so any single-byte decoding is fine
+    String str = new String(buf, off, len, StandardCharsets.ISO_8859_1);
+    int pos = startOfFile ? 0 : str.indexOf('\n') + 1;
+    while (pos < str.length()) {
+      int eol = str.indexOf('\n', pos);
+      if (eol == -1)
+        eol = str.length();
+      if (str.startsWith(CODEPAGE_PREFIX, pos)) {
+        int end = (eol > pos) && (str.charAt(eol - 1) == '\r') ? eol - 1 : eol;
+        try {
+          return Charset.forName(str.substring(pos + CODEPAGE_PREFIX.length(), end));
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException uncaught) {
+          // Undefined for example...
+          return charset;
+        }
+      }
+      pos = eol + 1;
+    }
+    return charset;
+  }
+
   public static final DatabaseDescription getDatabaseDescription(File file) throws IOException {
     return getDatabaseDescription(file, Files.getNameWithoutExtension(file.getName()));
   }
@@ -105,31 +176,4 @@ public final class DumpFileUtils {
 
     return visitor.getDatabase();
   }
-
-  private static class DFCodePageProcessor implements LineProcessor<Charset> {
-    private Charset charset = Charset.defaultCharset();
-
-    public DFCodePageProcessor(Charset charset) {
-      if (charset != null)
-        this.charset = charset;
-    }
-
-    @Override
-    public Charset getResult() {
-      return charset;
-    }
-
-    @Override
-    public boolean processLine(String arg0) throws IOException {
-      if (arg0.startsWith("cpstream=")) {
-        try {
-          charset = Charset.forName(arg0.substring(9));
-        } catch (IllegalCharsetNameException | UnsupportedCharsetException uncaught) {
-          // Undefined for example...
-        }
-        return false;
-      }
-      return true;
-    }
-  }
 }
@@ -0,0 +1,363 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package eu.rssw.antlr.database.objects;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Versioned binary representation of a {@link DatabaseDescription}, which can be read from a memory-mapped
+ * {@link ByteBuffer} without decoding the whole content. All integers are big-endian. Sections, in order:
+ * <ul>
+ * <li>Header: magic number, version, then number of strings, sequences, tables, fields, indexes and index fields, and
+ * size of string data</li>
+ * <li>String offsets: one int per string plus end offset, relative to string data</li>
+ * <li>Sequences: one string number per sequence</li>
+ * <li>Tables: name, first field, number of fields, first index, number of indexes</li>
+ * <li>Fields: name, data type, extent</li>
+ * <li>Indexes: name, flags, first index field, number of index fields</li>
+ * <li>Index fields: position of field in table plus one (0 if unknown) shifted by one bit, lowest bit set when
+ * ascending</li>
+ * <li>String data: UTF-8</li>
+ * </ul>
+ */
+public final class BinarySchema {
+  public static final int MAGIC = 0x4F455344;
+  public static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 36;
+  private static final int TABLE_RECORD = 5;
+  private static final int FIELD_RECORD = 3;
+  private static final int INDEX_RECORD = 4;
+
+  private static final int PRIMARY = 1;
+  private static final int UNIQUE = 2;
+  private static final int WORD = 4;
+
+  private BinarySchema() {
+    // No constructor
+  }
+
+  /**
+   * @return True if buffer content (from current position) starts with a header of the current version
+   */
+  public static boolean accepts(ByteBuffer buffer) {
+    int pos = buffer.position();
+    return (buffer.remaining() >= HEADER_SIZE) && (buffer.getInt(pos) == MAGIC) && (buffer.getInt(pos + 4) == VERSION);
+  }
+
+  public static void write(DatabaseDescription db, OutputStream out) throws IOException {
+    List<Sequence> sequences = new ArrayList<>(db.getSequences());
+    List<Table> tables = new ArrayList<>(db.getTables());
+    int numFields = 0;
+    int numIndexes = 0;
+    int numIndexFields = 0;
+    for (Table tbl : tables) {
+      numFields += tbl.getFields().size();
+      numIndexes += tbl.getIndexes().size();
+      for (Index idx : tbl.getIndexes()) {
+        numIndexFields += idx.getFields().size();
+      }
+    }
+
+    StringTable strings = new StringTable();
+    int[] seqData = new int[sequences.size()];
+    for (int zz = 0; zz < seqData.length; zz++) {
+      seqData[zz] = strings.add(sequences.get(zz).getName());
+    }
+    int[] tblData = new int[tables.size() * TABLE_RECORD];
+    int[] fldData = new int[numFields * FIELD_RECORD];
+    int[] idxData = new int[numIndexes * INDEX_RECORD];
+    int[] ifData = new int[numIndexFields];
+    int fldNum = 0;
+    int idxNum = 0;
+    int ifNum = 0;
+    for (int zz = 0; zz < tables.size(); zz++) {
+      Table tbl = tables.get(zz);
+      int pos = zz * TABLE_RECORD;
+      tblData[pos] = strings.add(tbl.getName());
+      tblData[pos + 1] = fldNum;
+      tblData[pos + 2] = tbl.getFields().size();
+      tblData[pos + 3] = idxNum;
+      tblData[pos + 4] = tbl.getIndexes().size();
+
+      Map<Field, Integer> positions = new IdentityHashMap<>();
+      for (Field fld : tbl.getFields()) {
+        positions.put(fld, positions.size());
+        pos = fldNum++ * FIELD_RECORD;
+        fldData[pos] = strings.add(fld.getName());
+        fldData[pos + 1] = strings.add(fld.getDataType());
+        fldData[pos + 2] = fld.getExtent() == null ? 0 : fld.getExtent();
+      }
+      for (Index idx : tbl.getIndexes()) {
+        pos = idxNum++ * INDEX_RECORD;
+        idxData[pos] = strings.add(idx.getName());
+        idxData[pos + 1] = (idx.isPrimary() ? PRIMARY : 0) | (idx.isUnique() ? UNIQUE : 0) | (idx.isWord() ? WORD : 0);
+        idxData[pos + 2] = ifNum;
+        idxData[pos + 3] = idx.getFields().size();
+        for (IndexField ifld : idx.getFields()) {
+          Integer fldPos = ifld.getField() == null ? null : positions.get(ifld.getField());
+          ifData[ifNum++] = ((fldPos == null ? 0 : fldPos + 1) << 1) | (ifld.isAscending() ? 1 : 0);
+        }
+      }
+    }
+
+    DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out));
+    dos.writeInt(MAGIC);
+    dos.writeInt(VERSION);
+    dos.writeInt(strings.offsets.size());
+    dos.writeInt(seqData.length);
+    dos.writeInt(tables.size());
+    dos.writeInt(numFields);
+    dos.writeInt(numIndexes);
+    dos.writeInt(numIndexFields);
+    dos.writeInt(strings.data.size());
+    for (int offset : strings.offsets) {
+      dos.writeInt(offset);
+    }
+    dos.writeInt(strings.data.size());
+    writeInts(dos, seqData);
+    writeInts(dos, tblData);
+    writeInts(dos, fldData);
+    writeInts(dos, idxData);
+    writeInts(dos, ifData);
+    strings.data.writeTo(dos);
+    dos.flush();
+  }
+
+  /**
+   * Tables of the returned object are only built when they're first requested. Buffer content must not change as long
+   * as this object is in use.
+   * 
+   * @throws IOException If buffer doesn't contain a valid header of the current version, or is truncated
+   */
+  public static DatabaseDescription read(ByteBuffer buffer, String dbName) throws IOException {
+    ByteBuffer buf = buffer.slice();
+    if (!accepts(buf))
+      throw new IOException("Not a binary schema, or unsupported version");
+    return new LazyDatabaseDescription(dbName, buf);
+  }
+
+  private static void writeInts(DataOutputStream dos, int[] data) throws IOException {
+    for (int val : data) {
+      dos.writeInt(val);
+    }
+  }
+
+  private static class StringTable {
+    private final Map<String, Integer> index = new LinkedHashMap<>();
+    private final List<Integer> offsets = new ArrayList<>();
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+    int add(String str) {
+      return index.computeIfAbsent(str, key -> {
+        offsets.add(data.size());
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        data.write(bytes, 0, bytes.length);
+        return offsets.size() - 1;
+      });
+    }
+  }
+
+  private static class LazyDatabaseDescription extends DatabaseDescription {
+    private final ByteBuffer buffer;
+    private final int strOffsetsPos;
+    private final int sequencesPos;
+    private final int tablesPos;
+    private final int fieldsPos;
+    private final int indexesPos;
+    private final int indexFieldsPos;
+    private final int strDataPos;
+    private final int numSequences;
+    private final String[] strings;
+    private final Map<String, Integer> tableNames = new LinkedHashMap<>();
+    private final AtomicReferenceArray<Table> tables;
+    private volatile Map<String, Sequence> sequences;
+
+    LazyDatabaseDescription(String dbName, ByteBuffer buffer) throws IOException {
+      super(dbName);
+      this.buffer = buffer;
+      int numStrings = buffer.getInt(8);
+      numSequences = buffer.getInt(12);
+      int numTables = buffer.getInt(16);
+      int numFields = buffer.getInt(20);
+      int numIndexes = buffer.getInt(24);
+      int numIndexFields = buffer.getInt(28);
+      int strDataSize = buffer.getInt(32);
+      if ((numStrings | numSequences | numTables | numFields | numIndexes | numIndexFields | strDataSize) < 0)
+        throw new IOException("Invalid binary schema header");
+
+      strOffsetsPos = HEADER_SIZE;
+      sequencesPos = strOffsetsPos + 4 * (numStrings + 1);
+      tablesPos = sequencesPos + 4 * numSequences;
+      fieldsPos = tablesPos + 4 * TABLE_RECORD * numTables;
+      indexesPos = fieldsPos + 4 * FIELD_RECORD * numFields;
+      indexFieldsPos = indexesPos + 4 * INDEX_RECORD * numIndexes;
+      strDataPos = indexFieldsPos + 4 * numIndexFields;
+      if ((long) strDataPos + strDataSize > buffer.limit())
+        throw new IOException("Truncated binary schema");
+
+      strings = new String[numStrings];
+      tables = new AtomicReferenceArray<>(numTables);
+      for (int zz = 0; zz < numTables; zz++) {
+        tableNames.put(string(buffer.getInt(tablesPos + 4 * TABLE_RECORD * zz)), zz);
+      }
+    }
+
+    @Override
+    public Collection<String> getTableNames() {
+      return Collections.unmodifiableSet(tableNames.keySet());
+    }
+
+    @Override
+    public Table getTable(String name) {
+      Integer num = tableNames.get(name);
+      return num == null ? null : table(num);
+    }
+
+    @Override
+    public List<String> getFieldNames(String tableName) {
+      Integer num = tableNames.get(tableName);
+      if (num == null)
+        return Collections.emptyList();
+      int pos = tablesPos + 4 * TABLE_RECORD * num;
+      int firstField = buffer.getInt(pos + 4);
+      String[] names = new String[buffer.getInt(pos + 8)];
+      for (int zz = 0; zz < names.length; zz++) {
+        names[zz] = string(buffer.getInt(fieldsPos + 4 * FIELD_RECORD * (firstField + zz)));
+      }
+      return Arrays.asList(names);
+    }
+
+    @Override
+    public Collection<Table> getTables() {
+      List<Table> list = new ArrayList<>(tables.length());
+      for (int zz = 0; zz < tables.length(); zz++) {
+        list.add(table(zz));
+      }
+      return Collections.unmodifiableList(list);
+    }
+
+    @Override
+    public Sequence getSequence(String name) {
+      return sequenceMap().get(name);
+    }
+
+    @Override
+    public Collection<Sequence> getSequences() {
+      return sequenceMap().values();
+    }
+
+    @Override
+    public void addTable(Table tbl) {
+      throw new UnsupportedOperationException("Read-only database description");
+    }
+
+    @Override
+    public void addSequence(Sequence seq) {
+      throw new UnsupportedOperationException("Read-only database description");
+    }
+
+    private Map<String, Sequence> sequenceMap() {
+      Map<String, Sequence> map = sequences;
+      if (map == null) {
+        map = new LinkedHashMap<>();
+        for (int zz = 0; zz < numSequences; zz++) {
+          String name = string(buffer.getInt(sequencesPos + 4 * zz));
+          map.put(name, new Sequence(name));
+        }
+        map = Collections.unmodifiableMap(map);
+        sequences = map;
+      }
+      return map;
+    }
+
+    private Table table(int num) {
+      Table tbl = tables.get(num);
+      if (tbl == null) {
+        tables.compareAndSet(num, null, buildTable(num));
+        tbl = tables.get(num);
+      }
+      return tbl;
+    }
+
+    private Table buildTable(int num) {
+      int pos = tablesPos + 4 * TABLE_RECORD * num;
+      Table tbl = new Table(string(buffer.getInt(pos)));
+      int firstField = buffer.getInt(pos + 4);
+      Field[] fields = new Field[buffer.getInt(pos + 8)];
+      for (int zz = 0; zz < fields.length; zz++) {
+        int fldPos = fieldsPos + 4 * FIELD_RECORD * (firstField + zz);
+        fields[zz] = new Field(string(buffer.getInt(fldPos)), string(buffer.getInt(fldPos + 4)));
+        fields[zz].setExtent(buffer.getInt(fldPos + 8));
+        tbl.addField(fields[zz]);
+      }
+      int firstIndex = buffer.getInt(pos + 12);
+      int numIndexes = buffer.getInt(pos + 16);
+      for (int zz = 0; zz < numIndexes; zz++) {
+        int idxPos = indexesPos + 4 * INDEX_RECORD * (firstIndex + zz);
+        Index idx = new Index(string(buffer.getInt(idxPos)));
+        int flags = buffer.getInt(idxPos + 4);
+        idx.setPrimary((flags & PRIMARY) != 0);
+        idx.setUnique((flags & UNIQUE) != 0);
+        idx.setWord((flags & WORD) != 0);
+        int firstIndexField = buffer.getInt(idxPos + 8);
+        int numIndexFields = buffer.getInt(idxPos + 12);
+        for (int yy = 0; yy < numIndexFields; yy++) {
+          int val = buffer.getInt(indexFieldsPos + 4 * (firstIndexField + yy));
+          int fldNum = val >>> 1;
+          idx.addField(new IndexField(fldNum == 0 ? null : fields[fldNum - 1], (val & 1) != 0));
+        }
+        tbl.addIndex(idx);
+      }
+
+      return tbl;
+    }
+
+    private String string(int num) {
+      String str = strings[num];
+      if (str == null) {
+        int start = buffer.getInt(strOffsetsPos + 4 * num);
+        byte[] bytes = new byte[buffer.getInt(strOffsetsPos + 4 * num + 4) - start];
+        ByteBuffer dup = buffer.duplicate();
+        dup.position(strDataPos + start);
+        dup.get(bytes);
+        str = new String(bytes, StandardCharsets.UTF_8);
+        // Benign race, strings are immutable
+        strings[num] = str;
+      }
+      return str;
+    }
+  }
+}
@@ -27,7 +27,9 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -63,6 +65,30 @@ public class DatabaseDescription {
     return tables.get(name);
   }
 
+  /**
+   * Names of all tables, without having to build table objects when they are loaded on demand
+   */
+  public Collection<String> getTableNames() {
+    return tables.keySet();
+  }
+
+  /**
+   * Names of fields of this table, in field position order, without having to build the table object when it's loaded
+   * on demand
+   * 
+   * @return Empty list if table doesn't exist
+   */
+  public List<String> getFieldNames(String tableName) {
+    Table tbl = getTable(tableName);
+    if (tbl == null)
+      return Collections.emptyList();
+    List<String> list = new ArrayList<>(tbl.getFields().size());
+    for (Field fld : tbl.getFields()) {
+      list.add(fld.getName());
+    }
+    return list;
+  }
+
   public void addTable(Table tbl) {
     tables.put(tbl.getName(), tbl);
   }
@@ -71,6 +97,10 @@ public class DatabaseDescription {
     sequences.put(seq.getName(), seq);
   }
 
+  /**
+   * @deprecated Line-based format, use {@link BinarySchema#write(DatabaseDescription, OutputStream)}
+   */
+  @Deprecated
   public void serialize(OutputStream out) throws IOException {
     try (OutputStreamWriter osw = new OutputStreamWriter(out, Charset.forName("utf-8"));
         BufferedWriter writer = new BufferedWriter(osw)) {
@@ -96,6 +126,10 @@ public class DatabaseDescription {
     }
   }
 
+  /**
+   * @deprecated Line-based format, use {@link BinarySchema#read(java.nio.ByteBuffer, String)}
+   */
+  @Deprecated
   public static DatabaseDescription deserialize(InputStream in, String name) throws IOException {
     DatabaseDescription db = new DatabaseDescription(name);
     try (InputStreamReader isr = new InputStreamReader(in); BufferedReader reader = new BufferedReader(isr)) {
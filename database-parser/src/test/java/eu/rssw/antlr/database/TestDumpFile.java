@@ -22,7 +22,9 @@ package eu.rssw.antlr.database;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -30,10 +32,20 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 import org.testng.annotations.Test;
 
+import eu.rssw.antlr.database.objects.BinarySchema;
 import eu.rssw.antlr.database.objects.DatabaseDescription;
 import eu.rssw.antlr.database.objects.Index;
 import eu.rssw.antlr.database.objects.Table;
@@ -53,6 +65,48 @@ public class TestDumpFile {
     assertEquals(db2.getTable("Tbl1").getDescription(), "Ã©Ã§");
   }
 
+  @Test
+  public void testCodePageFromTail() throws IOException {
+    // Not a FileInputStream, so code page is read from an in-memory tail
+    byte[] content = Files.readAllBytes(Paths.get("src/test/resources/sp4k.df"));
+    DatabaseDescription db = DumpFileUtils.getDatabaseDescription(new ByteArrayInputStream(content),
+        StandardCharsets.UTF_8, "sp4k");
+    assertEquals(db.getTable("Tbl1").getDescription(), "Ã©Ã§");
+
+    // Trailer far from the beginning of the file
+    StringBuilder sb = new StringBuilder();
+    for (int zz = 0; zz < 500; zz++) {
+      sb.append("ADD SEQUENCE \"Seq").append(zz).append("\"\n  INITIAL 0\n\n");
+    }
+    byte[] padding = sb.toString().getBytes(StandardCharsets.US_ASCII);
+    byte[] content2 = new byte[padding.length + content.length];
+    System.arraycopy(padding, 0, content2, 0, padding.length);
+    System.arraycopy(content, 0, content2, padding.length, content.length);
+    DatabaseDescription db2 = DumpFileUtils.getDatabaseDescription(new ByteArrayInputStream(content2),
+        StandardCharsets.UTF_8, "sp4k");
+    assertEquals(db2.getTable("Tbl1").getDescription(), "Ã©Ã§");
+    assertEquals(db2.getSequences().size(), 500);
+  }
+
+  @Test
+  public void testNoCodePage() throws IOException {
+    // No trailer, default charset is used
+    try (InputStream stream = new ByteArrayInputStream(
+        Files.readAllBytes(Paths.get("src/test/resources/ascIndex.df")))) {
+      assertNotNull(DumpFileUtils.getDumpFileParseTree(stream, StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void testFileChannel() throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get("src/test/resources/sp3k.df"), StandardOpenOption.READ)) {
+      DumpFileVisitor visitor = new DumpFileVisitor("sp3k");
+      visitor.visit(DumpFileUtils.getDumpFileParseTree(channel, StandardCharsets.ISO_8859_1));
+      assertEquals(visitor.getDatabase().getTable("Tbl1").getDescription(), "éç");
+      assertTrue(channel.isOpen());
+    }
+  }
+
   @Test
   public void testSports2000() throws IOException {
     DatabaseDescription db = DumpFileUtils.getDatabaseDescription(new File("src/test/resources/sp2k.df"));
@@ -120,6 +174,78 @@ public class TestDumpFile {
     assertEquals(db2.getTable("Order").getIndex("CustOrder").getFields().size(), 2);
   }
 
+  @Test
+  public void testBinarySchema() throws IOException {
+    DatabaseDescription db = DumpFileUtils.getDatabaseDescription(new File("src/test/resources/sp2k.df"));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    BinarySchema.write(db, bytes);
+    ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+    assertTrue(BinarySchema.accepts(buffer));
+    DatabaseDescription db2 = BinarySchema.read(buffer, "sp2k");
+
+    assertEquals(db2.getDbName(), "sp2k");
+    assertEquals(db2.getTableNames().size(), db.getTables().size());
+    assertEquals(db2.getSequences().size(), db.getSequences().size());
+    assertNotNull(db2.getSequence("NextCustNum"));
+    assertNull(db2.getTable("NoSuchTable"));
+    assertTrue(db2.getFieldNames("NoSuchTable").isEmpty());
+    // Field names are read before table is built
+    assertEquals(db2.getFieldNames("Customer"), db.getFieldNames("Customer"));
+    assertEquals(db2.getTable("Salesrep").getField("monthquota").getExtent().intValue(), 12);
+    assertEquals(db2.getTable("Order").getIndexes().size(), 5);
+    Index idx1 = db.getTable("Order").getIndex("CustOrder");
+    Index idx2 = db2.getTable("Order").getIndex("CustOrder");
+    assertEquals(idx2.isPrimary(), idx1.isPrimary());
+    assertEquals(idx2.isUnique(), idx1.isUnique());
+    assertEquals(idx2.getFields().size(), 2);
+    assertEquals(idx2.getFields().get(0).getField().getName(), idx1.getFields().get(0).getField().getName());
+    assertEquals(idx2.getFields().get(1).isAscending(), idx1.getFields().get(1).isAscending());
+    // Same object on next lookup
+    assertTrue(db2.getTable("Order") == db2.getTable("Order"));
+    for (Table tbl : db.getTables()) {
+      assertEquals(db2.getTable(tbl.getName()).getFields().size(), tbl.getFields().size());
+    }
+  }
+
+  @Test
+  public void testBinarySchemaMapped() throws IOException {
+    DatabaseDescription db = DumpFileUtils.getDatabaseDescription(new File("src/test/resources/ascIndex.df"));
+    Path path = Files.createTempFile("schema", ".bin");
+    try {
+      try (OutputStream out = Files.newOutputStream(path)) {
+        BinarySchema.write(db, out);
+      }
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        DatabaseDescription db2 = BinarySchema.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+            "ascIndex");
+        Index idx = db2.getTable("Tab1").getIndex("Idx1");
+        assertEquals(idx.getFields().size(), 3);
+        assertTrue(idx.getFields().get(0).isAscending());
+        assertFalse(idx.getFields().get(2).isAscending());
+      }
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  public void testBinarySchemaInvalid() throws IOException {
+    DatabaseDescription db = DumpFileUtils.getDatabaseDescription(new File("src/test/resources/sp2k.df"));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    db.serialize(bytes);
+    assertFalse(BinarySchema.accepts(ByteBuffer.wrap(bytes.toByteArray())));
+
+    bytes = new ByteArrayOutputStream();
+    BinarySchema.write(db, bytes);
+    byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() / 2);
+    try {
+      BinarySchema.read(ByteBuffer.wrap(truncated), "sp2k");
+      fail("IOException should have been thrown");
+    } catch (IOException caught) {
+      // Expected
+    }
+  }
+
   @Test
   public void testAscIndex() throws IOException {
     // Delete triggers on table
@@ -32,12 +32,16 @@ public class Constants {
   public static final String SKIP_PROPARSE_PROPERTY = "sonar.oe.skipProparse";
   public static final String PROPARSE_DEBUG = "sonar.oe.proparse.debug";
   public static final String PROPARSE_ERROR_STACKTRACE = "sonar.oe.proparse.error.stacktrace";
+  public static final String PROPARSE_THREADS = "sonar.oe.proparse.threads";
+  public static final String ANALYSIS_CACHE = "sonar.oe.analysis.cache";
   public static final String BINARIES = "sonar.oe.binaries";
   public static final String DOTPCT = "sonar.oe.dotpct";
   public static final String SLINT_XREF = "sonar.oe.lint.xref";
   public static final String DLC = "sonar.oe.dlc";
   public static final String PROPATH = "sonar.oe.propath";
   public static final String PROPATH_DLC = "sonar.oe.propath.dlc";
+  public static final String PROPATH_INDEX = "sonar.oe.propath.index";
+  public static final String PROPATH_INDEX_IGNORE_CASE = "sonar.oe.propath.index.ignoreCase";
   public static final String DATABASES = "sonar.oe.databases";
   public static final String SLINT_DATABASES = "sonar.oe.lint.databases";
   public static final String ALIASES = "sonar.oe.aliases";
@@ -51,6 +55,9 @@ public class Constants {
   public static final String BACKSLASH_ESCAPE = "sonar.oe.backslash.escape";
   public static final String OE_ANALYTICS = "sonar.oe.analytics";
   public static final String SKIP_RCODE = "sonar.oe.rcode.skip";
+  public static final String RCODE_THREADS = "sonar.oe.rcode.threads";
+  public static final String RCODE_TIMEOUT = "sonar.oe.rcode.timeout";
+  public static final String RCODE_CATALOG = "sonar.oe.rcode.catalog";
   public static final String ANTLR4_TEST = "sonar.oe.antlr4";
   public static final String ANTLR4_PROFILER = "sonar.oe.antlr4.profiler";
   public static final String SKIP_XCODE = "sonar.oe.xcode.skip";
@@ -0,0 +1,109 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.api.checks;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.prorefactor.core.ABLNodeType;
+import org.prorefactor.core.JPNode;
+import org.prorefactor.treeparser.ParseUnit;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Executes a set of {@link OpenEdgeProparseNodeCheck} with one depth-first traversal of the tree. Time spent in each
+ * check is accumulated and available with {@link #getElapsedTime(int)}.
+ */
+public class NodeTypeDispatcher {
+  private final List<OpenEdgeProparseNodeCheck> checks;
+  private final Map<ABLNodeType, int[]> subscriptions = new EnumMap<>(ABLNodeType.class);
+  private final long[] elapsedTime;
+
+  public NodeTypeDispatcher(List<? extends OpenEdgeProparseNodeCheck> checks) {
+    this.checks = new ArrayList<>(checks);
+    this.elapsedTime = new long[checks.size()];
+    Map<ABLNodeType, List<Integer>> map = new EnumMap<>(ABLNodeType.class);
+    for (int zz = 0; zz < checks.size(); zz++) {
+      for (ABLNodeType type : checks.get(zz).getSubscribedNodeTypes()) {
+        map.computeIfAbsent(type, key -> new ArrayList<>()).add(zz);
+      }
+    }
+    for (Map.Entry<ABLNodeType, List<Integer>> entry : map.entrySet()) {
+      subscriptions.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+    }
+  }
+
+  public boolean isEmpty() {
+    return checks.isEmpty();
+  }
+
+  /**
+   * Visit all nodes of unit, and forward them to subscribed checks
+   */
+  public void dispatch(InputFile file, ParseUnit unit) {
+    for (int zz = 0; zz < checks.size(); zz++) {
+      long startTime = System.nanoTime();
+      checks.get(zz).setParseUnit(unit);
+      checks.get(zz).enterFile(file, unit);
+      elapsedTime[zz] += System.nanoTime() - startTime;
+    }
+    if (!subscriptions.isEmpty()) {
+      visit(file, unit.getTopNode());
+    }
+    for (int zz = 0; zz < checks.size(); zz++) {
+      long startTime = System.nanoTime();
+      checks.get(zz).leaveFile(file, unit);
+      elapsedTime[zz] += System.nanoTime() - startTime;
+    }
+  }
+
+  private void visit(InputFile file, JPNode node) {
+    int[] subscribers = subscriptions.get(node.getNodeType());
+    if (subscribers != null) {
+      for (int zz : subscribers) {
+        long startTime = System.nanoTime();
+        checks.get(zz).enterNode(file, node);
+        elapsedTime[zz] += System.nanoTime() - startTime;
+      }
+    }
+    for (JPNode child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+      visit(file, child);
+    }
+    if (subscribers != null) {
+      for (int zz : subscribers) {
+        long startTime = System.nanoTime();
+        checks.get(zz).leaveNode(file, node);
+        elapsedTime[zz] += System.nanoTime() - startTime;
+      }
+    }
+  }
+
+  /**
+   * @param index Position of the check in the list passed to the constructor
+   * @return Time spent in this check since last call, in milliseconds
+   */
+  public long getElapsedTime(int index) {
+    long val = elapsedTime[index] / 1_000_000;
+    elapsedTime[index] -= val * 1_000_000;
+    return val;
+  }
+}
@@ -23,6 +23,7 @@ import java.text.MessageFormat;
 
 import org.prorefactor.core.JPNode;
 import org.prorefactor.treeparser.ParseUnit;
+import org.prorefactor.xref.XrefReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.SonarProduct;
@@ -47,6 +48,13 @@ public abstract class OpenEdgeProparseCheck extends OpenEdgeCheck<ParseUnit> {
     execute(file, unit);
   }
 
+  /**
+   * Internal method, set current unit when check is not executed through {@link #sensorExecute(InputFile, ParseUnit)}
+   */
+  final void setParseUnit(ParseUnit unit) {
+    this.unit = unit;
+  }
+
   @Override
   public OpenEdgeCheck.CheckType getCheckType() {
     return CheckType.PROPARSE;
@@ -189,28 +197,38 @@ public abstract class OpenEdgeProparseCheck extends OpenEdgeCheck<ParseUnit> {
     if (!"Reference".equals(element.getNodeName())) {
       throw new IllegalArgumentException("Invalid 'Reference' element");
     }
-    InputFile file2 = getSourceFile(file, element);
-    int lineNumber = Integer.parseInt(getChildNodeValue(element, "Line-num"));
-    if (file2 == null) {
+    reportXrefIssue(file, getSourceFile(file, element), Integer.parseInt(getChildNodeValue(element, "Line-num")), msg);
+  }
+
+  /**
+   * Report issue on the file and line of an XREF reference
+   */
+  protected void reportIssue(InputFile file, XrefReference ref, String msg) {
+    InputFile file2 = ref.getFileNum() == 1 ? file
+        : getContext().fileSystem().inputFile(
+            getContext().fileSystem().predicates().hasRelativePath(ref.getFileName()));
+    reportXrefIssue(file, file2, ref.getLineNum(), msg);
+  }
+
+  private void reportXrefIssue(InputFile file, InputFile file2, int lineNumber, String msg) {
+    if (file2 == null)
       return;
-    } else {
-      NewIssue issue = getContext().newIssue().forRule(getRuleKey());
-      NewIssueLocation location = issue.newLocation().on(file2);
-      if (lineNumber > 0) {
-        if (lineNumber <= file2.lines()) {
-          location.at(file2.selectLine(lineNumber));
-        } else {
-          LOG.error("Invalid line number {} in XREF file {} (base file {})", lineNumber, file2.relativePath(),
-              file.relativePath());
-        }
-      }
-      if (file2 == file) {
-        location.message(msg);
+    NewIssue issue = getContext().newIssue().forRule(getRuleKey());
+    NewIssueLocation location = issue.newLocation().on(file2);
+    if (lineNumber > 0) {
+      if (lineNumber <= file2.lines()) {
+        location.at(file2.selectLine(lineNumber));
       } else {
-        location.message(MessageFormat.format(INC_MESSAGE, file.relativePath(), msg));
+        LOG.error("Invalid line number {} in XREF file {} (base file {})", lineNumber, file2.relativePath(),
+            file.relativePath());
       }
-      issue.at(location).save();
     }
+    if (file2 == file) {
+      location.message(msg);
+    } else {
+      location.message(MessageFormat.format(INC_MESSAGE, file.relativePath(), msg));
+    }
+    issue.at(location).save();
   }
 
   private InputFile getSourceFile(InputFile file, Element refElement) {
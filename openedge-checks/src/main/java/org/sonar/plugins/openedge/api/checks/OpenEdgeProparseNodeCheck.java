@@ -0,0 +1,76 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.api.checks;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.prorefactor.core.ABLNodeType;
+import org.prorefactor.core.JPNode;
+import org.prorefactor.treeparser.ParseUnit;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Proparse check receiving nodes of subscribed types instead of querying the tree. When executed by the sensor, all
+ * node checks share a single traversal of the tree (see {@link NodeTypeDispatcher}).
+ */
+public abstract class OpenEdgeProparseNodeCheck extends OpenEdgeProparseCheck {
+
+  /**
+   * Node types this check is interested in. Called only once, after {@link #initialize()}
+   */
+  public abstract Set<ABLNodeType> getSubscribedNodeTypes();
+
+  /**
+   * Executed before tree traversal
+   */
+  public void enterFile(InputFile file, ParseUnit unit) {
+    // No-op
+  }
+
+  /**
+   * Executed after tree traversal
+   */
+  public void leaveFile(InputFile file, ParseUnit unit) {
+    // No-op
+  }
+
+  /**
+   * Executed when node is reached, before its children
+   */
+  public void enterNode(InputFile file, JPNode node) {
+    // No-op
+  }
+
+  /**
+   * Executed after all children of the node have been visited
+   */
+  public void leaveNode(InputFile file, JPNode node) {
+    // No-op
+  }
+
+  /**
+   * Standalone execution, with a traversal of the tree for this check only
+   */
+  @Override
+  public final void execute(InputFile file, ParseUnit unit) {
+    new NodeTypeDispatcher(Collections.singletonList(this)).dispatch(file, unit);
+  }
+}
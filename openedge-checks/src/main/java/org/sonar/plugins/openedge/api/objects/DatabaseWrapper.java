@@ -28,7 +28,6 @@ import org.prorefactor.core.schema.IDatabase;
 import org.prorefactor.core.schema.ITable;
 
 import eu.rssw.antlr.database.objects.DatabaseDescription;
-import eu.rssw.antlr.database.objects.Table;
 
 public class DatabaseWrapper implements IDatabase {
   private final DatabaseDescription dbDesc;
@@ -38,9 +37,10 @@ public class DatabaseWrapper implements IDatabase {
   public DatabaseWrapper(DatabaseDescription dbDesc) {
     this.dbDesc = dbDesc;
 
-    for (Table fld : dbDesc.getTables()) {
-      ITable iFld = new TableWrapper(this, fld);
-      sortedTables.add(iFld);
+    // Table objects are only requested from the description when the wrapper needs them
+    for (String name : dbDesc.getTableNames()) {
+      sortedTables.add(
+          new TableWrapper(this, name, () -> dbDesc.getTable(name), () -> dbDesc.getFieldNames(name)));
     }
   }
 
@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.function.Supplier;
 
 import org.prorefactor.core.IConstants;
 import org.prorefactor.core.schema.Constants;
@@ -31,6 +32,7 @@ import org.prorefactor.core.schema.IDatabase;
 import org.prorefactor.core.schema.IField;
 import org.prorefactor.core.schema.IIndex;
 import org.prorefactor.core.schema.ITable;
+import org.prorefactor.core.schema.NameDictionary;
 
 import eu.rssw.antlr.database.objects.Field;
 import eu.rssw.antlr.database.objects.Index;
@@ -41,29 +43,57 @@ import eu.rssw.antlr.database.objects.Table;
  */
 public class TableWrapper implements ITable {
   private final IDatabase db;
-  private final Table table;
+  private final String name;
+  private final Supplier<Table> supplier;
+  private final Supplier<List<String>> fieldNames;
 
-  private final List<IField> fields = new ArrayList<>();
-  private final List<IIndex> indexes = new ArrayList<>();
-  private final SortedSet<IField> sortedFields = new TreeSet<>(Constants.FIELD_NAME_ORDER);
+  private volatile Content content;
 
   public TableWrapper(IDatabase db, Table t) {
+    this(db, t.getName(), () -> t);
+  }
+
+  /**
+   * Backing table object is only requested when fields or indexes are first accessed
+   */
+  public TableWrapper(IDatabase db, String name, Supplier<Table> supplier) {
+    this(db, name, supplier, null);
+  }
+
+  /**
+   * @param fieldNames Field names in position order, used by {@link #getFieldNames()} as long as fields are not built.
+   *          If null, fields are built.
+   */
+  public TableWrapper(IDatabase db, String name, Supplier<Table> supplier, Supplier<List<String>> fieldNames) {
     this.db = db;
-    this.table = t;
+    this.name = name;
+    this.supplier = supplier;
+    this.fieldNames = fieldNames;
+  }
 
-    for (Field fld : table.getFields()) {
-      IField iFld = new FieldWrapper(this, fld);
-      fields.add(iFld);
-      sortedFields.add(iFld);
-    }
-    for (Index idx : table.getIndexes()) {
-      IIndex iIdx = new IndexWrapper(this, idx);
-      indexes.add(iIdx);
-    }
+  /**
+   * @return True if backing table object was requested and fields and indexes were built
+   */
+  public boolean isBuilt() {
+    return content != null;
   }
 
   public Table getBackingObject() {
-    return table;
+    return supplier.get();
+  }
+
+  private Content getContent() {
+    Content c = content;
+    if (c == null) {
+      synchronized (this) {
+        c = content;
+        if (c == null) {
+          c = new Content(this, supplier.get());
+          content = c;
+        }
+      }
+    }
+    return c;
   }
 
   @Override
@@ -73,7 +103,7 @@ public class TableWrapper implements ITable {
 
   @Override
   public String getName() {
-    return table.getName();
+    return name;
   }
 
   @Override
@@ -86,33 +116,40 @@ public class TableWrapper implements ITable {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Exact match first, then first field (in alphabetical order) starting with this name, as in
+   * {@link org.prorefactor.core.schema.Table#lookupField(String)}
+   */
   @Override
   public IField lookupField(String lookupName) {
-    for (IField fld : fields) {
-      if (fld.getName().toLowerCase().startsWith(lookupName.toLowerCase()))
-        return fld;
-    }
-    return null;
+    return getContent().fieldNames.lookupPrefix(lookupName);
   }
 
   @Override
   public SortedSet<IField> getFieldSet() {
-    return Collections.unmodifiableSortedSet(sortedFields);
+    return Collections.unmodifiableSortedSet(getContent().sortedFields);
   }
 
   @Override
   public List<IField> getFieldPosOrder() {
-    return Collections.unmodifiableList(fields);
+    return Collections.unmodifiableList(getContent().fields);
+  }
+
+  @Override
+  public List<String> getFieldNames() {
+    if ((fieldNames == null) || (content != null))
+      return ITable.super.getFieldNames();
+    return Collections.unmodifiableList(fieldNames.get());
   }
 
   @Override
   public List<IIndex> getIndexes() {
-    return Collections.unmodifiableList(indexes);
+    return Collections.unmodifiableList(getContent().indexes);
   }
 
   @Override
   public IIndex lookupIndex(String name) {
-    for (IIndex idx : indexes) {
+    for (IIndex idx : getContent().indexes) {
       if (idx.getName().equalsIgnoreCase(name))
         return idx;
     }
@@ -124,4 +161,22 @@ public class TableWrapper implements ITable {
     return IConstants.ST_DBTABLE;
   }
 
+  private static class Content {
+    private final List<IField> fields = new ArrayList<>();
+    private final List<IIndex> indexes = new ArrayList<>();
+    private final SortedSet<IField> sortedFields = new TreeSet<>(Constants.FIELD_NAME_ORDER);
+    private final NameDictionary<IField> fieldNames = new NameDictionary<>(sortedFields, IField::getName);
+
+    Content(TableWrapper wrapper, Table table) {
+      for (Field fld : table.getFields()) {
+        IField iFld = new FieldWrapper(wrapper, fld);
+        fields.add(iFld);
+        sortedFields.add(iFld);
+      }
+      for (Index idx : table.getIndexes()) {
+        indexes.add(new IndexWrapper(wrapper, idx));
+      }
+    }
+  }
+
 }
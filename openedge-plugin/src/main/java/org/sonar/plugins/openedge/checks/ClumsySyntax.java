@@ -19,28 +19,37 @@
  */
 package org.sonar.plugins.openedge.checks;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 import org.prorefactor.core.ABLNodeType;
 import org.prorefactor.core.JPNode;
 import org.prorefactor.treeparser.ParseUnit;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
-import org.sonar.plugins.openedge.api.checks.OpenEdgeProparseCheck;
+import org.sonar.plugins.openedge.api.checks.OpenEdgeProparseNodeCheck;
 import org.sonar.plugins.openedge.api.model.SqaleConstantRemediation;
 
 @Rule(priority = Priority.BLOCKER, name = "Valid yet clumsy ABL syntax", tags = {"clumsy", "confusing"})
 @SqaleConstantRemediation(value = "15min")
-public class ClumsySyntax extends OpenEdgeProparseCheck {
+public class ClumsySyntax extends OpenEdgeProparseNodeCheck {
+  private boolean enabled;
+
+  @Override
+  public Set<ABLNodeType> getSubscribedNodeTypes() {
+    return EnumSet.of(ABLNodeType.METHOD);
+  }
+
+  @Override
+  public void enterFile(InputFile file, ParseUnit unit) {
+    enabled = unit.getRootScope().isInterface() || unit.getRootScope().isAbstractClass();
+  }
 
   @Override
-  public void execute(InputFile file, ParseUnit unit) {
-    if (unit.getRootScope().isInterface() || unit.getRootScope().isAbstractClass()) {
-      for (JPNode node : unit.getTopNode().queryStateHead(ABLNodeType.METHOD)) {
-        JPNode lastChild = node.getLastDescendant();
-        if (lastChild.getNodeType() == ABLNodeType.LEXCOLON) {
-          reportIssue(file, node, "METHOD ending with colon instead of period");
-        }
-      }
+  public void enterNode(InputFile file, JPNode node) {
+    if (enabled && node.isStateHead() && (node.getLastDescendant().getNodeType() == ABLNodeType.LEXCOLON)) {
+      reportIssue(file, node, "METHOD ending with colon instead of period");
     }
   }
 
@@ -19,65 +19,26 @@
  */
 package org.sonar.plugins.openedge.checks;
 
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
-
 import org.prorefactor.treeparser.ParseUnit;
+import org.prorefactor.xref.XrefModel;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.check.Priority;
 import org.sonar.check.Rule;
 import org.sonar.plugins.openedge.api.checks.OpenEdgeProparseCheck;
 import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
-import org.w3c.dom.NodeList;
 
 @Rule(priority = Priority.MAJOR, name = "Shared objects analyzer")
 public class SharedObjectsAnalyzer extends OpenEdgeProparseCheck {
-  private static XPathExpression shrTTExpr;
-  private static XPathExpression shrDSExpr;
-  private static XPathExpression shrVarExpr;
-
-  static {
-    XPath xPath = XPathFactory.newInstance().newXPath();
-    try {
-      shrTTExpr = xPath.compile("//Reference[@Reference-type='NEW-SHR-TEMPTABLE']");
-      shrDSExpr = xPath.compile("//Reference[@Reference-type='NEW-SHR-DATASET']");
-      shrVarExpr = xPath.compile("//Reference[@Reference-type='NEW-SHR-VARIABLE']");
-    } catch (XPathExpressionException caught) {
-      throw new RuntimeException(caught);
-    }
-  }
 
   @Override
   public void execute(InputFile file, ParseUnit unit) {
-    if (unit.getXref() == null)
+    XrefModel xref = unit.getXrefModel();
+    if (xref == null)
       return;
 
-    int numShrTT = 0, numShrDS = 0, numShrVar = 0;
-    try {
-      NodeList nodeList = (NodeList) shrTTExpr.evaluate(unit.getXref(), XPathConstants.NODESET);
-      numShrTT = nodeList.getLength();
-    } catch (XPathExpressionException uncaught) {
-
-    }
-    try {
-      NodeList nodeList = (NodeList) shrDSExpr.evaluate(unit.getXref(), XPathConstants.NODESET);
-      numShrDS = nodeList.getLength();
-    } catch (XPathExpressionException uncaught) {
-
-    }
-    try {
-      NodeList nodeList = (NodeList) shrVarExpr.evaluate(unit.getXref(), XPathConstants.NODESET);
-      numShrVar = nodeList.getLength();
-    } catch (XPathExpressionException uncaught) {
-
-    }
-
-    reportMeasure(file, OpenEdgeMetrics.SHR_TT, numShrTT);
-    reportMeasure(file, OpenEdgeMetrics.SHR_DS, numShrDS);
-    reportMeasure(file, OpenEdgeMetrics.SHR_VAR, numShrVar);
+    reportMeasure(file, OpenEdgeMetrics.SHR_TT, xref.getReferences("NEW-SHR-TEMPTABLE").size());
+    reportMeasure(file, OpenEdgeMetrics.SHR_DS, xref.getReferences("NEW-SHR-DATASET").size());
+    reportMeasure(file, OpenEdgeMetrics.SHR_VAR, xref.getReferences("NEW-SHR-VARIABLE").size());
   }
 
 }
@@ -0,0 +1,244 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.foundation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+/**
+ * On-disk cache of analysis results, one entry per main file. An entry is only reused if the content of the main file
+ * and of all its dependencies (XREF and listing files) is unchanged, if every include file is still resolved to the same
+ * file with the same content, and if the environment fingerprint
+ * (OpenEdge properties, database schema, rcode found in build directories, active rules, plugin version) is the same.
+ * Entries are stored in a plain binary format, no object is deserialized from the cache directory.
+ */
+public class AnalysisCache {
+  private static final Logger LOG = Loggers.get(AnalysisCache.class);
+  private static final HashFunction HASH = Hashing.murmur3_128();
+  private static final int MAGIC = 0x4F45_4143;
+  private static final int FORMAT_VERSION = 4;
+
+  public static final String DEFAULT_DIRECTORY = ".sonar/oe-cache";
+
+  private final File directory;
+  private final String fingerprint;
+  private final Function<String, File> includeResolver;
+  // Dependencies and include files are shared by many main files, and don't change during the analysis
+  private final Map<String, String> dependencyHashes = new ConcurrentHashMap<>();
+  private final Map<String, String> includePaths = new ConcurrentHashMap<>();
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+
+  /**
+   * @param includeResolver Resolves include file names (as referenced in source code) on the propath, returns null if
+   *          file is not found
+   */
+  public AnalysisCache(File directory, String fingerprint, Function<String, File> includeResolver) {
+    this.directory = directory;
+    this.fingerprint = fingerprint;
+    this.includeResolver = includeResolver;
+    if (!directory.exists() && !directory.mkdirs())
+      LOG.error("Unable to create analysis cache directory '{}'", directory.getAbsolutePath());
+  }
+
+  /**
+   * Fingerprint of the analysis environment
+   * 
+   * @param properties Analysis properties, only OpenEdge properties and source encoding are used
+   * @param files Files whose content influences analysis of every source file (such as database schema)
+   * @param rcodeState State of rcode read from build directories, see {@link RCodeScanner#getState()}
+   * @param rules Active rules description (with parameters)
+   */
+  public static String fingerprint(Map<String, String> properties, Collection<File> files, String rcodeState,
+      Collection<String> rules, @Nullable String version) {
+    Hasher hasher = HASH.newHasher();
+    hasher.putInt(FORMAT_VERSION).putString(version == null ? "" : version, StandardCharsets.UTF_8);
+    for (Map.Entry<String, String> entry : new TreeMap<>(properties).entrySet()) {
+      if (entry.getKey().startsWith("sonar.oe.") || "sonar.sourceEncoding".equals(entry.getKey())) {
+        hasher.putString(entry.getKey(), StandardCharsets.UTF_8).putChar('=').putString(entry.getValue(),
+            StandardCharsets.UTF_8).putChar('\n');
+      }
+    }
+    for (File file : files) {
+      hasher.putString(file.getAbsolutePath(), StandardCharsets.UTF_8).putString(hash(file), StandardCharsets.UTF_8);
+    }
+    hasher.putString(rcodeState, StandardCharsets.UTF_8).putChar('\n');
+    for (String rule : new TreeSet<>(rules)) {
+      hasher.putString(rule, StandardCharsets.UTF_8).putChar('\n');
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * @return Stored analysis of this file, or null if not in cache or if any dependency has changed
+   */
+  @Nullable
+  public AnalysisRecord get(String relativePath, InputFile file) {
+    File entryFile = getEntryFile(relativePath);
+    if (!entryFile.exists()) {
+      misses.incrementAndGet();
+      return null;
+    }
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(entryFile)))) {
+      if ((input.readInt() == MAGIC) && (input.readInt() == FORMAT_VERSION) && fingerprint.equals(input.readUTF())
+          && isValid(input, hash(file))) {
+        AnalysisRecord record = AnalysisRecord.read(input);
+        hits.incrementAndGet();
+        return record;
+      }
+    } catch (IOException | RuntimeException caught) {
+      LOG.debug("Invalid analysis cache entry for {} - {}", relativePath, caught.getMessage());
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Store analysis of one file
+   * 
+   * @param includes Include file names, as referenced in source code
+   * @param dependencies Files used during analysis. Files which don't exist are also recorded, so that the entry is
+   *          discarded when they're created
+   */
+  public void put(String relativePath, InputFile file, Collection<String> includes, Collection<File> dependencies,
+      AnalysisRecord record) {
+    try (DataOutputStream output = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(getEntryFile(relativePath))))) {
+      output.writeInt(MAGIC);
+      output.writeInt(FORMAT_VERSION);
+      output.writeUTF(fingerprint);
+      output.writeUTF(hash(file));
+      output.writeInt(dependencies.size());
+      for (File dep : dependencies) {
+        output.writeUTF(dep.getAbsolutePath());
+        output.writeUTF(hashDependency(dep));
+      }
+      output.writeInt(includes.size());
+      for (String inc : includes) {
+        String path = resolveInclude(inc);
+        output.writeUTF(inc);
+        output.writeUTF(path);
+        output.writeUTF(path.isEmpty() ? "" : hashDependency(new File(path)));
+      }
+      record.write(output);
+    } catch (IOException caught) {
+      LOG.debug("Unable to write analysis cache entry for {} - {}", relativePath, caught.getMessage());
+    }
+  }
+
+  public int getHits() {
+    return hits.get();
+  }
+
+  public int getMisses() {
+    return misses.get();
+  }
+
+  private File getEntryFile(String relativePath) {
+    return new File(directory, HASH.hashString(relativePath, StandardCharsets.UTF_8).toString() + ".bin");
+  }
+
+  /**
+   * Read main file hash, dependencies and include files from entry, and compare them with current content. Include
+   * files are resolved again, so that an include file added in a previous propath entry invalidates the entry.
+   */
+  private boolean isValid(DataInputStream input, String currentHash) throws IOException {
+    String hash = input.readUTF();
+    if (hash.isEmpty() || !hash.equals(currentHash))
+      return false;
+    int numDeps = input.readInt();
+    for (int zz = 0; zz < numDeps; zz++) {
+      File dep = new File(input.readUTF());
+      if (!input.readUTF().equals(hashDependency(dep)))
+        return false;
+    }
+    int numIncludes = input.readInt();
+    for (int zz = 0; zz < numIncludes; zz++) {
+      String path = resolveInclude(input.readUTF());
+      if (!input.readUTF().equals(path))
+        return false;
+      if (!input.readUTF().equals(path.isEmpty() ? "" : hashDependency(new File(path))))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return Absolute path of include file, or empty string if not found
+   */
+  private String resolveInclude(String name) {
+    return includePaths.computeIfAbsent(name, key -> {
+      File file = includeResolver.apply(key);
+      return file == null ? "" : file.getAbsolutePath();
+    });
+  }
+
+  private String hashDependency(File file) {
+    return dependencyHashes.computeIfAbsent(file.getAbsolutePath(), path -> hash(file));
+  }
+
+  /**
+   * @return Hash of file content, or empty string if file doesn't exist or can't be read
+   */
+  static String hash(File file) {
+    if (!file.isFile())
+      return "";
+    try {
+      return Files.asByteSource(file).hash(HASH).toString();
+    } catch (IOException caught) {
+      return "";
+    }
+  }
+
+  static String hash(InputFile file) {
+    try (InputStream input = file.inputStream()) {
+      return HASH.hashBytes(ByteStreams.toByteArray(input)).toString();
+    } catch (IOException caught) {
+      return "";
+    }
+  }
+}
@@ -0,0 +1,421 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.foundation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.TextRange;
+import org.sonar.api.batch.measure.Metric;
+import org.sonar.api.batch.rule.Severity;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.cpd.NewCpdTokens;
+import org.sonar.api.batch.sensor.issue.NewIssue;
+import org.sonar.api.batch.sensor.issue.NewIssueLocation;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.rule.RuleKey;
+
+/**
+ * Everything saved in the SensorContext during the analysis of one file (issues, measures and CPD tokens), in a form
+ * that can be stored on disk and replayed later. Files are identified by their path relative to the base directory.
+ */
+public class AnalysisRecord {
+  private static final int MAX_STRING_LENGTH = 1 << 24;
+  private static final byte TYPE_INTEGER = 0;
+  private static final byte TYPE_LONG = 1;
+  private static final byte TYPE_DOUBLE = 2;
+  private static final byte TYPE_STRING = 3;
+  private static final byte TYPE_BOOLEAN = 4;
+
+  private static final Map<String, Metric<?>> METRICS = new HashMap<>();
+
+  static {
+    for (org.sonar.api.measures.Metric<?> metric : CoreMetrics.getMetrics()) {
+      METRICS.put(metric.key(), metric);
+    }
+    for (org.sonar.api.measures.Metric<?> metric : new OpenEdgeMetrics().getMetrics()) {
+      METRICS.put(metric.key(), metric);
+    }
+  }
+
+  private final List<MeasureRecord> measures = new ArrayList<>();
+  private final List<IssueRecord> issues = new ArrayList<>();
+  private final List<CpdRecord> cpdTokens = new ArrayList<>();
+  private boolean cacheable = true;
+  private int ncloc;
+  private boolean xref;
+  private boolean listing;
+
+  /**
+   * @return False if something which can't be replayed was saved during the analysis
+   */
+  public boolean isCacheable() {
+    return cacheable;
+  }
+
+  void setNotCacheable() {
+    cacheable = false;
+  }
+
+  public int getNcloc() {
+    return ncloc;
+  }
+
+  public void setNcloc(int ncloc) {
+    this.ncloc = ncloc;
+  }
+
+  /**
+   * @return True if XREF file was used during the analysis
+   */
+  public boolean hasXref() {
+    return xref;
+  }
+
+  public void setXref(boolean xref) {
+    this.xref = xref;
+  }
+
+  /**
+   * @return True if listing file was used during the analysis
+   */
+  public boolean hasListing() {
+    return listing;
+  }
+
+  public void setListing(boolean listing) {
+    this.listing = listing;
+  }
+
+  /**
+   * @return True if measure value can be stored in cache
+   */
+  static boolean isSupportedValue(@Nullable Serializable value) {
+    return (value instanceof Integer) || (value instanceof Long) || (value instanceof Double)
+        || (value instanceof String) || (value instanceof Boolean);
+  }
+
+  static boolean isKnownMetric(Metric<?> metric) {
+    return METRICS.containsKey(metric.key());
+  }
+
+  void addMeasure(MeasureRecord measure) {
+    measures.add(measure);
+  }
+
+  void addIssue(IssueRecord issue) {
+    issues.add(issue);
+  }
+
+  void addCpdTokens(CpdRecord tokens) {
+    cpdTokens.add(tokens);
+  }
+
+  public int getNumIssues() {
+    return issues.size();
+  }
+
+  /**
+   * Save all recorded items in context
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public void replay(SensorContext context) {
+    for (MeasureRecord measure : measures) {
+      InputFile file = getInputFile(context, measure.file);
+      if (file != null)
+        context.newMeasure().on(file).forMetric((Metric) METRICS.get(measure.metricKey)).withValue(measure.value).save();
+    }
+    for (CpdRecord cpd : cpdTokens) {
+      InputFile file = getInputFile(context, cpd.file);
+      if (file == null)
+        continue;
+      NewCpdTokens tokens = context.newCpdTokens().onFile(file);
+      for (int zz = 0; zz < cpd.images.size(); zz++) {
+        int[] range = cpd.ranges.get(zz);
+        tokens.addToken(range[0], range[1], range[2], range[3], cpd.images.get(zz));
+      }
+      tokens.save();
+    }
+    for (IssueRecord rec : issues) {
+      NewIssue issue = context.newIssue().forRule(RuleKey.parse(rec.ruleKey));
+      if (rec.gap != null)
+        issue.gap(rec.gap);
+      if (rec.severity != null)
+        issue.overrideSeverity(Severity.valueOf(rec.severity));
+      if (rec.primary != null) {
+        NewIssueLocation loc = createLocation(context, issue, rec.primary);
+        if (loc == null)
+          continue;
+        issue.at(loc);
+      }
+      for (LocationRecord secondary : rec.secondary) {
+        NewIssueLocation loc = createLocation(context, issue, secondary);
+        if (loc != null)
+          issue.addLocation(loc);
+      }
+      issue.save();
+    }
+  }
+
+  /**
+   * Write record in binary format, only cacheable records can be written
+   */
+  public void write(DataOutput output) throws IOException {
+    if (!cacheable)
+      throw new IllegalStateException("Record can't be written");
+    output.writeInt(ncloc);
+    output.writeBoolean(xref);
+    output.writeBoolean(listing);
+    output.writeInt(measures.size());
+    for (MeasureRecord measure : measures) {
+      writeString(output, measure.file);
+      writeString(output, measure.metricKey);
+      writeValue(output, measure.value);
+    }
+    output.writeInt(cpdTokens.size());
+    for (CpdRecord cpd : cpdTokens) {
+      writeString(output, cpd.file);
+      output.writeInt(cpd.images.size());
+      for (int zz = 0; zz < cpd.images.size(); zz++) {
+        writeRange(output, cpd.ranges.get(zz));
+        writeString(output, cpd.images.get(zz));
+      }
+    }
+    output.writeInt(issues.size());
+    for (IssueRecord issue : issues) {
+      writeString(output, issue.ruleKey);
+      output.writeBoolean(issue.gap != null);
+      if (issue.gap != null)
+        output.writeDouble(issue.gap);
+      writeString(output, issue.severity);
+      output.writeBoolean(issue.primary != null);
+      if (issue.primary != null)
+        writeLocation(output, issue.primary);
+      output.writeInt(issue.secondary.size());
+      for (LocationRecord loc : issue.secondary) {
+        writeLocation(output, loc);
+      }
+    }
+  }
+
+  /**
+   * Read record written by {@link #write(DataOutput)}
+   * 
+   * @throws IOException If input is truncated or invalid
+   */
+  public static AnalysisRecord read(DataInput input) throws IOException {
+    AnalysisRecord rec = new AnalysisRecord();
+    rec.ncloc = input.readInt();
+    rec.xref = input.readBoolean();
+    rec.listing = input.readBoolean();
+    int numMeasures = input.readInt();
+    for (int zz = 0; zz < numMeasures; zz++) {
+      MeasureRecord measure = new MeasureRecord();
+      measure.file = readString(input);
+      measure.metricKey = readString(input);
+      if (!METRICS.containsKey(measure.metricKey))
+        throw new IOException("Unknown metric " + measure.metricKey);
+      measure.value = readValue(input);
+      rec.measures.add(measure);
+    }
+    int numCpd = input.readInt();
+    for (int zz = 0; zz < numCpd; zz++) {
+      CpdRecord cpd = new CpdRecord();
+      cpd.file = readString(input);
+      int numTokens = input.readInt();
+      for (int yy = 0; yy < numTokens; yy++) {
+        cpd.ranges.add(readRange(input));
+        cpd.images.add(readString(input));
+      }
+      rec.cpdTokens.add(cpd);
+    }
+    int numIssues = input.readInt();
+    for (int zz = 0; zz < numIssues; zz++) {
+      IssueRecord issue = new IssueRecord();
+      issue.ruleKey = readString(input);
+      if (input.readBoolean())
+        issue.gap = input.readDouble();
+      issue.severity = readString(input);
+      if (input.readBoolean())
+        issue.primary = readLocation(input);
+      int numSecondary = input.readInt();
+      for (int yy = 0; yy < numSecondary; yy++) {
+        issue.secondary.add(readLocation(input));
+      }
+      rec.issues.add(issue);
+    }
+    return rec;
+  }
+
+  private static void writeLocation(DataOutput output, LocationRecord loc) throws IOException {
+    writeString(output, loc.file);
+    output.writeBoolean(loc.range != null);
+    if (loc.range != null)
+      writeRange(output, loc.range);
+    writeString(output, loc.message);
+  }
+
+  private static LocationRecord readLocation(DataInput input) throws IOException {
+    LocationRecord loc = new LocationRecord();
+    loc.file = readString(input);
+    if (input.readBoolean())
+      loc.range = readRange(input);
+    loc.message = readString(input);
+    return loc;
+  }
+
+  private static void writeRange(DataOutput output, int[] range) throws IOException {
+    for (int zz = 0; zz < 4; zz++) {
+      output.writeInt(range[zz]);
+    }
+  }
+
+  private static int[] readRange(DataInput input) throws IOException {
+    return new int[] {input.readInt(), input.readInt(), input.readInt(), input.readInt()};
+  }
+
+  private static void writeValue(DataOutput output, Serializable value) throws IOException {
+    if (value instanceof Integer) {
+      output.writeByte(TYPE_INTEGER);
+      output.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      output.writeByte(TYPE_LONG);
+      output.writeLong((Long) value);
+    } else if (value instanceof Double) {
+      output.writeByte(TYPE_DOUBLE);
+      output.writeDouble((Double) value);
+    } else if (value instanceof String) {
+      output.writeByte(TYPE_STRING);
+      writeString(output, (String) value);
+    } else if (value instanceof Boolean) {
+      output.writeByte(TYPE_BOOLEAN);
+      output.writeBoolean((Boolean) value);
+    } else {
+      throw new IOException("Unsupported measure value " + (value == null ? "null" : value.getClass().getName()));
+    }
+  }
+
+  private static Serializable readValue(DataInput input) throws IOException {
+    byte type = input.readByte();
+    switch (type) {
+      case TYPE_INTEGER:
+        return input.readInt();
+      case TYPE_LONG:
+        return input.readLong();
+      case TYPE_DOUBLE:
+        return input.readDouble();
+      case TYPE_STRING:
+        return readString(input);
+      case TYPE_BOOLEAN:
+        return input.readBoolean();
+      default:
+        throw new IOException("Invalid measure value type " + type);
+    }
+  }
+
+  /**
+   * Strings are written as length and UTF-8 bytes, as {@link DataOutput#writeUTF(String)} is limited to 64 KB. Null is
+   * written as -1.
+   */
+  private static void writeString(DataOutput output, @Nullable String str) throws IOException {
+    if (str == null) {
+      output.writeInt(-1);
+      return;
+    }
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  @Nullable
+  private static String readString(DataInput input) throws IOException {
+    int length = input.readInt();
+    if (length == -1)
+      return null;
+    if ((length < 0) || (length > MAX_STRING_LENGTH))
+      throw new IOException("Invalid string length " + length);
+    byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static NewIssueLocation createLocation(SensorContext context, NewIssue issue, LocationRecord rec) {
+    NewIssueLocation loc = issue.newLocation();
+    if (rec.file != null) {
+      InputFile file = getInputFile(context, rec.file);
+      if (file == null)
+        return null;
+      loc.on(file);
+      if (rec.range != null)
+        loc.at(file.newRange(rec.range[0], rec.range[1], rec.range[2], rec.range[3]));
+    }
+    if (rec.message != null)
+      loc.message(rec.message);
+    return loc;
+  }
+
+  @Nullable
+  private static InputFile getInputFile(SensorContext context, String relativePath) {
+    if (relativePath == null)
+      return null;
+    return context.fileSystem().inputFile(context.fileSystem().predicates().hasRelativePath(relativePath));
+  }
+
+  static int[] toArray(TextRange range) {
+    return new int[] {
+        range.start().line(), range.start().lineOffset(), range.end().line(), range.end().lineOffset()};
+  }
+
+  static class MeasureRecord {
+    String file;
+    String metricKey;
+    Serializable value;
+  }
+
+  static class LocationRecord {
+    String file;
+    int[] range;
+    String message;
+  }
+
+  static class IssueRecord {
+    String ruleKey;
+    Double gap;
+    String severity;
+    LocationRecord primary;
+    final List<LocationRecord> secondary = new ArrayList<>();
+  }
+
+  static class CpdRecord {
+    String file;
+    final List<int[]> ranges = new ArrayList<>();
+    final List<String> images = new ArrayList<>();
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.foundation;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.sonar.api.batch.fs.InputFile;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import eu.rssw.antlr.database.DumpFileUtils;
+import eu.rssw.antlr.database.DumpFileVisitor;
+import eu.rssw.antlr.database.objects.DatabaseDescription;
+
+/**
+ * Dump files parsed during the analysis, so that the schema used by Proparse and the DB sensors share the same parse
+ * tree. Entries are keyed by content hash and default charset, so that a modified file is parsed again. Parse trees
+ * are softly referenced, and can be reclaimed by the garbage collector once the DB sensors are executed.
+ */
+public class DumpFileCache {
+  private static final HashFunction HASH = Hashing.murmur3_128();
+
+  private final Cache<Key, DumpFile> cache = CacheBuilder.newBuilder().softValues().recordStats().build();
+
+  /**
+   * Returns parsed dump file from {@link InputFile#inputStream()}, so that unsaved content is used in SonarLint
+   * 
+   * @throws IOException If file can't be read or parsed. Nothing is kept in cache in this case.
+   */
+  public DumpFile get(InputFile file) throws IOException {
+    byte[] content;
+    try (InputStream input = file.inputStream()) {
+      content = ByteStreams.toByteArray(input);
+    }
+    Charset charset = file.charset();
+    return get(new Key(HASH.hashBytes(content).toString(), charset.name()),
+        () -> new DumpFile(DumpFileUtils.getDumpFileParseTree(new ByteArrayInputStream(content), charset)));
+  }
+
+  /**
+   * Returns parsed dump file, either from cache or by parsing the file
+   * 
+   * @param defaultCharset Charset used if code page is not available in the DF trailer
+   * @throws IOException If file can't be read or parsed. Nothing is kept in cache in this case.
+   */
+  public DumpFile get(File file, Charset defaultCharset) throws IOException {
+    return get(new Key(Files.asByteSource(file).hash(HASH).toString(), defaultCharset.name()),
+        () -> new DumpFile(parse(file, defaultCharset)));
+  }
+
+  private DumpFile get(Key key, Callable<DumpFile> loader) throws IOException {
+    try {
+      return cache.get(key, loader);
+    } catch (ExecutionException | UncheckedExecutionException caught) {
+      Throwables.throwIfInstanceOf(caught.getCause(), IOException.class);
+      Throwables.throwIfUnchecked(caught.getCause());
+      throw new IllegalStateException(caught.getCause());
+    }
+  }
+
+  private static ParseTree parse(File file, Charset defaultCharset) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return DumpFileUtils.getDumpFileParseTree(channel, defaultCharset);
+    }
+  }
+
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * Parse tree of a dump file, and database descriptions generated from this tree
+   */
+  public static class DumpFile {
+    private final ParseTree tree;
+    private final Map<String, DatabaseDescription> descriptions = new ConcurrentHashMap<>();
+
+    DumpFile(ParseTree tree) {
+      this.tree = tree;
+    }
+
+    public ParseTree getParseTree() {
+      return tree;
+    }
+
+    /**
+     * Database description is only generated once per database name. Returned object is shared, and shouldn't be
+     * modified.
+     */
+    public DatabaseDescription getDatabaseDescription(String dbName) {
+      return descriptions.computeIfAbsent(dbName, this::visit);
+    }
+
+    private DatabaseDescription visit(String dbName) {
+      DumpFileVisitor visitor = new DumpFileVisitor(dbName);
+      visitor.visit(tree);
+      return visitor.getDatabase();
+    }
+  }
+
+  private static final class Key {
+    private final String hash;
+    private final String charset;
+
+    Key(String hash, String charset) {
+      this.hash = hash;
+      this.charset = charset;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Key))
+        return false;
+      Key other = (Key) obj;
+      return hash.equals(other.hash) && charset.equals(other.charset);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(hash, charset);
+    }
+  }
+}
@@ -67,6 +67,8 @@ public class OpenEdgeComponents {
   private final CheckRegistrar checkRegistrar = new CheckRegistrar();
   private final LicenseRegistrar licenseRegistrar = new LicenseRegistrar();
   private boolean initialized = false;
+  // Context given to checks, so that their output can be recorded
+  private RecordingSensorContext checksContext;
 
   public OpenEdgeComponents() {
     this(null, null);
@@ -126,12 +128,13 @@ public class OpenEdgeComponents {
     if (initialized)
       return;
 
+    checksContext = new RecordingSensorContext(context);
     String permId = (context.runtime().getProduct() == SonarProduct.SONARLINT ? "sonarlint-" : "")
         + OpenEdgeProjectHelper.getServerId(context);
 
     // Proparse and XREF rules
     for (ActiveRule rule : context.activeRules().findByLanguage(Constants.LANGUAGE_KEY)) {
-      OpenEdgeCheck<?> lint = initializeCheck(context, rule, permId);
+      OpenEdgeCheck<?> lint = initializeCheck(checksContext, rule, permId);
       if ((lint != null) && (lint.getCheckType() == CheckType.PROPARSE)) {
         ppChecksMap.put(rule, (OpenEdgeProparseCheck) lint);
       }
@@ -147,6 +150,13 @@ public class OpenEdgeComponents {
     initialized = true;
   }
 
+  /**
+   * @return SensorContext used by checks, or null if checks are not initialized
+   */
+  public RecordingSensorContext getChecksContext() {
+    return checksContext;
+  }
+
   public Map<ActiveRule, OpenEdgeProparseCheck> getProparseRules() { 
     return Collections.unmodifiableMap(ppChecksMap);  
   }
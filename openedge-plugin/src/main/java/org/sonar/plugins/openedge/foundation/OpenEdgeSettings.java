@@ -19,16 +19,18 @@
  */
 package org.sonar.plugins.openedge.foundation;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -36,16 +38,13 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.prorefactor.core.schema.IDatabase;
 import org.prorefactor.core.schema.Schema;
+import org.prorefactor.refactor.PropathIndex;
 import org.prorefactor.refactor.RefactorSession;
 import org.prorefactor.refactor.settings.ProparseSettings;
 import org.sonar.api.CoreProperties;
@@ -69,19 +68,19 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.io.Files;
 import com.google.common.primitives.Ints;
 
-import eu.rssw.antlr.database.DumpFileUtils;
+import eu.rssw.antlr.database.objects.BinarySchema;
 import eu.rssw.antlr.database.objects.DatabaseDescription;
-import eu.rssw.pct.FileEntry;
-import eu.rssw.pct.PLReader;
 import eu.rssw.pct.ProgressClasses;
 import eu.rssw.pct.RCodeInfo;
 import eu.rssw.pct.RCodeInfo.InvalidRCodeException;
+import eu.rssw.pct.TypeInfoCatalog;
 import eu.rssw.pct.elements.ITypeInfo;
 
 @ScannerSide
 @SonarLintSide
 public class OpenEdgeSettings {
   private static final Logger LOG = Loggers.get(OpenEdgeSettings.class);
+  private static final String TYPE_INFO_CATALOG = ".sonar/oe-typeinfo.bin";
 
   // IoC
   private final Configuration config;
@@ -100,7 +99,11 @@ public class OpenEdgeSettings {
   private final Set<String> cpdProcedures = new HashSet<>();
   private final Set<Integer> xrefBytes = new HashSet<>();
 
+  private final DumpFileCache dumpFileCache = new DumpFileCache();
+
   private RefactorSession proparseSession;
+  private PropathIndex propathIndex;
+  private String rcodeState = "";
 
   public OpenEdgeSettings(Configuration config, FileSystem fileSystem, SonarRuntime runtime) {
     this.config = config;
@@ -275,57 +278,55 @@ public class OpenEdgeSettings {
     if (config.getBoolean(Constants.SKIP_RCODE).orElse(false))
       return;
 
-    AtomicInteger numClasses = new AtomicInteger(0);
-    AtomicInteger numMethods = new AtomicInteger(0);
-    AtomicInteger numProperties = new AtomicInteger(0);
-    // Multi-threaded pool
-    long currTime = System.currentTimeMillis();
-    AtomicInteger numRCode = new AtomicInteger(0);
-    ExecutorService service = Executors.newFixedThreadPool(4);
-    for (Path binDir : binariesDirs) {
-      Files.fileTraverser().depthFirstPreOrder(binDir.toFile()).forEach(f -> {
-        if (f.getName().endsWith(".r")) {
-          numRCode.incrementAndGet();
-          service.submit(() -> {
-            ITypeInfo info = parseRCode(f);
-            if (info != null) {
-              numClasses.incrementAndGet();
-              numMethods.addAndGet(info.getMethods().size());
-              numProperties.addAndGet(info.getProperties().size());
-              proparseSession.injectTypeInfo(info);
-            }
-          });
-        }
-      });
-    }
-
     // Include PL files in $DLC/gui
+    List<File> libraries = new ArrayList<>();
     String dlcInstallDir = config.get(Constants.DLC).orElse(null);
     boolean dlcInPropath = config.getBoolean(Constants.PROPATH_DLC).orElse(false);
     if (dlcInPropath && !Strings.isNullOrEmpty(dlcInstallDir)) {
       File dlc = new File(dlcInstallDir);
-
       Files.fileTraverser().depthFirstPreOrder(new File(dlc, "gui")).forEach(f -> {
         if (f.getName().endsWith(".pl")) {
-          service.submit(() -> parseLibrary(f));
+          libraries.add(f);
         }
       });
     }
-    
+
+    RCodeScanner scanner = new RCodeScanner(getRCodeThreads(), proparseSession::injectTypeInfo);
+    // Only used in analysis cache fingerprint
+    scanner.setComputeState(useAnalysisCache());
+    TypeInfoCatalog catalog = null;
+    File catalogFile = new File(fileSystem.baseDir(), TYPE_INFO_CATALOG);
+    if (config.getBoolean(Constants.RCODE_CATALOG).orElse(false)) {
+      catalog = readTypeInfoCatalog(catalogFile);
+      scanner.setCatalog(catalog);
+    }
+    boolean complete = scanner.scan(binariesDirs, libraries, config.getLong(Constants.RCODE_TIMEOUT).orElse(10L));
+    rcodeState = complete ? scanner.getState() : "incomplete-" + System.currentTimeMillis();
+    if ((catalog != null) && complete) {
+      try {
+        catalog.write(catalogFile);
+      } catch (IOException caught) {
+        LOG.error("Unable to write type info catalog " + catalogFile.getAbsolutePath(), caught);
+      }
+    }
+  }
+
+  private static TypeInfoCatalog readTypeInfoCatalog(File file) {
     try {
-      service.shutdown();
-      service.awaitTermination(10, TimeUnit.MINUTES);
-    } catch (InterruptedException caught) {
-      LOG.error("Unable to finish parsing rcode...", caught);
+      TypeInfoCatalog catalog = TypeInfoCatalog.read(file);
+      LOG.info("Type info catalog {} - {} entries", file.getAbsolutePath(), catalog.getLoadedSize());
+      return catalog;
+    } catch (IOException caught) {
+      LOG.warn("Unable to read type info catalog {}, all rcode will be read - {}", file.getAbsolutePath(),
+          caught.getMessage());
+      return new TypeInfoCatalog();
     }
-    LOG.info("{} RCode read in {} ms - {} classes - {} methods - {} properties", numRCode.get(),
-        System.currentTimeMillis() - currTime, numClasses.get(), numMethods.get(), numProperties.get());
   }
 
   private ITypeInfo parseRCode(File file) {
-    try (FileInputStream fis = new FileInputStream(file)) {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
       LOG.debug("Parsing rcode {}", file.getAbsolutePath());
-      RCodeInfo rci = new RCodeInfo(fis);
+      RCodeInfo rci = new RCodeInfo(channel);
       if (rci.isClass()) {
         return rci.getTypeInfo();
       }
@@ -336,23 +337,6 @@ public class OpenEdgeSettings {
     return null;
   }
 
-  private void parseLibrary(File lib) {
-    LOG.debug("Parsing PL " + lib.getAbsolutePath());
-    PLReader pl = new PLReader(lib);
-    for (FileEntry entry : pl.getFileList()) {
-      if (entry.getFileName().endsWith(".r")) {
-        try {
-          RCodeInfo rci = new RCodeInfo(pl.getInputStream(entry));
-          if (rci.isClass()) {
-            proparseSession.injectTypeInfo(rci.getTypeInfo());
-          }
-        } catch (InvalidRCodeException | IOException caught) {
-          LOG.error("Unable to open file " + entry.getFileName() + " in PL " + lib.getAbsolutePath(), caught);
-        }
-      }
-    }
-  }
-
   public File getSonarLintXrefDir() {
     return fileSystem.resolvePath(config.get(Constants.SLINT_XREF).orElse(""));
   }
@@ -361,6 +345,14 @@ public class OpenEdgeSettings {
     return new File(binariesDirs.get(0).toFile(), ".pct");
   }
 
+  /**
+   * @return Hash of rcode found in build directories, or empty string if build directories were not scanned or if
+   *         analysis cache is disabled
+   */
+  public String getRCodeState() {
+    return rcodeState;
+  }
+
   public List<Path> getBinariesDirs() {
     return binariesDirs;
   }
@@ -372,6 +364,21 @@ public class OpenEdgeSettings {
   public boolean displayStackTraceOnError() {
     return config.getBoolean(Constants.PROPARSE_ERROR_STACKTRACE).orElse(true);
   }
+
+  /**
+   * @return Number of threads used to read rcode from build directories, at least 1
+   */
+  public int getRCodeThreads() {
+    return Math.max(1, config.getInt(Constants.RCODE_THREADS).orElse(Runtime.getRuntime().availableProcessors()));
+  }
+
+  /**
+   * @return Number of threads used to parse files, at least 1. Parallel parsing is only used on SonarQube
+   */
+  public int getProparseThreads() {
+    return Math.max(1, config.getInt(Constants.PROPARSE_THREADS).orElse(1));
+  }
+
   /**
    * Returns true if method should be skipped by CPD engine
    * 
@@ -461,6 +468,46 @@ public class OpenEdgeSettings {
     return "";
   }
 
+  /**
+   * @return True if analysis results have to be kept on disk and reused for unchanged files
+   */
+  public boolean useAnalysisCache() {
+    return config.getBoolean(Constants.ANALYSIS_CACHE).orElse(false);
+  }
+
+  /**
+   * @return Dump files listed in sonar.oe.databases, without aliases
+   */
+  public List<File> getDatabaseFiles() {
+    List<File> list = new ArrayList<>();
+    for (String str : Splitter.on(',').trimResults().omitEmptyStrings().split(
+        config.get(Constants.DATABASES).orElse(""))) {
+      int colonPos = str.lastIndexOf(':');
+      list.add(fileSystem.resolvePath(colonPos <= 1 ? str : str.substring(0, colonPos)));
+    }
+    return list;
+  }
+
+  /**
+   * @return True if PROPATH lookups have to be resolved with an in-memory index
+   */
+  public boolean usePropathIndex() {
+    return config.getBoolean(Constants.PROPATH_INDEX).orElse(false);
+  }
+
+  /**
+   * @return Index of PROPATH content, or null if disabled
+   */
+  public PropathIndex getPropathIndex() {
+    if ((propathIndex == null) && usePropathIndex()) {
+      boolean ignoreCase = config.getBoolean(Constants.PROPATH_INDEX_IGNORE_CASE).orElse(false);
+      propathIndex = new PropathIndex(
+          propath.stream().map(File::getPath).collect(Collectors.toList()), ignoreCase);
+      LOG.info("PROPATH index : {} entries", propathIndex.size());
+    }
+    return propathIndex;
+  }
+
   /**
    * Returns absolute file name if found in work directory or in propath
    */
@@ -468,6 +515,18 @@ public class OpenEdgeSettings {
     if (new File(fileName).exists())
       return fileName;
 
+    PropathIndex index = getPropathIndex();
+    if ((index != null) && PropathIndex.accepts(fileName)) {
+      String clsName = fileName.replace('.', '/') + ".cls";
+      int stdEntry = index.lookupEntry(fileName);
+      int clsEntry = index.lookupEntry(clsName);
+      if ((stdEntry >= 0) && ((clsEntry < 0) || (stdEntry <= clsEntry)))
+        return index.lookup(fileName).getAbsolutePath();
+      if (clsEntry >= 0)
+        return index.lookup(clsName).getAbsolutePath();
+      return fileName;
+    }
+
     for (File file : propath) {
       File stdName = new File(file, fileName);
       if (stdName.exists())
@@ -587,6 +646,7 @@ public class OpenEdgeSettings {
         ppSettings.setCustomSkipXCode(skipXCode.get());
 
       proparseSession = new RefactorSession(ppSettings, sch, encoding());
+      proparseSession.setPropathIndex(getPropathIndex());
       proparseSession.injectTypeInfoCollection(ProgressClasses.getProgressClasses());
       if (runtime.getProduct() == SonarProduct.SONARQUBE) {
         // Parse entire build directory if not in SonarLint
@@ -597,6 +657,13 @@ public class OpenEdgeSettings {
     return proparseSession;
   }
 
+  /**
+   * Dump files parsed during this analysis
+   */
+  public DumpFileCache getDumpFileCache() {
+    return dumpFileCache;
+  }
+
   /**
    * Force usage of sonar.sourceEncoding property as SonarLint doesn't set correctly encoding
    */
@@ -632,15 +699,17 @@ public class OpenEdgeSettings {
       DatabaseDescription desc = null;
       if ((runtime.getProduct() == SonarProduct.SONARLINT) && (dfFile.lastModified() < serFile.lastModified())) {
         LOG.debug("SonarLint side, using serialized file");
-        try (InputStream is = new FileInputStream(serFile)) {
-          desc = DatabaseDescription.deserialize(is, dbName);
+        try {
+          // Heap buffer instead of a mapping, as mapped files stay locked on Windows and this one may be rewritten
+          desc = BinarySchema.read(ByteBuffer.wrap(Files.toByteArray(serFile)), dbName);
         } catch (IOException caught) {
-          LOG.error("Unable to deserialize from '" + serFile + "', deleting file", caught);
+          LOG.info("Unable to read serialized schema from '{}' ({}), deleting file", serFile, caught.getMessage());
           FileUtils.deleteQuietly(serFile);
         }
-      } else {
+      }
+      if (desc == null) {
         try {
-          desc = DumpFileUtils.getDatabaseDescription(fileSystem.resolvePath(str), dbName);
+          desc = dumpFileCache.get(dfFile, encoding()).getDatabaseDescription(dbName);
         } catch (IOException caught) {
           // Interrupt SonarLint analysis as this is the only way to have a notification for invalid DF file
           // By default, analysis log is not visible
@@ -653,7 +722,7 @@ public class OpenEdgeSettings {
         }
         if ((desc != null) && (runtime.getProduct() == SonarProduct.SONARLINT)) {
           try (OutputStream os = new FileOutputStream(serFile)) {
-            desc.serialize(os);
+            BinarySchema.write(desc, os);
           } catch (IOException caught) {
             LOG.error("Unable to serialize to '" + serFile + "'", caught);
           }
@@ -667,14 +736,21 @@ public class OpenEdgeSettings {
     return dbs;
   }
 
+  @SuppressWarnings("deprecation")
   private Collection<IDatabase> readSchemaFromProp2(Configuration config, FileSystem fileSystem) {
     Collection<IDatabase> dbs = new ArrayList<>();
     for (String str : Splitter.on(',').trimResults().omitEmptyStrings().split(
         config.get(Constants.SLINT_DATABASES).orElse(""))) {
       String dbName = FilenameUtils.getBaseName(str);
       LOG.debug("Parsing '{}' with db name {}", str, dbName);
-      try (InputStream is = new FileInputStream(new File(str))) {
-        dbs.add(new DatabaseWrapper(DatabaseDescription.deserialize(is, dbName)));
+      try {
+        // Files generated by external tools may still use the line-based format
+        ByteBuffer buffer = ByteBuffer.wrap(Files.toByteArray(new File(str)));
+        if (BinarySchema.accepts(buffer))
+          dbs.add(new DatabaseWrapper(BinarySchema.read(buffer, dbName)));
+        else
+          dbs.add(new DatabaseWrapper(
+              DatabaseDescription.deserialize(new ByteArrayInputStream(buffer.array()), dbName)));
       } catch (IOException caught) {
         LOG.error("Unable to deserialize from '" + str + "'", caught);
       }
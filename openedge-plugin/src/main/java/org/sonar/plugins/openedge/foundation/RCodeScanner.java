@@ -0,0 +1,313 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.foundation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+import com.google.common.hash.Hashing;
+
+import eu.rssw.pct.FileEntry;
+import eu.rssw.pct.PLReader;
+import eu.rssw.pct.RCodeInfo;
+import eu.rssw.pct.RCodeInfo.InvalidRCodeException;
+import eu.rssw.pct.TypeInfoCatalog;
+import eu.rssw.pct.elements.ITypeInfo;
+
+/**
+ * Read type information from all rcode in a set of directories. Directory walk and rcode parsing are both executed in a
+ * work-stealing pool: each directory is a task, and sub-directories are forked as new tasks. Failures are collected
+ * and reported once at the end of the scan. When a {@link TypeInfoCatalog} is set, only files not found in the catalog
+ * (or modified since then) are read.
+ */
+public class RCodeScanner {
+  private static final Logger LOG = Loggers.get(RCodeScanner.class);
+  private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+  private static final int MAX_REPORTED_FAILURES = 10;
+
+  private final int parallelism;
+  private final Consumer<ITypeInfo> consumer;
+
+  private TypeInfoCatalog catalog;
+  private boolean computeState;
+
+  private final AtomicInteger numRCode = new AtomicInteger();
+  private final AtomicInteger numFromCatalog = new AtomicInteger();
+  private final AtomicInteger numClasses = new AtomicInteger();
+  private final AtomicInteger numMethods = new AtomicInteger();
+  private final AtomicInteger numProperties = new AtomicInteger();
+  private final Queue<String> failures = new ConcurrentLinkedQueue<>();
+  private final AtomicLong nextProgress = new AtomicLong();
+  private final AtomicLong state = new AtomicLong();
+
+  /**
+   * @param parallelism Number of threads
+   * @param consumer Receives type info of each class. Has to be thread-safe
+   */
+  public RCodeScanner(int parallelism, Consumer<ITypeInfo> consumer) {
+    this.parallelism = Math.max(1, parallelism);
+    this.consumer = consumer;
+  }
+
+  /**
+   * Read type info from catalog when available, and store newly read rcode in catalog
+   */
+  public void setCatalog(TypeInfoCatalog catalog) {
+    this.catalog = catalog;
+  }
+
+  /**
+   * Compute state of rcode during scan, see {@link #getState()}. Disabled by default, as it requires file attributes
+   * of every rcode
+   */
+  public void setComputeState(boolean computeState) {
+    this.computeState = computeState;
+  }
+
+  /**
+   * Scan directories and procedure libraries, and wait for completion
+   * 
+   * @param directories Directories scanned recursively for .r files
+   * @param libraries Procedure libraries, every .r entry is read
+   * @param timeout Maximum time to wait, in minutes
+   * @return False if scan didn't finish in time
+   */
+  public boolean scan(Collection<Path> directories, Collection<File> libraries, long timeout) {
+    long startTime = System.nanoTime();
+    nextProgress.set(startTime + PROGRESS_INTERVAL);
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      List<ForkJoinTask<?>> tasks = new ArrayList<>();
+      for (Path dir : directories) {
+        if (Files.isDirectory(dir))
+          tasks.add(new DirectoryTask(dir));
+      }
+      for (File lib : libraries) {
+        tasks.add(ForkJoinTask.adapt(() -> parseLibrary(lib)));
+      }
+      ForkJoinTask<?> root = pool.submit(() -> ForkJoinTask.invokeAll(tasks));
+      root.get(timeout, TimeUnit.MINUTES);
+      return true;
+    } catch (TimeoutException caught) {
+      LOG.warn("RCode scan not finished after {} minutes, {} rcode read so far", timeout, numRCode.get());
+      return false;
+    } catch (InterruptedException caught) {
+      LOG.warn("RCode scan interrupted, {} rcode read so far", numRCode.get());
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException caught) {
+      LOG.error("Unable to finish parsing rcode", caught.getCause());
+      return false;
+    } finally {
+      pool.shutdownNow();
+      reportFailures();
+      LOG.info("{} RCode read in {} ms - {} classes - {} methods - {} properties", numRCode.get(),
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), numClasses.get(), numMethods.get(),
+          numProperties.get());
+      if (catalog != null)
+        LOG.info("{} files loaded from type info catalog", numFromCatalog.get());
+    }
+  }
+
+  public int getNumRCode() {
+    return numRCode.get();
+  }
+
+  public int getNumClasses() {
+    return numClasses.get();
+  }
+
+  public int getNumFromCatalog() {
+    return numFromCatalog.get();
+  }
+
+  /**
+   * @return Hash of path, size and last modification date of all rcode and procedure libraries found, independent of
+   *         the scan order. Empty string if state computation is disabled
+   */
+  public String getState() {
+    if (!computeState)
+      return "";
+    return String.format("%d-%016x", numRCode.get(), state.get());
+  }
+
+  public Collection<String> getFailures() {
+    return Collections.unmodifiableCollection(failures);
+  }
+
+  private void parseFile(Path file) {
+    numRCode.incrementAndGet();
+    updateState(file.toFile());
+    if (readFromCatalog(file.toFile())) {
+      progress();
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      RCodeInfo rci = new RCodeInfo(channel);
+      if (rci.isClass())
+        accept(rci.getTypeInfo());
+      if (catalog != null)
+        catalog.put(file.toFile(), Collections.singletonList(rci));
+    } catch (InvalidRCodeException | IOException | RuntimeException caught) {
+      failures.add(file.toString() + " - " + caught.getClass().getName());
+    }
+    progress();
+  }
+
+  private void parseLibrary(File lib) {
+    updateState(lib);
+    if (readFromCatalog(lib))
+      return;
+    LOG.debug("Parsing PL {}", lib.getAbsolutePath());
+    PLReader pl = new PLReader(lib);
+    List<RCodeInfo> list = new ArrayList<>();
+    boolean success = true;
+    for (FileEntry entry : pl.getFileList()) {
+      if (entry.getFileName().endsWith(".r")) {
+        numRCode.incrementAndGet();
+        try {
+          RCodeInfo rci = new RCodeInfo(pl.getByteBuffer(entry));
+          if (rci.isClass()) {
+            accept(rci.getTypeInfo());
+            list.add(rci);
+          }
+        } catch (InvalidRCodeException | IOException | RuntimeException caught) {
+          failures.add(entry.getFileName() + " in " + lib.getAbsolutePath() + " - " + caught.getClass().getName());
+          success = false;
+        }
+        progress();
+      }
+    }
+    // Libraries with invalid entries are not stored, so that failures are reported again
+    if ((catalog != null) && success)
+      catalog.put(lib, list);
+  }
+
+  private void updateState(File file) {
+    if (!computeState)
+      return;
+    state.addAndGet(Hashing.murmur3_128().newHasher().putString(file.getAbsolutePath(), StandardCharsets.UTF_8).putLong(
+        file.length()).putLong(file.lastModified()).hash().asLong());
+  }
+
+  private boolean readFromCatalog(File file) {
+    if (catalog == null)
+      return false;
+    List<ITypeInfo> list = catalog.get(file);
+    if (list == null)
+      return false;
+    numFromCatalog.incrementAndGet();
+    for (ITypeInfo info : list) {
+      // Type info is decoded on first use, so members are not counted
+      numClasses.incrementAndGet();
+      consumer.accept(info);
+    }
+    return true;
+  }
+
+  private void accept(ITypeInfo info) {
+    numClasses.incrementAndGet();
+    numMethods.addAndGet(info.getMethods().size());
+    numProperties.addAndGet(info.getProperties().size());
+    consumer.accept(info);
+  }
+
+  private void progress() {
+    long next = nextProgress.get();
+    long now = System.nanoTime();
+    if ((now - next >= 0) && nextProgress.compareAndSet(next, now + PROGRESS_INTERVAL)) {
+      LOG.info("{} rcode read - {} classes", numRCode.get(), numClasses.get());
+    }
+  }
+
+  private void reportFailures() {
+    if (failures.isEmpty())
+      return;
+    LOG.error("Unable to parse {} rcode - Please open issue on GitHub", failures.size());
+    int num = 0;
+    for (String str : failures) {
+      if (num++ < MAX_REPORTED_FAILURES)
+        LOG.error("  {}", str);
+      else
+        LOG.debug("  {}", str);
+    }
+  }
+
+  private class DirectoryTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Path dir;
+
+    DirectoryTask(Path dir) {
+      this.dir = dir;
+    }
+
+    @Override
+    protected void compute() {
+      List<DirectoryTask> subTasks = new ArrayList<>();
+      List<Path> files = new ArrayList<>();
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+        for (Path path : stream) {
+          if (Files.isDirectory(path))
+            subTasks.add(new DirectoryTask(path));
+          else if (path.getFileName().toString().endsWith(".r"))
+            files.add(path);
+        }
+      } catch (IOException caught) {
+        failures.add(dir.toString() + " - " + caught.getClass().getName());
+        return;
+      }
+      // Sub-directories are stolen by idle threads while files of this directory are read
+      for (DirectoryTask task : subTasks) {
+        task.fork();
+      }
+      for (Path file : files) {
+        parseFile(file);
+      }
+      for (DirectoryTask task : subTasks) {
+        task.join();
+      }
+    }
+  }
+}
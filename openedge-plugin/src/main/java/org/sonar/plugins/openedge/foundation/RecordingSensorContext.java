@@ -0,0 +1,389 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.foundation;
+
+import java.io.Serializable;
+
+import org.sonar.api.SonarRuntime;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputComponent;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.InputModule;
+import org.sonar.api.batch.fs.TextRange;
+import org.sonar.api.batch.measure.Metric;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.batch.rule.Severity;
+import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.coverage.NewCoverage;
+import org.sonar.api.batch.sensor.cpd.NewCpdTokens;
+import org.sonar.api.batch.sensor.error.NewAnalysisError;
+import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
+import org.sonar.api.batch.sensor.issue.NewIssue;
+import org.sonar.api.batch.sensor.issue.NewIssueLocation;
+import org.sonar.api.batch.sensor.measure.NewMeasure;
+import org.sonar.api.batch.sensor.symbol.NewSymbolTable;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.config.Settings;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.Version;
+import org.sonar.plugins.openedge.foundation.AnalysisRecord.CpdRecord;
+import org.sonar.plugins.openedge.foundation.AnalysisRecord.IssueRecord;
+import org.sonar.plugins.openedge.foundation.AnalysisRecord.LocationRecord;
+import org.sonar.plugins.openedge.foundation.AnalysisRecord.MeasureRecord;
+
+/**
+ * SensorContext forwarding everything to another context. Between {@link #startRecording()} and
+ * {@link #stopRecording()}, issues, measures and CPD tokens are also kept in an {@link AnalysisRecord}. Only to be used
+ * from the sensor thread.
+ */
+public class RecordingSensorContext implements SensorContext {
+  private final SensorContext context;
+  private AnalysisRecord record;
+
+  public RecordingSensorContext(SensorContext context) {
+    this.context = context;
+  }
+
+  public void startRecording() {
+    record = new AnalysisRecord();
+  }
+
+  public AnalysisRecord stopRecording() {
+    AnalysisRecord rec = record;
+    record = null;
+    return rec;
+  }
+
+  @SuppressWarnings("deprecation")
+  @Override
+  public Settings settings() {
+    return context.settings();
+  }
+
+  @Override
+  public Configuration config() {
+    return context.config();
+  }
+
+  @Override
+  public FileSystem fileSystem() {
+    return context.fileSystem();
+  }
+
+  @Override
+  public ActiveRules activeRules() {
+    return context.activeRules();
+  }
+
+  @Override
+  public InputModule module() {
+    return context.module();
+  }
+
+  @Override
+  public Version getSonarQubeVersion() {
+    return context.getSonarQubeVersion();
+  }
+
+  @Override
+  public SonarRuntime runtime() {
+    return context.runtime();
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return context.isCancelled();
+  }
+
+  @Override
+  public <G extends Serializable> NewMeasure<G> newMeasure() {
+    if (record == null)
+      return context.newMeasure();
+    return new RecordingMeasure<>(context.<G> newMeasure(), record, context.fileSystem());
+  }
+
+  @Override
+  public NewIssue newIssue() {
+    if (record == null)
+      return context.newIssue();
+    return new RecordingIssue(context.newIssue(), record, context.fileSystem());
+  }
+
+  @Override
+  public NewHighlighting newHighlighting() {
+    if (record != null)
+      record.setNotCacheable();
+    return context.newHighlighting();
+  }
+
+  @Override
+  public NewSymbolTable newSymbolTable() {
+    if (record != null)
+      record.setNotCacheable();
+    return context.newSymbolTable();
+  }
+
+  @Override
+  public NewCoverage newCoverage() {
+    if (record != null)
+      record.setNotCacheable();
+    return context.newCoverage();
+  }
+
+  @Override
+  public NewCpdTokens newCpdTokens() {
+    if (record == null)
+      return context.newCpdTokens();
+    return new RecordingCpdTokens(context.newCpdTokens(), record, context.fileSystem());
+  }
+
+  @Override
+  public NewAnalysisError newAnalysisError() {
+    if (record != null)
+      record.setNotCacheable();
+    return context.newAnalysisError();
+  }
+
+  @Override
+  public void addContextProperty(String key, String value) {
+    context.addContextProperty(key, value);
+  }
+
+  @Override
+  public void markForPublishing(InputFile inputFile) {
+    context.markForPublishing(inputFile);
+  }
+
+  /**
+   * @return Relative path of component, or null (and record is flagged) if component is not a file
+   */
+  private static String getPath(InputComponent component, AnalysisRecord record, FileSystem fs) {
+    if (component instanceof InputFile)
+      return InputFileUtils.getRelativePath((InputFile) component, fs);
+    record.setNotCacheable();
+    return null;
+  }
+
+  private static class RecordingMeasure<G extends Serializable> implements NewMeasure<G> {
+    private final NewMeasure<G> measure;
+    private final AnalysisRecord record;
+    private final FileSystem fs;
+    private final MeasureRecord rec = new MeasureRecord();
+
+    RecordingMeasure(NewMeasure<G> measure, AnalysisRecord record, FileSystem fs) {
+      this.measure = measure;
+      this.record = record;
+      this.fs = fs;
+    }
+
+    @Override
+    public NewMeasure<G> on(InputComponent component) {
+      measure.on(component);
+      rec.file = getPath(component, record, fs);
+      return this;
+    }
+
+    @Override
+    public NewMeasure<G> forMetric(Metric<G> metric) {
+      if (!AnalysisRecord.isKnownMetric(metric))
+        record.setNotCacheable();
+      rec.metricKey = metric.key();
+      measure.forMetric(metric);
+      return this;
+    }
+
+    @Override
+    public NewMeasure<G> withValue(G value) {
+      if (!AnalysisRecord.isSupportedValue(value))
+        record.setNotCacheable();
+      rec.value = value;
+      measure.withValue(value);
+      return this;
+    }
+
+    @Override
+    public void save() {
+      measure.save();
+      record.addMeasure(rec);
+    }
+  }
+
+  private static class RecordingIssue implements NewIssue {
+    private final NewIssue issue;
+    private final AnalysisRecord record;
+    private final FileSystem fs;
+    private final IssueRecord rec = new IssueRecord();
+
+    RecordingIssue(NewIssue issue, AnalysisRecord record, FileSystem fs) {
+      this.issue = issue;
+      this.record = record;
+      this.fs = fs;
+    }
+
+    @Override
+    public NewIssue forRule(RuleKey ruleKey) {
+      rec.ruleKey = ruleKey.toString();
+      issue.forRule(ruleKey);
+      return this;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public NewIssue effortToFix(Double effortToFix) {
+      rec.gap = effortToFix;
+      issue.effortToFix(effortToFix);
+      return this;
+    }
+
+    @Override
+    public NewIssue gap(Double gap) {
+      rec.gap = gap;
+      issue.gap(gap);
+      return this;
+    }
+
+    @Override
+    public NewIssue overrideSeverity(Severity severity) {
+      rec.severity = severity == null ? null : severity.name();
+      issue.overrideSeverity(severity);
+      return this;
+    }
+
+    @Override
+    public NewIssue at(NewIssueLocation primaryLocation) {
+      rec.primary = unwrap(primaryLocation);
+      issue.at(primaryLocation instanceof RecordingLocation ? ((RecordingLocation) primaryLocation).location
+          : primaryLocation);
+      return this;
+    }
+
+    @Override
+    public NewIssue addLocation(NewIssueLocation secondaryLocation) {
+      LocationRecord loc = unwrap(secondaryLocation);
+      if (loc != null)
+        rec.secondary.add(loc);
+      issue.addLocation(secondaryLocation instanceof RecordingLocation
+          ? ((RecordingLocation) secondaryLocation).location : secondaryLocation);
+      return this;
+    }
+
+    @Override
+    public NewIssue addFlow(Iterable<NewIssueLocation> flowLocations) {
+      // Flows are not recorded
+      record.setNotCacheable();
+      issue.addFlow(flowLocations);
+      return this;
+    }
+
+    @Override
+    public NewIssueLocation newLocation() {
+      return new RecordingLocation(issue.newLocation(), record, fs);
+    }
+
+    @Override
+    public void save() {
+      issue.save();
+      record.addIssue(rec);
+    }
+
+    private LocationRecord unwrap(NewIssueLocation location) {
+      if (location instanceof RecordingLocation)
+        return ((RecordingLocation) location).rec;
+      record.setNotCacheable();
+      return null;
+    }
+  }
+
+  private static class RecordingLocation implements NewIssueLocation {
+    private final NewIssueLocation location;
+    private final AnalysisRecord record;
+    private final FileSystem fs;
+    private final LocationRecord rec = new LocationRecord();
+
+    RecordingLocation(NewIssueLocation location, AnalysisRecord record, FileSystem fs) {
+      this.location = location;
+      this.record = record;
+      this.fs = fs;
+    }
+
+    @Override
+    public NewIssueLocation on(InputComponent component) {
+      rec.file = getPath(component, record, fs);
+      location.on(component);
+      return this;
+    }
+
+    @Override
+    public NewIssueLocation at(TextRange range) {
+      rec.range = AnalysisRecord.toArray(range);
+      location.at(range);
+      return this;
+    }
+
+    @Override
+    public NewIssueLocation message(String message) {
+      rec.message = message;
+      location.message(message);
+      return this;
+    }
+  }
+
+  private static class RecordingCpdTokens implements NewCpdTokens {
+    private final NewCpdTokens tokens;
+    private final AnalysisRecord record;
+    private final FileSystem fs;
+    private final CpdRecord rec = new CpdRecord();
+
+    RecordingCpdTokens(NewCpdTokens tokens, AnalysisRecord record, FileSystem fs) {
+      this.tokens = tokens;
+      this.record = record;
+      this.fs = fs;
+    }
+
+    @Override
+    public NewCpdTokens onFile(InputFile inputFile) {
+      rec.file = getPath(inputFile, record, fs);
+      tokens.onFile(inputFile);
+      return this;
+    }
+
+    @Override
+    public NewCpdTokens addToken(TextRange range, String image) {
+      tokens.addToken(range, image);
+      rec.ranges.add(AnalysisRecord.toArray(range));
+      rec.images.add(image);
+      return this;
+    }
+
+    @Override
+    public NewCpdTokens addToken(int startLine, int startLineOffset, int endLine, int endLineOffset, String image) {
+      tokens.addToken(startLine, startLineOffset, endLine, endLineOffset, image);
+      rec.ranges.add(new int[] {startLine, startLineOffset, endLine, endLineOffset});
+      rec.images.add(image);
+      return this;
+    }
+
+    @Override
+    public void save() {
+      tokens.save();
+      record.addCpdTokens(rec);
+    }
+  }
+}
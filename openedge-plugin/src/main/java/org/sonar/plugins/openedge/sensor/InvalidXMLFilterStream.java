@@ -29,40 +29,49 @@ import java.util.Set;
  * Those characters are used in ADM2 applications, and are hard-coded in some procedures.
  */
 public class InvalidXMLFilterStream extends FilterInputStream {
-  private final Set<Integer> bytes;
+  // Indexed by unsigned byte value
+  private final boolean[] skipped = new boolean[256];
 
+  /**
+   * @param skippedBytes Byte values to be discarded. Only values from 0 to 127 are used, so that UTF-8 multi-byte
+   *          sequences are never altered
+   */
   protected InvalidXMLFilterStream(Set<Integer> skippedBytes, InputStream in) {
     super(in);
-    this.bytes = skippedBytes;
+    for (int val : skippedBytes) {
+      if ((val >= 0) && (val < 0x80))
+        skipped[val] = true;
+    }
   }
 
   @Override
   public int read() throws IOException {
-    // Discard any 0x01, 0x02 and 0x04 character from the stream
-    int xx = super.read();
-    if ((xx == 0x01) || (xx == 0x02) || (xx == 0x04)) {
-      return read();
-    }
+    int xx;
+    do {
+      xx = super.read();
+    } while ((xx != -1) && skipped[xx]);
 
     return xx;
   }
 
   @Override
   public int read(byte[] b, int off, int len) throws IOException {
-    int xx = super.read(b, off, len);
-    int zz = off;
-    while (zz < off + xx) {
-      if (bytes.contains((int) b[zz])) {
-        // Shift all subsequent bytes by one position left
-        for (int zz2 = zz; zz2 < off + xx - 1; zz2++) {
-          b[zz2] = b[zz2 + 1];
-        }
-        // One less character read
-        xx--;
-      } else {
-        zz++;
+    int num;
+    do {
+      num = super.read(b, off, len);
+      if (num <= 0)
+        return num;
+      // Compact buffer in a single pass, by moving kept bytes to the left
+      int dest = off;
+      for (int zz = off; zz < off + num; zz++) {
+        byte val = b[zz];
+        if (!skipped[val & 0xFF])
+          b[dest++] = val;
       }
-    }
-    return xx;
+      num = dest - off;
+      // Never return 0 when bytes were read, as that means nothing can be read yet
+    } while (num == 0);
+
+    return num;
   }
-}
\ No newline at end of file
+}
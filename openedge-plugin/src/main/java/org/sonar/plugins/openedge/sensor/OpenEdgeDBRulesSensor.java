@@ -37,16 +37,17 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.plugins.openedge.api.Constants;
 import org.sonar.plugins.openedge.api.checks.OpenEdgeDumpFileCheck;
 import org.sonar.plugins.openedge.foundation.OpenEdgeComponents;
-
-import eu.rssw.antlr.database.DumpFileUtils;
+import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
 
 public class OpenEdgeDBRulesSensor implements Sensor {
   private static final Logger LOG = Loggers.get(OpenEdgeDBRulesSensor.class);
 
   // IoC
+  private final OpenEdgeSettings settings;
   private final OpenEdgeComponents components;
 
-  public OpenEdgeDBRulesSensor(OpenEdgeComponents components) {
+  public OpenEdgeDBRulesSensor(OpenEdgeSettings settings, OpenEdgeComponents components) {
+    this.settings = settings;
     this.components = components;
   }
 
@@ -71,7 +72,7 @@ public class OpenEdgeDBRulesSensor implements Sensor {
       try {
         LOG.debug("Generating ParseTree for dump file {}", file);
         long time = System.currentTimeMillis();
-        ParseTree tree = DumpFileUtils.getDumpFileParseTree(file.inputStream(), file.charset());
+        ParseTree tree = settings.getDumpFileCache().get(file).getParseTree();
         parseTime += (System.currentTimeMillis() - time);
 
         for (Map.Entry<ActiveRule, OpenEdgeDumpFileCheck> entry : components.getDumpFileRules().entrySet()) {
@@ -32,10 +32,10 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.plugins.openedge.api.Constants;
 import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
+import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
 
 import com.google.common.io.Files;
 
-import eu.rssw.antlr.database.DumpFileUtils;
 import eu.rssw.antlr.database.objects.DatabaseDescription;
 import eu.rssw.antlr.database.objects.Field;
 import eu.rssw.antlr.database.objects.Table;
@@ -43,6 +43,13 @@ import eu.rssw.antlr.database.objects.Table;
 public class OpenEdgeDBSensor implements Sensor {
   private static final Logger LOG = Loggers.get(OpenEdgeDBSensor.class);
 
+  // IoC
+  private final OpenEdgeSettings settings;
+
+  public OpenEdgeDBSensor(OpenEdgeSettings settings) {
+    this.settings = settings;
+  }
+
   @Override
   public void describe(SensorDescriptor descriptor) {
     descriptor.onlyOnLanguage(Constants.DB_LANGUAGE_KEY).name(getClass().getSimpleName());
@@ -61,7 +68,7 @@ public class OpenEdgeDBSensor implements Sensor {
       try {
         LOG.info("Analyzing {}", file);
 
-        DatabaseDescription desc = DumpFileUtils.getDatabaseDescription(file.inputStream(), file.charset(),
+        DatabaseDescription desc = settings.getDumpFileCache().get(file).getDatabaseDescription(
             Files.getNameWithoutExtension(file.filename()));
         sensorContext.newMeasure().on(file).forMetric((Metric) OpenEdgeMetrics.NUM_TABLES).withValue(
             desc.getTables().size()).save();
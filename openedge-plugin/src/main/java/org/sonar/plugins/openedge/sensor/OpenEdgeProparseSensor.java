@@ -30,16 +30,28 @@ import java.io.PrintWriter;
 import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 
 import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.BufferedTokenStream;
@@ -66,6 +78,8 @@ import org.prorefactor.proparse.antlr4.XCodedFileException;
 import org.prorefactor.refactor.RefactorSession;
 import org.prorefactor.treeparser.ParseUnit;
 import org.prorefactor.treeparser.TreeParserSymbolScope;
+import org.prorefactor.xref.XrefModel;
+import org.prorefactor.xref.XrefReader;
 import org.sonar.api.SonarProduct;
 import org.sonar.api.batch.fs.FilePredicates;
 import org.sonar.api.batch.fs.InputFile;
@@ -84,7 +98,11 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.plugins.openedge.api.Constants;
+import org.sonar.plugins.openedge.api.checks.NodeTypeDispatcher;
 import org.sonar.plugins.openedge.api.checks.OpenEdgeProparseCheck;
+import org.sonar.plugins.openedge.api.checks.OpenEdgeProparseNodeCheck;
+import org.sonar.plugins.openedge.foundation.AnalysisCache;
+import org.sonar.plugins.openedge.foundation.AnalysisRecord;
 import org.sonar.plugins.openedge.foundation.CPDCallback;
 import org.sonar.plugins.openedge.foundation.InputFileUtils;
 import org.sonar.plugins.openedge.foundation.OpenEdgeComponents;
@@ -92,13 +110,16 @@ import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
 import org.sonar.plugins.openedge.foundation.OpenEdgeProjectHelper;
 import org.sonar.plugins.openedge.foundation.OpenEdgeRulesDefinition;
 import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
+import org.sonar.plugins.openedge.foundation.RecordingSensorContext;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.io.ByteSource;
 import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import antlr.ANTLRException;
 import antlr.RecognitionException;
@@ -114,7 +135,7 @@ public class OpenEdgeProparseSensor implements Sensor {
 
   // Internal use
   private final DocumentBuilderFactory dbFactory;
-  private final DocumentBuilder dBuilder;
+  private final ThreadLocal<DocumentBuilder> dBuilder = ThreadLocal.withInitial(this::createDocumentBuilder);
 
   // File statistics
   private int numFiles;
@@ -133,6 +154,13 @@ public class OpenEdgeProparseSensor implements Sensor {
   private Map<Integer, Long> decisionTime = new HashMap<>();
   private Map<Integer, Long> maxK = new HashMap<>();
 
+  // Checks sharing a single tree traversal, and their rule keys
+  private NodeTypeDispatcher dispatcher;
+  private final List<String> dispatcherRuleKeys = new ArrayList<>();
+
+  // Results of previous analysis
+  private AnalysisCache cache;
+
   // Proparse debug
   List<String> debugFiles = new ArrayList<>();
 
@@ -141,13 +169,31 @@ public class OpenEdgeProparseSensor implements Sensor {
     this.components = components;
 
     this.dbFactory = DocumentBuilderFactory.newInstance();
-    try {
-      this.dBuilder = dbFactory.newDocumentBuilder();
-    } catch (ParserConfigurationException caught) {
-      throw new IllegalStateException(caught);
+    // Fail early on invalid XML configuration
+    dBuilder.get();
+  }
+
+  /**
+   * DocumentBuilder objects are not thread-safe, so one instance is created per thread
+   */
+  private DocumentBuilder createDocumentBuilder() {
+    synchronized (dbFactory) {
+      try {
+        return dbFactory.newDocumentBuilder();
+      } catch (ParserConfigurationException caught) {
+        throw new IllegalStateException(caught);
+      }
     }
   }
 
+  /**
+   * @return Analysis cache used during last execution, or null if cache was not enabled
+   */
+  @Nullable
+  AnalysisCache getAnalysisCache() {
+    return cache;
+  }
+
   @Override
   public void describe(SensorDescriptor descriptor) {
     descriptor.onlyOnLanguage(Constants.LANGUAGE_KEY).name(getClass().getSimpleName());
@@ -160,53 +206,199 @@ public class OpenEdgeProparseSensor implements Sensor {
     settings.init();
     components.initializeLicense(context);
     components.initializeChecks(context);
+    List<OpenEdgeProparseNodeCheck> nodeChecks = new ArrayList<>();
     for (Map.Entry<ActiveRule, OpenEdgeProparseCheck> entry : components.getProparseRules().entrySet()) {
       ruleTime.put(entry.getKey().ruleKey().toString(), 0L);
+      if (entry.getValue() instanceof OpenEdgeProparseNodeCheck) {
+        nodeChecks.add((OpenEdgeProparseNodeCheck) entry.getValue());
+        dispatcherRuleKeys.add(entry.getKey().ruleKey().toString());
+      }
     }
+    dispatcher = new NodeTypeDispatcher(nodeChecks);
     RefactorSession session = settings.getProparseSession();
+    if (settings.useAnalysisCache() && (context.runtime().getProduct() == SonarProduct.SONARQUBE)) {
+      cache = createAnalysisCache(context);
+    }
 
     FilePredicates predicates = context.fileSystem().predicates();
-    for (InputFile file : context.fileSystem().inputFiles(
-        predicates.and(predicates.hasLanguage(Constants.LANGUAGE_KEY), predicates.hasType(Type.MAIN)))) {
-      LOG.debug("Parsing {}", file);
-      numFiles++;
-
-      if (settings.isIncludeFile(file.filename())) {
-        parseIncludeFile(context, file, session);
-      } else {
-        parseMainFile(context, file, session);
-        if (settings.useANTLR4())
-          testAntlr4(context, file, session);
+    Iterable<InputFile> files = context.fileSystem().inputFiles(
+        predicates.and(predicates.hasLanguage(Constants.LANGUAGE_KEY), predicates.hasType(Type.MAIN)));
+    // Type info is injected during analysis in SonarLint, so files are always parsed one by one
+    int numThreads = settings.getProparseThreads();
+    if ((numThreads > 1) && (context.runtime().getProduct() == SonarProduct.SONARQUBE)) {
+      parseFilesInParallel(context, files, session, numThreads);
+    } else {
+      for (InputFile file : files) {
+        saveResult(context, parseFile(context, file, session), session);
       }
     }
 
     executeAnalytics(context);
-    logStatistics();
+    logStatistics(session);
     generateProparseDebugIndex();
   }
 
-  @SuppressWarnings({"unchecked", "rawtypes"})
-  private void parseIncludeFile(SensorContext context, InputFile file, RefactorSession session) {
+  @SuppressWarnings("deprecation")
+  private AnalysisCache createAnalysisCache(SensorContext context) {
+    List<String> rules = new ArrayList<>();
+    for (ActiveRule rule : components.getProparseRules().keySet()) {
+      rules.add(rule.ruleKey() + new TreeMap<>(rule.params()).toString());
+    }
+    String fingerprint = AnalysisCache.fingerprint(context.settings().getProperties(), settings.getDatabaseFiles(),
+        settings.getRCodeState(), rules, getClass().getPackage().getImplementationVersion());
+    File dir = new File(context.fileSystem().baseDir(), AnalysisCache.DEFAULT_DIRECTORY);
+    LOG.info("Using analysis cache in {}", dir.getAbsolutePath());
+
+    return new AnalysisCache(dir, fingerprint, settings.getProparseSession()::findFile3);
+  }
+
+  /**
+   * Files are parsed by a pool of threads, but results are consumed in the same order as in the sequential analysis, so
+   * that issues, measures and statistics are only saved from the current thread. The number of pending results is
+   * bounded in order to limit memory usage.
+   */
+  private void parseFilesInParallel(SensorContext context, Iterable<InputFile> files, RefactorSession session,
+      int numThreads) {
+    LOG.info("Parsing files with {} threads", numThreads);
+    ExecutorService service = Executors.newFixedThreadPool(numThreads,
+        new ThreadFactoryBuilder().setNameFormat("proparse-%d").setDaemon(true).build());
+    Deque<Future<FileParseResult>> pending = new ArrayDeque<>();
+    try {
+      for (InputFile file : files) {
+        pending.add(service.submit(() -> parseFile(context, file, session)));
+        if (pending.size() >= numThreads * 2) {
+          saveResult(context, waitFor(pending.poll()), session);
+        }
+      }
+      while (!pending.isEmpty()) {
+        saveResult(context, waitFor(pending.poll()), session);
+      }
+    } catch (InterruptedException caught) {
+      Thread.currentThread().interrupt();
+      LOG.error("Proparse analysis interrupted", caught);
+    } finally {
+      service.shutdownNow();
+    }
+  }
+
+  private static FileParseResult waitFor(Future<FileParseResult> future) throws InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException caught) {
+      Throwables.throwIfUnchecked(caught.getCause());
+      throw new IllegalStateException(caught.getCause());
+    }
+  }
+
+  /**
+   * Thread-safe part of the analysis. Nothing is saved in the SensorContext from this method.
+   */
+  private FileParseResult parseFile(SensorContext context, InputFile file, RefactorSession session) {
+    LOG.debug("Parsing {}", file);
+    FileParseResult result = new FileParseResult(file, settings.isIncludeFile(file.filename()));
+    if (result.includeFile) {
+      parseIncludeFile(context, result, session);
+    } else if ((cache != null) && !settings.useANTLR4()) {
+      // Proparse flat files are generated from the tree, so cache is only written (and never read) with ANTLR4 enabled
+      result.cached = cache.get(InputFileUtils.getRelativePath(file, context.fileSystem()), file);
+      if (result.cached == null)
+        parseMainFile(context, result, session);
+    } else {
+      parseMainFile(context, result, session);
+    }
+    return result;
+  }
+
+  /**
+   * Always executed from the sensor thread, in input files order
+   */
+  private void saveResult(SensorContext context, FileParseResult result, RefactorSession session) {
+    numFiles++;
+    if (result.includeFile) {
+      saveIncludeFile(context, result);
+      return;
+    }
+    if (result.cached != null) {
+      replayMainFile(context, result.cached);
+    } else if (cache != null) {
+      saveAndRecordMainFile(context, result);
+    } else {
+      saveMainFile(context, result);
+    }
+    if (settings.useANTLR4())
+      testAntlr4(context, result.file, session);
+  }
+
+  private void replayMainFile(SensorContext context, AnalysisRecord rec) {
+    if (rec.hasXref())
+      numXREF++;
+    if (rec.hasListing())
+      numListings++;
+    rec.replay(context);
+    ncLocs += rec.getNcloc();
+  }
+
+  /**
+   * Everything saved by the sensor and the checks is recorded, and then stored in the cache
+   */
+  private void saveAndRecordMainFile(SensorContext context, FileParseResult result) {
+    RecordingSensorContext recorder = components.getChecksContext();
+    int prevNcLocs = ncLocs;
+    recorder.startRecording();
+    try {
+      saveMainFile(recorder, result);
+    } finally {
+      AnalysisRecord rec = recorder.stopRecording();
+      if ((result.failure == null) && rec.isCacheable()) {
+        rec.setNcloc(ncLocs - prevNcLocs);
+        rec.setXref(result.xref);
+        rec.setListing(result.listing);
+        // Include file names as referenced in source code, so that propath resolution is checked again
+        Set<String> includes = new LinkedHashSet<>();
+        for (int zz = 1; !result.unit.getIncludeFileName(zz).isEmpty(); zz++) {
+          includes.add(result.unit.getIncludeFileName(zz));
+        }
+        List<File> deps = new ArrayList<>();
+        deps.add(settings.getXrefFile(result.file));
+        deps.add(settings.getListingFile(result.file));
+        deps.removeIf(Objects::isNull);
+        cache.put(InputFileUtils.getRelativePath(result.file, context.fileSystem()), result.file, includes, deps, rec);
+      }
+    }
+  }
+
+  private void parseIncludeFile(SensorContext context, FileParseResult result, RefactorSession session) {
     long startTime = System.currentTimeMillis();
-    ParseUnit lexUnit = null;
     try {
-      lexUnit = new ParseUnit(InputFileUtils.getInputStream(file),
-          InputFileUtils.getRelativePath(file, context.fileSystem()), session);
+      ParseUnit lexUnit = new ParseUnit(InputFileUtils.getInputStream(result.file),
+          InputFileUtils.getRelativePath(result.file, context.fileSystem()), session);
       lexUnit.lexAndGenerateMetrics();
-    } catch (UncheckedIOException caught) {
+      result.unit = lexUnit;
+    } catch (UncheckedIOException | ProparseRuntimeException caught) {
+      result.failure = caught;
+      return;
+    }
+    result.parseTime = System.currentTimeMillis() - startTime;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private void saveIncludeFile(SensorContext context, FileParseResult result) {
+    InputFile file = result.file;
+    if (result.failure instanceof UncheckedIOException) {
       numFailures++;
-      if (caught.getCause() instanceof XCodedFileException) {
+      if (result.failure.getCause() instanceof XCodedFileException) {
         LOG.error("Unable to generate file metrics for xcode'd file '{}", file);
       } else {
-        LOG.error("Unable to generate file metrics for file '" + file + "'", caught);
+        LOG.error("Unable to generate file metrics for file '" + file + "'", result.failure);
       }
       return;
-    } catch (ProparseRuntimeException caught) {
-      LOG.error("Unable to generate file metrics for file '" + file + "'", caught);
+    } else if (result.failure != null) {
+      LOG.error("Unable to generate file metrics for file '" + file + "'", result.failure);
       return;
     }
-    updateParseTime(System.currentTimeMillis() - startTime);
+    updateParseTime(result.parseTime);
 
+    ParseUnit lexUnit = result.unit;
     if (lexUnit.getMetrics() != null) {
       // Saving LOC and COMMENTS metrics
       context.newMeasure().on(file).forMetric((Metric) CoreMetrics.NCLOC).withValue(
@@ -217,41 +409,55 @@ public class OpenEdgeProparseSensor implements Sensor {
     }
   }
 
-  private Document parseXREF(File xrefFile) {
-    Document doc = null;
+  private XrefModel parseXREF(File xrefFile, FileParseResult result) {
+    XrefModel model = null;
     if ((xrefFile != null) && xrefFile.exists()) {
       LOG.debug("Parsing XML XREF file {}", xrefFile.getAbsolutePath());
       try (InputStream inpStream = new FileInputStream(xrefFile)) {
         long startTime = System.currentTimeMillis();
-         doc = dBuilder.parse(
+        model = XrefReader.read(
             settings.useXrefFilter() ? new InvalidXMLFilterStream(settings.getXrefBytes(), inpStream) : inpStream);
-        xmlParseTime += (System.currentTimeMillis() - startTime);
-        numXREF++;
-      } catch (SAXException | IOException caught) {
+        result.xmlParseTime = System.currentTimeMillis() - startTime;
+        result.xref = true;
+      } catch (XMLStreamException | IOException caught) {
         LOG.error("Unable to parse XREF file " + xrefFile.getAbsolutePath(), caught);
       }
     }
-    return doc;
+    return model;
   }
 
-  private void parseMainFile(SensorContext context, InputFile file, RefactorSession session) {
-    Document doc = null;
+  /**
+   * DOM tree of XREF file, only built when a rule asks for it
+   */
+  private Document parseXREFDocument(File xrefFile) {
+    try (InputStream inpStream = new FileInputStream(xrefFile)) {
+      return dBuilder.get().parse(
+          settings.useXrefFilter() ? new InvalidXMLFilterStream(settings.getXrefBytes(), inpStream) : inpStream);
+    } catch (SAXException | IOException caught) {
+      LOG.error("Unable to parse XREF file " + xrefFile.getAbsolutePath(), caught);
+      return null;
+    }
+  }
+
+  private void parseMainFile(SensorContext context, FileParseResult result, RefactorSession session) {
+    InputFile file = result.file;
+    File xrefFile = null;
     if (context.runtime().getProduct() == SonarProduct.SONARQUBE) {
-      doc = parseXREF(settings.getXrefFile(file));
+      xrefFile = settings.getXrefFile(file);
     } else if (context.runtime().getProduct() == SonarProduct.SONARLINT) {
-      doc = parseXREF(settings.getSonarlintXrefFile(file));
+      xrefFile = settings.getSonarlintXrefFile(file);
       settings.parseHierarchy(file);
     }
+    XrefModel xrefModel = parseXREF(xrefFile, result);
 
     File listingFile = settings.getListingFile(file);
-    List<Integer> trxBlocks = new ArrayList<>();
     if ((listingFile != null) && listingFile.exists() && (listingFile.getAbsolutePath().indexOf(' ') == -1)) {
       try {
         ListingParser parser = new ListingParser(listingFile, InputFileUtils.getRelativePath(file, context.fileSystem()));
         for (CodeBlock block : parser.getTransactionBlocks()) {
-          trxBlocks.add(block.getLineNumber());
+          result.trxBlocks.add(block.getLineNumber());
         }
-        numListings++;
+        result.listing = true;
       } catch (IOException caught) {
         LOG.error("Unable to parse listing file for " + file, caught);
       }
@@ -259,34 +465,98 @@ public class OpenEdgeProparseSensor implements Sensor {
       LOG.debug("Listing file for '{}' not found or contains space character - Was looking for '{}'", file,
           listingFile);
     }
-    context.newMeasure().on(file).forMetric((Metric) OpenEdgeMetrics.TRANSACTIONS).withValue(
-        Joiner.on(",").join(trxBlocks)).save();
-    context.newMeasure().on(file).forMetric((Metric) OpenEdgeMetrics.NUM_TRANSACTIONS).withValue(
-        trxBlocks.size()).save();
 
-    ParseUnit unit = null;
     long startTime = System.currentTimeMillis();
-
     try {
-      unit = new ParseUnit(InputFileUtils.getInputStream(file), InputFileUtils.getRelativePath(file, context.fileSystem()), session);
+      ParseUnit unit = new ParseUnit(InputFileUtils.getInputStream(file), InputFileUtils.getRelativePath(file, context.fileSystem()), session);
       unit.treeParser01();
-      unit.attachXref(doc);
-      unit.attachTransactionBlocks(trxBlocks);
+      if (xrefModel != null) {
+        File xrefDocFile = xrefFile;
+        unit.attachXrefModel(xrefModel);
+        unit.attachLazyXref(() -> parseXREFDocument(xrefDocFile));
+      }
+      unit.attachTransactionBlocks(result.trxBlocks);
       unit.attachTypeInfo(session.getTypeInfo(unit.getRootScope().getClassName()));
-      updateParseTime(System.currentTimeMillis() - startTime);
-    } catch (UncheckedIOException caught) {
+      result.unit = unit;
+    } catch (RuntimeException | ANTLRException caught) {
+      result.failure = caught;
+      return;
+    }
+    result.parseTime = System.currentTimeMillis() - startTime;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private void saveMainFile(SensorContext context, FileParseResult result) {
+    InputFile file = result.file;
+    if (result.xref) {
+      numXREF++;
+      xmlParseTime += result.xmlParseTime;
+    }
+    if (result.listing) {
+      numListings++;
+    }
+    context.newMeasure().on(file).forMetric((Metric) OpenEdgeMetrics.TRANSACTIONS).withValue(
+        Joiner.on(",").join(result.trxBlocks)).save();
+    context.newMeasure().on(file).forMetric((Metric) OpenEdgeMetrics.NUM_TRANSACTIONS).withValue(
+        result.trxBlocks.size()).save();
+
+    if (result.failure != null) {
+      reportParseFailure(context, file, result.failure);
+      return;
+    }
+    updateParseTime(result.parseTime);
+
+    ParseUnit unit = result.unit;
+    if (settings.useANTLR4())
+      generateProparseFlatFiles(unit.getTopNode(), unit.getSupport(), false, InputFileUtils.getRelativePath(file, context.fileSystem()));
+
+    if (context.runtime().getProduct() == SonarProduct.SONARQUBE) {
+      computeCpd(context, file, unit);
+      computeSimpleMetrics(context, file, unit);
+      computeCommonMetrics(context, file, unit);
+      computeComplexity(context, file, unit);
+    }
+
+    if (settings.useProparseDebug()) {
+      generateProparseDebugFile(file, unit);
+    }
+
+    try {
+      for (Map.Entry<ActiveRule, OpenEdgeProparseCheck> entry : components.getProparseRules().entrySet()) {
+        if (entry.getValue() instanceof OpenEdgeProparseNodeCheck)
+          continue;
+        LOG.debug("ActiveRule - Internal key {} - Repository {} - Rule {}", entry.getKey().internalKey(),
+            entry.getKey().ruleKey().repository(), entry.getKey().ruleKey().rule());
+        long startTime = System.currentTimeMillis();
+        entry.getValue().sensorExecute(file, unit);
+        ruleTime.put(entry.getKey().ruleKey().toString(),
+            ruleTime.get(entry.getKey().ruleKey().toString()) + System.currentTimeMillis() - startTime);
+      }
+      if (!dispatcher.isEmpty()) {
+        dispatcher.dispatch(file, unit);
+        for (int zz = 0; zz < dispatcherRuleKeys.size(); zz++) {
+          ruleTime.merge(dispatcherRuleKeys.get(zz), dispatcher.getElapsedTime(zz), Long::sum);
+        }
+      }
+    } catch (RuntimeException caught) {
+      LOG.error("Error during rule execution for " + file, caught);
+    }
+  }
+
+  private void reportParseFailure(SensorContext context, InputFile file, Exception failure) {
+    if (failure instanceof UncheckedIOException) {
       numFailures++;
-      if ((caught.getCause() != null) && (caught.getCause() instanceof XCodedFileException)) {
-        XCodedFileException cause = (XCodedFileException) caught.getCause();
+      if ((failure.getCause() != null) && (failure.getCause() instanceof XCodedFileException)) {
+        XCodedFileException cause = (XCodedFileException) failure.getCause();
         LOG.error("Unable to parse {} - Can't read xcode'd file {}", file, cause.getFileName());
-      } else if ((caught.getCause() != null) && (caught.getCause() instanceof IncludeFileNotFoundException)) {
-        IncludeFileNotFoundException cause = (IncludeFileNotFoundException) caught.getCause();
+      } else if ((failure.getCause() != null) && (failure.getCause() instanceof IncludeFileNotFoundException)) {
+        IncludeFileNotFoundException cause = (IncludeFileNotFoundException) failure.getCause();
         LOG.error("Unable to parse {} - Can't find include file '{}' from '{}'", file, cause.getIncludeName(), cause.getFileName());
       } else {
-        LOG.error("Unable to parse " + file + " - IOException was caught - Please report this issue", caught);
+        LOG.error("Unable to parse " + file + " - IOException was caught - Please report this issue", failure);
       }
-      return;
-    } catch (RecognitionException caught) {
+    } else if (failure instanceof RecognitionException) {
+      RecognitionException caught = (RecognitionException) failure;
       LOG.error("Error during code parsing for " + file + " at position " + caught.getFilename() + ":"
           + caught.getLine() + ":" + caught.getColumn(), (settings.displayStackTraceOnError() ? caught : null));
       numFailures++;
@@ -320,41 +590,12 @@ public class OpenEdgeProparseSensor implements Sensor {
         issue.at(loc);
         issue.save();
       }
-
-      return;
-    } catch (RuntimeException | ANTLRException caught) {
-      LOG.error("Error during code parsing for " + InputFileUtils.getRelativePath(file, context.fileSystem()), caught);
+    } else {
+      LOG.error("Error during code parsing for " + InputFileUtils.getRelativePath(file, context.fileSystem()), failure);
       numFailures++;
       NewIssue issue = context.newIssue();
       issue.forRule(RuleKey.of(Constants.STD_REPOSITORY_KEY, OpenEdgeRulesDefinition.PROPARSE_ERROR_RULEKEY)).at(
-          issue.newLocation().on(file).message(Strings.nullToEmpty(caught.getMessage()))).save();
-      return;
-    }
-    if (settings.useANTLR4())
-      generateProparseFlatFiles(unit.getTopNode(), unit.getSupport(), false, InputFileUtils.getRelativePath(file, context.fileSystem()));
-
-    if (context.runtime().getProduct() == SonarProduct.SONARQUBE) {
-      computeCpd(context, file, unit);
-      computeSimpleMetrics(context, file, unit);
-      computeCommonMetrics(context, file, unit);
-      computeComplexity(context, file, unit);
-    }
-
-    if (settings.useProparseDebug()) {
-      generateProparseDebugFile(file, unit);
-    }
-
-    try {
-      for (Map.Entry<ActiveRule, OpenEdgeProparseCheck> entry : components.getProparseRules().entrySet()) {
-        LOG.debug("ActiveRule - Internal key {} - Repository {} - Rule {}", entry.getKey().internalKey(),
-            entry.getKey().ruleKey().repository(), entry.getKey().ruleKey().rule());
-        startTime = System.currentTimeMillis();
-        entry.getValue().sensorExecute(file, unit);
-        ruleTime.put(entry.getKey().ruleKey().toString(),
-            ruleTime.get(entry.getKey().ruleKey().toString()) + System.currentTimeMillis() - startTime);
-      }
-    } catch (RuntimeException caught) {
-      LOG.error("Error during rule execution for " + file, caught);
+          issue.newLocation().on(file).message(Strings.nullToEmpty(failure.getMessage()))).save();
     }
   }
 
@@ -396,13 +637,17 @@ public class OpenEdgeProparseSensor implements Sensor {
     }
   }
 
-  private void logStatistics() {
+  private void logStatistics(RefactorSession session) {
     LOG.info("{} files proparse'd, {} XML files, {} listing files, {} failure(s), {} NCLOCs", numFiles, numXREF,
         numListings, numFailures, ncLocs);
     LOG.info("AST Generation | time={} ms", parseTime);
     LOG.info("XML Parsing    | time={} ms", xmlParseTime);
     LOG.info("AST4Generation | time={} ms", parse4Time);
     LOG.info("AST4Tree       | time={} ms", parse4Tree);
+    LOG.info("Include cache  | hits={} misses={}", session.getIncludeCache().getHitCount(),
+        session.getIncludeCache().getMissCount());
+    if (cache != null)
+      LOG.info("Analysis cache | hits={} misses={}", cache.getHits(), cache.getMisses());
     // Sort entries by rule name
     ruleTime.entrySet().stream().sorted(
         (Entry<String, Long> obj1, Entry<String, Long> obj2) -> obj1.getKey().compareTo(obj2.getKey())).forEach(
@@ -658,4 +903,26 @@ public class OpenEdgeProparseSensor implements Sensor {
     context.newMeasure().on(file).forMetric((Metric) OpenEdgeMetrics.COMPLEXITY).withValue(complexityWithInc).save();
   }
 
+  /**
+   * Output of {@link #parseFile(SensorContext, InputFile, RefactorSession)}, consumed by
+   * {@link #saveResult(SensorContext, FileParseResult, RefactorSession)}
+   */
+  private static class FileParseResult {
+    private final InputFile file;
+    private final boolean includeFile;
+    private final List<Integer> trxBlocks = new ArrayList<>();
+    private ParseUnit unit;
+    private AnalysisRecord cached;
+    private Exception failure;
+    private long parseTime;
+    private long xmlParseTime;
+    private boolean xref;
+    private boolean listing;
+
+    public FileParseResult(InputFile file, boolean includeFile) {
+      this.file = file;
+      this.includeFile = includeFile;
+    }
+  }
+
 }
@@ -19,11 +19,13 @@
  */
 package org.sonar.plugins.openedge.checks;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.issue.Issue;
 import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.openedge.api.checks.NodeTypeDispatcher;
 import org.testng.Assert;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
@@ -66,4 +68,21 @@ public class ClumsySyntaxTest extends AbstractTest {
     Assert.assertEquals(issue1.primaryLocation().textRange().start().line(), 5);
   }
 
+  @Test
+  public void testDispatcher() {
+    InputFile inputFile = getInputFile("clumsy02.cls");
+    ClumsySyntax rule1 = new ClumsySyntax();
+    rule1.setContext(ruleKey, context, null);
+    ClumsySyntax rule2 = new ClumsySyntax();
+    rule2.setContext(ruleKey, context, null);
+    NodeTypeDispatcher dispatcher = new NodeTypeDispatcher(Arrays.asList(rule1, rule2));
+    dispatcher.dispatch(inputFile, getParseUnit(inputFile));
+
+    // Same issue reported once per check instance, with a single traversal
+    Assert.assertEquals(context.allIssues().size(), 2);
+    for (Issue issue : context.allIssues()) {
+      Assert.assertEquals(issue.primaryLocation().textRange().start().line(), 5);
+    }
+  }
+
 }
@@ -0,0 +1,203 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.foundation;
+
+import static org.sonar.plugins.openedge.utils.TestProjectSensorContext.BASEDIR;
+import static org.sonar.plugins.openedge.utils.TestProjectSensorContext.FILE1;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.batch.sensor.issue.NewIssue;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.openedge.utils.TestProjectSensorContext;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class AnalysisCacheTest {
+
+  @Test
+  public void testRecordAndReplay() throws IOException {
+    SensorContextTester context = TestProjectSensorContext.createContext();
+    InputFile f1 = context.fileSystem().inputFile(context.fileSystem().predicates().hasRelativePath(FILE1));
+    AnalysisRecord record = record(context, f1);
+    Assert.assertTrue(record.isCacheable());
+    Assert.assertEquals(context.allIssues().size(), 1);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    record.write(new DataOutputStream(bytes));
+    AnalysisRecord record2 = AnalysisRecord.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    Assert.assertEquals(record2.getNumIssues(), 1);
+
+    SensorContextTester context2 = TestProjectSensorContext.createContext();
+    record2.replay(context2);
+    Assert.assertEquals(context2.measure(BASEDIR + ":" + FILE1, CoreMetrics.NCLOC_KEY).value(), Integer.valueOf(12));
+    Assert.assertEquals(context2.allIssues().size(), 1);
+    Assert.assertEquals(context2.allIssues().iterator().next().primaryLocation().message(), "Message");
+    Assert.assertEquals(context2.allIssues().iterator().next().primaryLocation().textRange().start().line(), 2);
+    Assert.assertEquals(context2.cpdTokens(BASEDIR + ":" + FILE1).size(), 1);
+  }
+
+  @Test
+  public void testInvalidation() throws IOException {
+    SensorContextTester context = TestProjectSensorContext.createContext();
+    InputFile f1 = context.fileSystem().inputFile(context.fileSystem().predicates().hasRelativePath(FILE1));
+    File dir = Files.createTempDirectory("oecache").toFile();
+    File incDir = Files.createTempDirectory("oeinc").toFile();
+    File inc = new File(incDir, "inc.i");
+    Files.write(inc.toPath(), "MESSAGE 'x'.".getBytes(StandardCharsets.UTF_8));
+    File xref = new File(dir, "test1.p.xref");
+    Function<String, File> propath = propath(incDir);
+
+    AnalysisRecord record = record(context, f1);
+    AnalysisCache cache = new AnalysisCache(dir, "fp1", propath);
+    cache.put(FILE1, f1, Collections.singletonList("inc.i"), Collections.singletonList(xref), record);
+    Assert.assertNotNull(cache.get(FILE1, f1));
+    Assert.assertNull(new AnalysisCache(dir, "fp2", propath).get(FILE1, f1));
+    Assert.assertNull(cache.get("src/procedures/test2.p", f1));
+
+    // Missing file created, dependencies are only hashed once per cache instance
+    Files.write(xref.toPath(), "<xref/>".getBytes(StandardCharsets.UTF_8));
+    Assert.assertNotNull(cache.get(FILE1, f1));
+    Assert.assertEquals(cache.getHits(), 2);
+    Assert.assertEquals(cache.getMisses(), 1);
+    AnalysisCache cache2 = new AnalysisCache(dir, "fp1", propath);
+    Assert.assertNull(cache2.get(FILE1, f1));
+    cache2.put(FILE1, f1, Collections.singletonList("inc.i"), Collections.singletonList(xref), record);
+    Assert.assertNotNull(cache2.get(FILE1, f1));
+
+    // Include file modified
+    Files.write(inc.toPath(), "MESSAGE 'y'.".getBytes(StandardCharsets.UTF_8));
+    AnalysisCache cache3 = new AnalysisCache(dir, "fp1", propath);
+    Assert.assertNull(cache3.get(FILE1, f1));
+    Assert.assertEquals(cache3.getHits(), 0);
+    Assert.assertEquals(cache3.getMisses(), 1);
+  }
+
+  @Test
+  public void testIncludeOverlay() throws IOException {
+    SensorContextTester context = TestProjectSensorContext.createContext();
+    InputFile f1 = context.fileSystem().inputFile(context.fileSystem().predicates().hasRelativePath(FILE1));
+    File dir = Files.createTempDirectory("oecache").toFile();
+    File incDir1 = Files.createTempDirectory("oeinc").toFile();
+    File incDir2 = Files.createTempDirectory("oeinc").toFile();
+    Files.write(new File(incDir2, "inc.i").toPath(), "MESSAGE 'x'.".getBytes(StandardCharsets.UTF_8));
+    Function<String, File> propath = propath(incDir1, incDir2);
+
+    AnalysisRecord record = record(context, f1);
+    AnalysisCache cache = new AnalysisCache(dir, "fp1", propath);
+    cache.put(FILE1, f1, Arrays.asList("inc.i", "missing.i"), Collections.emptyList(), record);
+    Assert.assertNotNull(new AnalysisCache(dir, "fp1", propath).get(FILE1, f1));
+
+    // Same content in first propath entry, include file is now resolved to another file
+    Files.write(new File(incDir1, "inc.i").toPath(), "MESSAGE 'x'.".getBytes(StandardCharsets.UTF_8));
+    cache = new AnalysisCache(dir, "fp1", propath);
+    Assert.assertNull(cache.get(FILE1, f1));
+    cache.put(FILE1, f1, Arrays.asList("inc.i", "missing.i"), Collections.emptyList(), record);
+    Assert.assertNotNull(cache.get(FILE1, f1));
+
+    // Include file not found in previous analysis is now available
+    Files.write(new File(incDir2, "missing.i").toPath(), "MESSAGE 'y'.".getBytes(StandardCharsets.UTF_8));
+    Assert.assertNull(new AnalysisCache(dir, "fp1", propath).get(FILE1, f1));
+  }
+
+  @Test
+  public void testInvalidEntry() throws IOException {
+    SensorContextTester context = TestProjectSensorContext.createContext();
+    InputFile f1 = context.fileSystem().inputFile(context.fileSystem().predicates().hasRelativePath(FILE1));
+    File dir = Files.createTempDirectory("oecache").toFile();
+    AnalysisCache cache = new AnalysisCache(dir, "fp1", name -> null);
+    cache.put(FILE1, f1, Collections.emptyList(), Collections.emptyList(), record(context, f1));
+    File[] entries = dir.listFiles();
+    Assert.assertEquals(entries.length, 1);
+
+    // Truncated entry
+    byte[] content = Files.readAllBytes(entries[0].toPath());
+    Files.write(entries[0].toPath(), Arrays.copyOf(content, content.length - 10));
+    Assert.assertNull(cache.get(FILE1, f1));
+    // Java serialization stream
+    Files.write(entries[0].toPath(), new byte[] {(byte) 0xAC, (byte) 0xED, 0x00, 0x05});
+    Assert.assertNull(cache.get(FILE1, f1));
+    Assert.assertEquals(cache.getMisses(), 2);
+  }
+
+  @Test
+  public void testSupportedValues() {
+    Assert.assertTrue(AnalysisRecord.isSupportedValue(12));
+    Assert.assertTrue(AnalysisRecord.isSupportedValue(12L));
+    Assert.assertTrue(AnalysisRecord.isSupportedValue(1.5D));
+    Assert.assertTrue(AnalysisRecord.isSupportedValue("foo"));
+    Assert.assertTrue(AnalysisRecord.isSupportedValue(Boolean.TRUE));
+    Assert.assertFalse(AnalysisRecord.isSupportedValue(new Date()));
+    Assert.assertFalse(AnalysisRecord.isSupportedValue(null));
+  }
+
+  @Test
+  public void testFingerprint() throws IOException {
+    String fp1 = AnalysisCache.fingerprint(Collections.singletonMap("sonar.oe.propath", "a,b"),
+        Collections.emptyList(), "", Arrays.asList("rule1", "rule2"), "1.0");
+    Assert.assertEquals(AnalysisCache.fingerprint(Collections.singletonMap("sonar.oe.propath", "a,b"),
+        Collections.emptyList(), "", Arrays.asList("rule2", "rule1"), "1.0"), fp1);
+    Assert.assertNotEquals(AnalysisCache.fingerprint(Collections.singletonMap("sonar.oe.propath", "a"),
+        Collections.emptyList(), "", Arrays.asList("rule1", "rule2"), "1.0"), fp1);
+    // Non-OpenEdge properties are ignored
+    Map<String, String> props = new HashMap<>();
+    props.put("sonar.oe.propath", "a,b");
+    props.put("sonar.projectVersion", "2.0");
+    Assert.assertEquals(AnalysisCache.fingerprint(props, Collections.emptyList(), "", Arrays.asList("rule1", "rule2"),
+        "1.0"), fp1);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static AnalysisRecord record(SensorContextTester context, InputFile file) {
+    RecordingSensorContext recorder = new RecordingSensorContext(context);
+    recorder.startRecording();
+    recorder.newMeasure().on(file).forMetric((org.sonar.api.batch.measure.Metric) CoreMetrics.NCLOC).withValue(
+        12).save();
+    NewIssue issue = recorder.newIssue().forRule(RuleKey.of("rssw-oe", "rule1"));
+    issue.at(issue.newLocation().on(file).at(file.selectLine(2)).message("Message")).save();
+    recorder.newCpdTokens().onFile(file).addToken(1, 0, 1, 3, "foo").save();
+
+    return recorder.stopRecording();
+  }
+
+  /**
+   * Simplified propath resolution, first directory containing the file
+   */
+  private static Function<String, File> propath(File... dirs) {
+    return name -> Arrays.stream(dirs).map(dir -> new File(dir, name)).filter(File::isFile).findFirst().orElse(
+        null);
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.openedge.foundation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import eu.rssw.pct.TypeInfoCatalog;
+import eu.rssw.pct.elements.ITypeInfo;
+
+public class RCodeScannerTest {
+
+  @Test
+  public void testScan() {
+    Map<String, ITypeInfo> map = new ConcurrentHashMap<>();
+    RCodeScanner scanner = new RCodeScanner(2, info -> map.put(info.getTypeName(), info));
+    scanner.setComputeState(true);
+    Assert.assertTrue(scanner.scan(Arrays.asList(Paths.get("src/test/resources/project1/build"),
+        Paths.get("src/test/resources/project1/doesnotexist")), Collections.emptyList(), 1));
+    Assert.assertEquals(scanner.getNumRCode(), 4);
+    Assert.assertEquals(scanner.getNumClasses(), 1);
+    Assert.assertEquals(map.size(), 1);
+    Assert.assertTrue(map.containsKey("rssw.testclass"));
+    Assert.assertTrue(scanner.getFailures().isEmpty());
+
+    RCodeScanner scanner2 = new RCodeScanner(1, info -> { });
+    scanner2.setComputeState(true);
+    Assert.assertTrue(scanner2.scan(Collections.singletonList(Paths.get("src/test/resources/project1/build")),
+        Collections.emptyList(), 1));
+    Assert.assertEquals(scanner2.getState(), scanner.getState());
+    Assert.assertFalse(scanner.getState().isEmpty());
+  }
+
+  @Test
+  public void testState() throws IOException {
+    Path dir = Files.createTempDirectory("rcode");
+    Path rcode = dir.resolve("testclass.r");
+    Files.copy(new File("src/test/resources/project1/build/rssw/testclass.r").toPath(), rcode);
+    RCodeScanner scanner = new RCodeScanner(1, info -> { });
+    scanner.setComputeState(true);
+    Assert.assertTrue(scanner.scan(Collections.singletonList(dir), Collections.emptyList(), 1));
+
+    Files.setLastModifiedTime(rcode, FileTime.fromMillis(Files.getLastModifiedTime(rcode).toMillis() - 10000));
+    RCodeScanner scanner2 = new RCodeScanner(1, info -> { });
+    scanner2.setComputeState(true);
+    Assert.assertTrue(scanner2.scan(Collections.singletonList(dir), Collections.emptyList(), 1));
+    Assert.assertNotEquals(scanner2.getState(), scanner.getState());
+
+    // Disabled by default
+    RCodeScanner scanner3 = new RCodeScanner(1, info -> { });
+    Assert.assertTrue(scanner3.scan(Collections.singletonList(dir), Collections.emptyList(), 1));
+    Assert.assertEquals(scanner3.getNumRCode(), 1);
+    Assert.assertEquals(scanner3.getState(), "");
+  }
+
+  @Test
+  public void testFailures() throws IOException {
+    Path dir = Files.createTempDirectory("rcode");
+    Files.createDirectories(dir.resolve("sub"));
+    Files.write(dir.resolve("sub/invalid.r"), "Not an rcode".getBytes(StandardCharsets.UTF_8));
+    Files.copy(new File("src/test/resources/project1/build/rssw/testclass.r").toPath(), dir.resolve("testclass.r"));
+
+    RCodeScanner scanner = new RCodeScanner(1, info -> { });
+    Assert.assertTrue(scanner.scan(Collections.singletonList(dir), Collections.emptyList(), 1));
+    Assert.assertEquals(scanner.getNumRCode(), 2);
+    Assert.assertEquals(scanner.getNumClasses(), 1);
+    Assert.assertEquals(scanner.getFailures().size(), 1);
+    Assert.assertTrue(scanner.getFailures().iterator().next().contains("invalid.r"));
+  }
+
+  @Test
+  public void testCatalog() throws IOException {
+    Path dir = Files.createTempDirectory("rcode");
+    Files.copy(new File("src/test/resources/project1/build/rssw/testclass.r").toPath(), dir.resolve("testclass.r"));
+    Files.copy(new File("src/test/resources/project1/build/test1.r").toPath(), dir.resolve("test1.r"));
+    File catalogFile = dir.resolve("catalog.bin").toFile();
+
+    TypeInfoCatalog catalog = new TypeInfoCatalog();
+    RCodeScanner scanner = new RCodeScanner(1, info -> { });
+    scanner.setCatalog(catalog);
+    Assert.assertTrue(scanner.scan(Collections.singletonList(dir), Collections.emptyList(), 1));
+    Assert.assertEquals(scanner.getNumFromCatalog(), 0);
+    catalog.write(catalogFile);
+
+    Map<String, ITypeInfo> map = new ConcurrentHashMap<>();
+    RCodeScanner scanner2 = new RCodeScanner(1, info -> map.put(info.getTypeName(), info));
+    scanner2.setCatalog(TypeInfoCatalog.read(catalogFile));
+    Assert.assertTrue(scanner2.scan(Collections.singletonList(dir), Collections.emptyList(), 1));
+    Assert.assertEquals(scanner2.getNumRCode(), 2);
+    Assert.assertEquals(scanner2.getNumFromCatalog(), 2);
+    Assert.assertEquals(scanner2.getNumClasses(), 1);
+    Assert.assertNotNull(map.get("rssw.testclass"));
+    Assert.assertNotNull(map.get("rssw.testclass").getMethods());
+  }
+}
@@ -19,17 +19,25 @@
  */
 package org.sonar.plugins.openedge.foundation;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 
 import org.prorefactor.core.schema.IField;
 import org.prorefactor.core.schema.ITable;
 import org.prorefactor.core.schema.Schema;
 import org.sonar.plugins.openedge.api.objects.DatabaseWrapper;
+import org.sonar.plugins.openedge.api.objects.TableWrapper;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import eu.rssw.antlr.database.DumpFileUtils;
+import eu.rssw.antlr.database.objects.BinarySchema;
 import eu.rssw.antlr.database.objects.DatabaseDescription;
 
 public class TableWrapperTest {
@@ -69,4 +77,78 @@ public class TableWrapperTest {
     Assert.assertNotNull(tbl2);
   }
 
+  @Test
+  public void testUnqualifiedFieldIndex() throws IOException {
+    DatabaseDescription dbDesc = DumpFileUtils.getDatabaseDescription(new File("src/test/resources/project1/src/schema/sp2k.df"));
+    checkFieldIndex(new Schema(new DatabaseWrapper(dbDesc)));
+    checkFieldIndex(new Schema("src/test/resources/project1/src/schema/sp2k.cache"));
+  }
+
+  @Test
+  public void testFromBinarySchema() throws IOException {
+    DatabaseDescription dbDesc = DumpFileUtils.getDatabaseDescription(new File("src/test/resources/project1/src/schema/sp2k.df"));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinarySchema.write(dbDesc, out);
+    DatabaseWrapper wrapper = new DatabaseWrapper(BinarySchema.read(ByteBuffer.wrap(out.toByteArray()), "sp2k"));
+    Assert.assertEquals(wrapper.getTableSet().size(), dbDesc.getTables().size());
+    Schema sch = new Schema(wrapper);
+    ITable tbl = sch.lookupTable("customer");
+    Assert.assertNotNull(tbl);
+    Assert.assertEquals(tbl.lookupIndex("Name").getFields().size(), 1);
+    checkFieldIndex(sch);
+  }
+
+  @Test
+  public void testLazyFieldIndex() throws IOException {
+    DatabaseDescription dbDesc = DumpFileUtils.getDatabaseDescription(new File("src/test/resources/project1/src/schema/sp2k.df"));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinarySchema.write(dbDesc, out);
+    DatabaseWrapper wrapper = new DatabaseWrapper(BinarySchema.read(ByteBuffer.wrap(out.toByteArray()), "sp2k"));
+    Schema sch = new Schema(wrapper);
+
+    // Field index is built from field names, no table is built
+    Assert.assertNull(sch.lookupUnqualifiedField("nosuchfield"));
+    Assert.assertEquals(getBuiltTables(wrapper), Collections.emptyList());
+    // Only the table owning the field is built
+    IField fld = sch.lookupUnqualifiedField("monthquota");
+    Assert.assertNotNull(fld);
+    Assert.assertEquals(getBuiltTables(wrapper), Collections.singletonList(fld.getTable().getName()));
+  }
+
+  private static List<String> getBuiltTables(DatabaseWrapper wrapper) {
+    List<String> list = new ArrayList<>();
+    for (ITable tbl : wrapper.getTableSet()) {
+      if ((tbl instanceof TableWrapper) && ((TableWrapper) tbl).isBuilt())
+        list.add(tbl.getName());
+    }
+    return list;
+  }
+
+  private static void checkFieldIndex(Schema sch) {
+    Assert.assertNull(sch.lookupUnqualifiedField("nosuchfield"));
+    int numChecks = 0;
+    Iterator<ITable> iter = sch.getAllTablesIterator();
+    while (iter.hasNext()) {
+      for (IField fld : iter.next().getFieldPosOrder()) {
+        for (int len = 1; len <= fld.getName().length(); len++) {
+          String name = fld.getName().substring(0, len).toUpperCase();
+          Assert.assertSame(sch.lookupUnqualifiedField(name), linearLookup(sch, name), name);
+          numChecks++;
+        }
+      }
+    }
+    Assert.assertTrue(numChecks > 1000);
+  }
+
+  // Previous implementation of Schema#lookupUnqualifiedField()
+  private static IField linearLookup(Schema sch, String name) {
+    Iterator<ITable> iter = sch.getAllTablesIterator();
+    while (iter.hasNext()) {
+      IField fld = iter.next().lookupField(name);
+      if (fld != null)
+        return fld;
+    }
+    return null;
+  }
+
 }
@@ -19,20 +19,33 @@
  */
 package org.sonar.plugins.openedge.sensor;
 
+import static org.testng.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 
+import org.prorefactor.xref.XrefModel;
+import org.prorefactor.xref.XrefReader;
 import org.testng.annotations.Test;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
+import com.google.common.io.ByteStreams;
+
 public class InvalidXMLFilterStreamTest {
   private static final Set<Integer> bytes = new HashSet<>();
 
@@ -75,4 +88,59 @@ public class InvalidXMLFilterStreamTest {
     }
   }
 
+  @Test
+  public void testSingleByteRead() throws IOException {
+    byte[] input = {1, 'a', 2, 4, 'b', 3, (byte) 0xC3, (byte) 0xA9, 1};
+    try (InputStream stream = new InvalidXMLFilterStream(bytes, new ByteArrayInputStream(input))) {
+      assertEquals(stream.read(), 'a');
+      assertEquals(stream.read(), 'b');
+      assertEquals(stream.read(), 3);
+      assertEquals(stream.read(), 0xC3);
+      assertEquals(stream.read(), 0xA9);
+      assertEquals(stream.read(), -1);
+    }
+  }
+
+  @Test
+  public void testBufferRead() throws IOException {
+    byte[] input = {1, 1, 2, 'a', 2, 4, 'b', 'c', 4};
+    try (InputStream stream = new InvalidXMLFilterStream(bytes, new ByteArrayInputStream(input))) {
+      byte[] buf = new byte[10];
+      assertEquals(stream.read(buf, 1, 2), 1);
+      assertEquals(buf[1], 'a');
+      assertEquals(ByteStreams.toByteArray(stream), new byte[] {'b', 'c'});
+      assertEquals(stream.read(buf, 0, 10), -1);
+    }
+  }
+
+  @Test(timeOut = 60000)
+  public void testThroughput() throws IOException, XMLStreamException {
+    byte[] header = ("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+        + "<Cross-reference xmlns=\"urn:schemas-progress-com:XREFD:0004\">\n"
+        + "<Source File-name=\"src/adm2.p\" File-num=\"1\">\n").getBytes(StandardCharsets.UTF_8);
+    byte[] reference = ("<Reference Reference-type=\"STRING\" Object-identifier=\"a\u0001b\u0002c\u0004d\u0001\u0002\">\n"
+        + "<File-num>1</File-num>\n<Line-num>12</Line-num>\n<Object-context>\u0001\u0004</Object-context>\n"
+        + "<Access-mode></Access-mode>\n<Data-member-ref></Data-member-ref>\n<Temp-ref></Temp-ref>\n"
+        + "<Detail>Format \u00e9\u0004</Detail>\n<Is-static>false</Is-static>\n<Is-abstract>false</Is-abstract>\n"
+        + "</Reference>\n").getBytes(StandardCharsets.UTF_8);
+    byte[] footer = "</Source>\n</Cross-reference>\n".getBytes(StandardCharsets.UTF_8);
+
+    // 50 MB of XREF, with invalid characters in each reference
+    int numRefs = 50 * 1024 * 1024 / reference.length;
+    List<InputStream> parts = new ArrayList<>();
+    parts.add(new ByteArrayInputStream(header));
+    for (int zz = 0; zz < numRefs; zz++) {
+      parts.add(new ByteArrayInputStream(reference));
+    }
+    parts.add(new ByteArrayInputStream(footer));
+
+    try (InputStream stream = new InvalidXMLFilterStream(bytes,
+        new SequenceInputStream(Collections.enumeration(parts)))) {
+      XrefModel model = XrefReader.read(stream);
+      assertEquals(model.size(), numRefs);
+      assertEquals(model.getReferences().get(0).getObjectIdentifier(), "abcd");
+      assertEquals(model.getReferences().get(numRefs - 1).getDetail(), "Format \u00e9");
+    }
+  }
+
 }
@@ -22,18 +22,32 @@ package org.sonar.plugins.openedge.sensor;
 import static org.sonar.plugins.openedge.utils.TestProjectSensorContext.BASEDIR;
 import static org.sonar.plugins.openedge.utils.TestProjectSensorContext.DF1;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.sonar.api.SonarQubeSide;
+import org.sonar.api.SonarRuntime;
+import org.sonar.api.batch.fs.InputFile.Type;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.internal.SonarRuntimeImpl;
+import org.sonar.api.utils.Version;
+import org.sonar.plugins.openedge.api.Constants;
 import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
+import org.sonar.plugins.openedge.foundation.OpenEdgeSettings;
 import org.sonar.plugins.openedge.utils.TestProjectSensorContext;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 public class OpenEdgeDBSensorTest {
+  private static final SonarRuntime SQ_RUNTIME = SonarRuntimeImpl.forSonarQube(Version.parse("7.5"),
+      SonarQubeSide.SCANNER);
 
   @Test
   public void testSp2k() throws Exception {
     SensorContextTester context = TestProjectSensorContext.createContext();
-    OpenEdgeDBSensor sensor = new OpenEdgeDBSensor();
+    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.config(), context.fileSystem(), SQ_RUNTIME);
+    OpenEdgeDBSensor sensor = new OpenEdgeDBSensor(oeSettings);
     sensor.execute(context);
 
     Assert.assertEquals(context.measure(BASEDIR + ":" + DF1, OpenEdgeMetrics.NUM_TABLES_KEY).value(), 25,
@@ -42,4 +56,34 @@ public class OpenEdgeDBSensorTest {
         "Wrong number of sequences");
   }
 
+  @Test
+  public void testSharedDumpFile() throws Exception {
+    SensorContextTester context = TestProjectSensorContext.createContext();
+    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.config(), context.fileSystem(), SQ_RUNTIME);
+    new OpenEdgeDBSensor(oeSettings).execute(context);
+    Assert.assertEquals(oeSettings.getDumpFileCache().getMissCount(), 1);
+
+    // Same DF file is used for Proparse schema
+    oeSettings.init();
+    Assert.assertNotNull(oeSettings.getProparseSession().getSchema().lookupTable("sp2k", "customer"));
+    Assert.assertEquals(oeSettings.getDumpFileCache().getMissCount(), 1);
+    Assert.assertEquals(oeSettings.getDumpFileCache().getHitCount(), 1);
+  }
+
+  @Test
+  public void testUnsavedContent() throws Exception {
+    // Content of InputFile differs from file on disk (such as unsaved editor content in SonarLint)
+    String content = "ADD TABLE \"Test\"\n  AREA \"Schema Area\"\n  DUMP-NAME \"test\"\n\n"
+        + "ADD FIELD \"Fld1\" OF \"Test\" AS character\n  FORMAT \"x(8)\"\n  ORDER 10\n\n"
+        + ".\nPSC\ncpstream=ISO8859-1\n.\n0000000000\n";
+    SensorContextTester context = SensorContextTester.create(new File(BASEDIR));
+    context.fileSystem().add(new TestInputFileBuilder(BASEDIR, DF1).setLanguage(Constants.DB_LANGUAGE_KEY).setType(
+        Type.MAIN).setCharset(StandardCharsets.UTF_8).setContents(content).build());
+    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.config(), context.fileSystem(), SQ_RUNTIME);
+    new OpenEdgeDBSensor(oeSettings).execute(context);
+
+    Assert.assertEquals(context.measure(BASEDIR + ":" + DF1, OpenEdgeMetrics.NUM_TABLES_KEY).value(), 1);
+    Assert.assertEquals(context.measure(BASEDIR + ":" + DF1, OpenEdgeMetrics.NUM_FIELDS_KEY).value(), 1);
+  }
+
 }
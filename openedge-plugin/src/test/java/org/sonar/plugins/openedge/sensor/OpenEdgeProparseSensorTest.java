@@ -24,22 +24,34 @@ import static org.sonar.plugins.openedge.utils.TestProjectSensorContext.CLASS1;
 import static org.sonar.plugins.openedge.utils.TestProjectSensorContext.FILE1;
 import static org.sonar.plugins.openedge.utils.TestProjectSensorContext.FILE2;
 import static org.sonar.plugins.openedge.utils.TestProjectSensorContext.FILE3;
+import static org.sonar.plugins.openedge.utils.TestProjectSensorContext.FILE4;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
 import org.prorefactor.refactor.settings.ProparseSettings.OperatingSystem;
 import org.sonar.api.SonarQubeSide;
 import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.batch.sensor.issue.Issue;
+import org.sonar.api.batch.sensor.issue.IssueLocation;
 import org.sonar.api.internal.SonarRuntimeImpl;
+import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.Version;
 import org.sonar.plugins.openedge.api.CheckRegistration;
 import org.sonar.plugins.openedge.api.Constants;
 import org.sonar.plugins.openedge.checks.ClumsySyntax;
+import org.sonar.plugins.openedge.checks.LargeTransactionScope;
+import org.sonar.plugins.openedge.foundation.AnalysisCache;
 import org.sonar.plugins.openedge.foundation.BasicChecksRegistration;
 import org.sonar.plugins.openedge.foundation.OpenEdgeComponents;
 import org.sonar.plugins.openedge.foundation.OpenEdgeMetrics;
@@ -99,6 +111,91 @@ public class OpenEdgeProparseSensorTest {
         "Wrong number of transactions");
   }
 
+  @SuppressWarnings("deprecation")
+  @Test
+  public void testParallelAnalysis() throws Exception {
+    SensorContextTester context1 = TestProjectSensorContext.createContext();
+    OpenEdgeSettings oeSettings1 = new OpenEdgeSettings(context1.config(), context1.fileSystem(), SonarRuntimeImpl.forSonarQube(VERSION, SonarQubeSide.SCANNER));
+    new OpenEdgeProparseSensor(oeSettings1, new OpenEdgeComponents(null, null)).execute(context1);
+
+    SensorContextTester context2 = TestProjectSensorContext.createContext();
+    context2.settings().setProperty(Constants.PROPARSE_THREADS, "4");
+    OpenEdgeSettings oeSettings2 = new OpenEdgeSettings(context2.config(), context2.fileSystem(), SonarRuntimeImpl.forSonarQube(VERSION, SonarQubeSide.SCANNER));
+    new OpenEdgeProparseSensor(oeSettings2, new OpenEdgeComponents(null, null)).execute(context2);
+    assertEquals(oeSettings2.getProparseThreads(), 4);
+
+    for (String str : new String[] {FILE1, FILE2, FILE3, FILE4, CLASS1}) {
+      assertEquals(context2.measure(BASEDIR + ":" + str, CoreMetrics.NCLOC_KEY).value(),
+          context1.measure(BASEDIR + ":" + str, CoreMetrics.NCLOC_KEY).value());
+    }
+    assertEquals(context2.measure(BASEDIR + ":" + FILE1, OpenEdgeMetrics.NUM_TRANSACTIONS_KEY).value(), 1,
+        "Wrong number of transactions");
+    assertEquals(context2.cpdTokens(BASEDIR + ":" + FILE3).size(), context1.cpdTokens(BASEDIR + ":" + FILE3).size());
+    assertEquals(context2.cpdTokens(BASEDIR + ":" + CLASS1).size(), context1.cpdTokens(BASEDIR + ":" + CLASS1).size());
+  }
+
+  @Test
+  public void testAnalysisCache() throws Exception {
+    FileUtils.deleteQuietly(new File(BASEDIR, AnalysisCache.DEFAULT_DIRECTORY));
+    SensorContextTester context1 = createCacheContext();
+    OpenEdgeProparseSensor sensor1 = createCacheSensor(context1);
+    sensor1.execute(context1);
+    assertEquals(sensor1.getAnalysisCache().getHits(), 0);
+    // Four main files, include file test3.i is never cached
+    assertEquals(sensor1.getAnalysisCache().getMisses(), 4);
+    assertEquals(new File(BASEDIR, AnalysisCache.DEFAULT_DIRECTORY).list().length, 4);
+    assertTrue(context1.allIssues().size() > 0);
+
+    // Second analysis replays results from cache
+    SensorContextTester context2 = createCacheContext();
+    OpenEdgeProparseSensor sensor2 = createCacheSensor(context2);
+    sensor2.execute(context2);
+    assertEquals(sensor2.getAnalysisCache().getHits(), 4);
+    assertEquals(sensor2.getAnalysisCache().getMisses(), 0);
+
+    for (String str : new String[] {FILE1, FILE2, FILE3, FILE4, CLASS1}) {
+      assertEquals(context2.measure(BASEDIR + ":" + str, CoreMetrics.NCLOC_KEY).value(),
+          context1.measure(BASEDIR + ":" + str, CoreMetrics.NCLOC_KEY).value());
+    }
+    assertEquals(context2.measure(BASEDIR + ":" + FILE1, OpenEdgeMetrics.NUM_TRANSACTIONS_KEY).value(), 1);
+    assertEquals(context2.measure(BASEDIR + ":" + CLASS1, CoreMetrics.COMPLEXITY_KEY).value(),
+        context1.measure(BASEDIR + ":" + CLASS1, CoreMetrics.COMPLEXITY_KEY).value());
+    assertEquals(context2.cpdTokens(BASEDIR + ":" + FILE3).size(), context1.cpdTokens(BASEDIR + ":" + FILE3).size());
+    assertEquals(context2.cpdTokens(BASEDIR + ":" + CLASS1).size(), context1.cpdTokens(BASEDIR + ":" + CLASS1).size());
+    assertEquals(describeIssues(context2), describeIssues(context1));
+  }
+
+  @SuppressWarnings("deprecation")
+  private static SensorContextTester createCacheContext() throws Exception {
+    SensorContextTester context = TestProjectSensorContext.createContext();
+    context.settings().setProperty(Constants.ANALYSIS_CACHE, "true");
+    ActiveRulesBuilder rulesBuilder = new ActiveRulesBuilder();
+    rulesBuilder.create(RuleKey.of(Constants.STD_REPOSITORY_KEY, ClumsySyntax.class.getCanonicalName())).setLanguage(
+        Constants.LANGUAGE_KEY).activate();
+    rulesBuilder.create(RuleKey.of(Constants.STD_REPOSITORY_KEY,
+        LargeTransactionScope.class.getCanonicalName())).setLanguage(Constants.LANGUAGE_KEY).activate();
+    context.setActiveRules(rulesBuilder.build());
+    return context;
+  }
+
+  private static OpenEdgeProparseSensor createCacheSensor(SensorContextTester context) {
+    OpenEdgeSettings oeSettings = new OpenEdgeSettings(context.config(), context.fileSystem(), SonarRuntimeImpl.forSonarQube(VERSION, SonarQubeSide.SCANNER));
+    OpenEdgeComponents components = new OpenEdgeComponents(new CheckRegistration[] {new BasicChecksRegistration()},
+        null);
+    return new OpenEdgeProparseSensor(oeSettings, components);
+  }
+
+  private static List<String> describeIssues(SensorContextTester context) {
+    List<String> list = new ArrayList<>();
+    for (Issue issue : context.allIssues()) {
+      IssueLocation loc = issue.primaryLocation();
+      list.add(issue.ruleKey() + " " + loc.inputComponent().key() + ":"
+          + (loc.textRange() == null ? 0 : loc.textRange().start().line()) + " " + loc.message());
+    }
+    Collections.sort(list);
+    return list;
+  }
+
   @SuppressWarnings("deprecation")
   @Test
   public void testPreprocessorSettings01() throws Exception {
@@ -0,0 +1,49 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package eu.rssw.antlr.profiler;
+
+/**
+ * Number of calls between modules, as found in the call tree section of the profiler output. Module IDs are the ones
+ * from the output file, see {@link ProfilerSession#getFromAllModulesById(int)}.
+ */
+public interface CallTree {
+
+  void addCall(int callerId, int calleeId, int count);
+
+  /**
+   * @return Zero if no call
+   */
+  int getCallCount(int callerId, int calleeId);
+
+  /**
+   * Modules called by callerId, in ascending order of ID
+   */
+  void forEachCallee(int callerId, CallConsumer consumer);
+
+  /**
+   * Modules calling calleeId, in ascending order of ID
+   */
+  void forEachCaller(int calleeId, CallConsumer consumer);
+
+  @FunctionalInterface
+  interface CallConsumer {
+    void accept(int callerId, int calleeId, int count);
+  }
+}
@@ -19,46 +19,34 @@
  */
 package eu.rssw.antlr.profiler;
 
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class CoverageSession {
-  // Collection of files being covered
-  private final Collection<FileCoverage> files = new ArrayList<>();
-  
+  // Files being covered, in order of first appearance
+  private final Map<String, FileCoverage> files = new LinkedHashMap<>();
+
   public void addCoverage(Module module) {
-    FileCoverage file = getFile(module.getModuleObject());
-    if (file == null) {
-      file = new FileCoverage(module.getModuleObject());
-      files.add(file);
-    }
+    FileCoverage file = files.computeIfAbsent(module.getModuleObject(), FileCoverage::new);
     file.addLinesToCover(module.getLinesToCover());
     file.addCoveredLines(module.getCoveredLines());
   }
 
   public Collection<FileCoverage> getFiles() {
-    return files;
+    return files.values();
   }
 
   public void mergeWith(CoverageSession session) {
     for (FileCoverage f : session.getFiles()) {
-      FileCoverage file = getFile(f.getFileName()); 
-      if (file == null) {
-        file = new FileCoverage(f.getFileName());
-        files.add(file);
-      }
-      file.addLinesToCover(f.getLinesToCover());
-      file.addCoveredLines(f.getCoveredLines());
+      add(f);
     }
   }
 
-  private FileCoverage getFile(String name) {
-    for (FileCoverage file : files) {
-      if (file.getFileName().equals(name))
-        return file;
-    }
-
-    return null;
+  void add(FileCoverage f) {
+    FileCoverage file = files.computeIfAbsent(f.getFileName(), FileCoverage::new);
+    file.addLinesToCover(f.getLinesToCover());
+    file.addCoveredLines(f.getCoveredLines());
   }
 
 }
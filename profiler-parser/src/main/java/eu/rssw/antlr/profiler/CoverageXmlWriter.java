@@ -0,0 +1,147 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package eu.rssw.antlr.profiler;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes coverage data in the generic coverage format, one file at a time, so that memory usage doesn't depend on the
+ * size of the report. File names are resolved against the content of propath directories, and each directory is only
+ * listed once per instance, so that resolution doesn't cost one filesystem access per file and per propath entry. The
+ * same instance can be reused for reports with the same propath, as long as propath content doesn't change.
+ */
+public class CoverageXmlWriter {
+  private static final String INDENT = "    ";
+
+  private final Collection<File> propath;
+  private final Map<String, String> filePaths = new HashMap<>();
+  private final Map<File, Set<String>> directories = new HashMap<>();
+
+  public CoverageXmlWriter(Collection<File> propath) {
+    this.propath = propath;
+  }
+
+  public void write(CoverageSession session, File xmlFile) throws IOException {
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(xmlFile))) {
+      write(session, out);
+    }
+  }
+
+  /**
+   * Output stream is not closed
+   */
+  public void write(CoverageSession session, OutputStream out) throws IOException {
+    try {
+      XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+      writer.writeStartDocument("UTF-8", "1.0");
+      writer.writeCharacters("\n");
+      writer.writeStartElement("coverage");
+      writer.writeAttribute("version", "1");
+      for (FileCoverage file : session.getFiles()) {
+        writeFile(writer, file);
+      }
+      writer.writeCharacters("\n");
+      writer.writeEndElement();
+      writer.writeCharacters("\n");
+      writer.writeEndDocument();
+      writer.flush();
+      writer.close();
+    } catch (XMLStreamException caught) {
+      throw new IOException(caught);
+    }
+  }
+
+  private void writeFile(XMLStreamWriter writer, FileCoverage file) throws XMLStreamException {
+    writer.writeCharacters("\n" + INDENT);
+    if (file.getLinesToCover().isEmpty()) {
+      writer.writeEmptyElement("file");
+      writer.writeAttribute("path", getFilePath(file.getFileName()));
+      return;
+    }
+    writer.writeStartElement("file");
+    writer.writeAttribute("path", getFilePath(file.getFileName()));
+    LineSet linesToCover = file.getLinesToCover();
+    LineSet coveredLines = file.getCoveredLines();
+    for (int line = linesToCover.nextLine(0); line >= 0; line = linesToCover.nextLine(line + 1)) {
+      writer.writeCharacters("\n" + INDENT + INDENT);
+      writer.writeEmptyElement("lineToCover");
+      writer.writeAttribute("lineNumber", Integer.toString(line));
+      writer.writeAttribute("covered", Boolean.toString(coveredLines.contains(line)));
+    }
+    writer.writeCharacters("\n" + INDENT);
+    writer.writeEndElement();
+  }
+
+  /**
+   * Returns absolute file name if found in work directory or in propath
+   */
+  String getFilePath(String fileName) {
+    return filePaths.computeIfAbsent(fileName, this::resolve);
+  }
+
+  private String resolve(String fileName) {
+    if (new File(fileName).exists())
+      return fileName;
+
+    for (File file : propath) {
+      File stdName = new File(file, fileName);
+      File clsName = new File(file, fileName.replace('.', '/') + ".cls");
+      if (exists(stdName))
+        return stdName.getAbsolutePath();
+      if (exists(clsName))
+        return clsName.getAbsolutePath();
+    }
+
+    return fileName;
+  }
+
+  private boolean exists(File file) {
+    File parent = file.getParentFile();
+    if (parent == null)
+      return file.exists();
+    return directories.computeIfAbsent(parent, CoverageXmlWriter::list).contains(file.getName());
+  }
+
+  private static Set<String> list(File dir) {
+    String[] names = dir.list();
+    if (names == null)
+      return Collections.emptySet();
+    // Same behavior as File#exists() on case-insensitive filesystems
+    Set<String> set = File.separatorChar == '\\' ? new TreeSet<>(String.CASE_INSENSITIVE_ORDER) : new HashSet<>();
+    set.addAll(Arrays.asList(names));
+    return set;
+  }
+}
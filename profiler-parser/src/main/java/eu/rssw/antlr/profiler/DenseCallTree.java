@@ -0,0 +1,68 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package eu.rssw.antlr.profiler;
+
+/**
+ * Adjacency matrix, for sessions with a small number of modules
+ */
+class DenseCallTree implements CallTree {
+  private final int[][] matrix;
+
+  DenseCallTree(int size) {
+    matrix = new int[size][size];
+  }
+
+  int[][] getMatrix() {
+    return matrix;
+  }
+
+  @Override
+  public void addCall(int callerId, int calleeId, int count) {
+    matrix[callerId][calleeId] += count;
+  }
+
+  @Override
+  public int getCallCount(int callerId, int calleeId) {
+    if ((callerId < 0) || (callerId >= matrix.length) || (calleeId < 0) || (calleeId >= matrix.length))
+      return 0;
+    return matrix[callerId][calleeId];
+  }
+
+  @Override
+  public void forEachCallee(int callerId, CallConsumer consumer) {
+    if ((callerId < 0) || (callerId >= matrix.length))
+      return;
+    int[] row = matrix[callerId];
+    for (int zz = 0; zz < row.length; zz++) {
+      if (row[zz] != 0)
+        consumer.accept(callerId, zz, row[zz]);
+    }
+  }
+
+  @Override
+  public void forEachCaller(int calleeId, CallConsumer consumer) {
+    if ((calleeId < 0) || (calleeId >= matrix.length))
+      return;
+    for (int zz = 0; zz < matrix.length; zz++) {
+      if (matrix[zz][calleeId] != 0)
+        consumer.accept(zz, calleeId, matrix[zz][calleeId]);
+    }
+  }
+}
@@ -20,14 +20,11 @@
 package eu.rssw.antlr.profiler;
 
 import java.util.Collection;
-import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 public class FileCoverage {
   private String fileName;
-  private SortedSet<Integer> linesToCover = new TreeSet<>();
-  private SortedSet<Integer> coveredLines = new TreeSet<>();
+  private final LineSet linesToCover = new LineSet();
+  private final LineSet coveredLines = new LineSet();
 
   public FileCoverage(String fileName) {
     this.fileName = fileName;
@@ -52,14 +49,14 @@ public class FileCoverage {
   /**
    * Executable line numbers in the given file
    */
-  public Set<Integer> getLinesToCover() {
+  public LineSet getLinesToCover() {
     return linesToCover;
   }
 
   /**
    * Lines which have been executed in the given file
    */
-  public Set<Integer> getCoveredLines() {
+  public LineSet getCoveredLines() {
     return coveredLines;
   }
 }
@@ -0,0 +1,213 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package eu.rssw.antlr.profiler;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Set of line numbers backed by a {@link BitSet}, iterated in ascending order. Union and intersection with another
+ * LineSet are bitwise operations.
+ */
+public class LineSet extends AbstractSet<Integer> {
+  private final BitSet bits;
+  private final boolean readOnly;
+
+  public LineSet() {
+    this(new BitSet(), false);
+  }
+
+  public LineSet(LineSet set) {
+    this((BitSet) set.bits.clone(), false);
+  }
+
+  private LineSet(BitSet bits, boolean readOnly) {
+    this.bits = bits;
+    this.readOnly = readOnly;
+  }
+
+  /**
+   * @return Read-only view of this set, reflecting later changes. Modifications throw
+   *         {@link UnsupportedOperationException}
+   */
+  public static LineSet unmodifiable(LineSet set) {
+    return set.readOnly ? set : new LineSet(set.bits, true);
+  }
+
+  public boolean add(int line) {
+    checkWritable();
+    if (line < 0)
+      throw new IllegalArgumentException("Invalid line number " + line);
+    if (bits.get(line))
+      return false;
+    bits.set(line);
+    return true;
+  }
+
+  @Override
+  public boolean add(Integer line) {
+    return add(line.intValue());
+  }
+
+  public boolean contains(int line) {
+    return (line >= 0) && bits.get(line);
+  }
+
+  @Override
+  public boolean contains(Object obj) {
+    return (obj instanceof Integer) && contains(((Integer) obj).intValue());
+  }
+
+  @Override
+  public boolean remove(Object obj) {
+    checkWritable();
+    if (!contains(obj))
+      return false;
+    bits.clear((Integer) obj);
+    return true;
+  }
+
+  @Override
+  public int size() {
+    return bits.cardinality();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return bits.isEmpty();
+  }
+
+  @Override
+  public void clear() {
+    checkWritable();
+    bits.clear();
+  }
+
+  @Override
+  public boolean addAll(Collection<? extends Integer> coll) {
+    checkWritable();
+    if (!(coll instanceof LineSet))
+      return super.addAll(coll);
+    int size = bits.cardinality();
+    bits.or(((LineSet) coll).bits);
+    return bits.cardinality() != size;
+  }
+
+  @Override
+  public boolean retainAll(Collection<?> coll) {
+    checkWritable();
+    if (!(coll instanceof LineSet))
+      return super.retainAll(coll);
+    int size = bits.cardinality();
+    bits.and(((LineSet) coll).bits);
+    return bits.cardinality() != size;
+  }
+
+  /**
+   * @return New set with lines from both sets
+   */
+  public LineSet union(LineSet set) {
+    LineSet rslt = new LineSet(this);
+    rslt.bits.or(set.bits);
+    return rslt;
+  }
+
+  /**
+   * @return New set with lines found in both sets
+   */
+  public LineSet intersection(LineSet set) {
+    LineSet rslt = new LineSet(this);
+    rslt.bits.and(set.bits);
+    return rslt;
+  }
+
+  /**
+   * @return First line number greater than or equal to fromLine, or -1
+   */
+  public int nextLine(int fromLine) {
+    return bits.nextSetBit(fromLine);
+  }
+
+  /**
+   * Same as {@link #forEach(java.util.function.Consumer)}, without boxing
+   */
+  public void forEachLine(IntConsumer action) {
+    for (int line = bits.nextSetBit(0); line >= 0; line = bits.nextSetBit(line + 1)) {
+      action.accept(line);
+    }
+  }
+
+  public IntStream lines() {
+    return bits.stream();
+  }
+
+  @Override
+  public Iterator<Integer> iterator() {
+    return new Iterator<Integer>() {
+      private int next = bits.nextSetBit(0);
+      private int last = -1;
+
+      @Override
+      public boolean hasNext() {
+        return next >= 0;
+      }
+
+      @Override
+      public Integer next() {
+        if (next < 0)
+          throw new NoSuchElementException();
+        last = next;
+        next = bits.nextSetBit(next + 1);
+        return last;
+      }
+
+      @Override
+      public void remove() {
+        checkWritable();
+        if (last < 0)
+          throw new IllegalStateException();
+        bits.clear(last);
+        last = -1;
+      }
+    };
+  }
+
+  private void checkWritable() {
+    if (readOnly)
+      throw new UnsupportedOperationException("Read-only line set");
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj instanceof LineSet)
+      return bits.equals(((LineSet) obj).bits);
+    return super.equals(obj);
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+}
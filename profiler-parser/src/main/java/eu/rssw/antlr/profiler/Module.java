@@ -19,10 +19,7 @@
  */
 package eu.rssw.antlr.profiler;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 public class Module implements Comparable<Module> {
@@ -31,6 +28,8 @@ public class Module implements Comparable<Module> {
   private final String name;
   private final String debugListingFile;
   private final Set<LineData> lineData = new HashSet<>();
+  private final LineSet linesToCover = new LineSet();
+  private final LineSet coveredLines = new LineSet();
 
   public Module(int id, String name, String file, int crc) {
     this.id = id;
@@ -45,6 +44,8 @@ public class Module implements Comparable<Module> {
     this.debugListingFile = module.getFile();
     this.crc = module.getCrc();
     this.lineData.addAll(module.getLineData());
+    this.linesToCover.addAll(module.linesToCover);
+    this.coveredLines.addAll(module.coveredLines);
   }
 
   public int getId() {
@@ -104,34 +105,34 @@ public class Module implements Comparable<Module> {
   public void addLineSummary(LineData data) {
     if (data.getLineNumber() == 0)
       return;
-    lineData.add(data);
+    // First entry for a line number wins
+    if (linesToCover.add(data.getLineNumber())) {
+      lineData.add(data);
+      if (data.getExecCount() > 0)
+        coveredLines.add(data.getLineNumber());
+    }
   }
 
   public void addLineToCover(int lineNumber) {
     if (lineNumber == 0)
       return;
-    lineData.add(new LineData(lineNumber, 0, 0, 0));
+    if (linesToCover.add(lineNumber))
+      lineData.add(new LineData(lineNumber, 0, 0, 0));
   }
 
-  public List<Integer> getLinesToCover() {
-    List<Integer> rslt = new ArrayList<>();
-    for (LineData line : lineData) {
-      rslt.add(line.getLineNumber());
-    }
-    Collections.sort(rslt);
-
-    return rslt;
+  /**
+   * Executable line numbers, in ascending order. Read-only view, use {@link #addLineToCover(int)} or
+   * {@link #addLineSummary(LineData)} to keep line data in sync
+   */
+  public LineSet getLinesToCover() {
+    return LineSet.unmodifiable(linesToCover);
   }
 
-  public List<Integer> getCoveredLines() {
-    List<Integer> rslt = new ArrayList<>();
-    for (LineData line : lineData) {
-      if (line.getExecCount() > 0)
-        rslt.add(line.getLineNumber());
-    }
-    Collections.sort(rslt);
-
-    return rslt;
+  /**
+   * Executed line numbers, in ascending order. Read-only view
+   */
+  public LineSet getCoveredLines() {
+    return LineSet.unmodifiable(coveredLines);
   }
 
   @Override
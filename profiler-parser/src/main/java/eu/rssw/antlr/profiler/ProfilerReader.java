@@ -0,0 +1,280 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package eu.rssw.antlr.profiler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Line-oriented reader of profiler output. Each line is decoded and sent to the {@link ProfilerSession} as soon as it's
+ * read, so that memory usage doesn't depend on the size of the file. Tracing data, statement data and user data are not
+ * kept in the session, so they're only skipped, and reading stops as soon as no other section is needed.
+ */
+public class ProfilerReader {
+  private static final int BUFFER_SIZE = 65536;
+
+  /**
+   * Sections which can be skipped when they're not needed by the caller
+   */
+  public enum Section {
+    CALL_TREE, LINE_SUMMARY, COVERAGE
+  }
+
+  private final Set<Section> skipped;
+
+  public ProfilerReader() {
+    this(EnumSet.noneOf(Section.class));
+  }
+
+  public ProfilerReader(Set<Section> skipped) {
+    this.skipped = skipped.isEmpty() ? EnumSet.noneOf(Section.class) : EnumSet.copyOf(skipped);
+  }
+
+  public ProfilerSession read(Reader input) throws IOException {
+    Lines lines = new Lines(new BufferedReader(input, BUFFER_SIZE));
+    ProfilerSession session = readDescription(lines);
+    readModules(lines, session);
+
+    if (skipped.contains(Section.CALL_TREE)) {
+      lines.skipSection();
+    } else {
+      session.initializeCallTreeMatrix();
+      readCallTree(lines, session);
+    }
+    if (skipped.contains(Section.LINE_SUMMARY) && skipped.contains(Section.COVERAGE))
+      return session;
+
+    if (skipped.contains(Section.LINE_SUMMARY))
+      lines.skipSection();
+    else
+      readLineSummary(lines, session);
+    if (skipped.contains(Section.COVERAGE))
+      return session;
+
+    // Tracing data
+    lines.skipSection();
+    readCoverage(lines, session);
+
+    return session;
+  }
+
+  private static ProfilerSession readDescription(Lines lines) throws IOException {
+    String line = lines.nextRecord();
+    if (line == null)
+      throw new IOException("Empty profiler output");
+    Tokenizer tok = new Tokenizer(line, lines.lineNumber);
+    String version = tok.next();
+    String date = tok.next();
+    String desc = tok.next();
+    String time = tok.next();
+    String author = tok.next();
+    // JSON data (since v3) is not used
+    lines.skipSection();
+
+    return new ProfilerSession(desc, author, date + " " + time, version);
+  }
+
+  private static void readModules(Lines lines, ProfilerSession session) throws IOException {
+    List<Module> modules = new ArrayList<>();
+    String line;
+    while ((line = lines.nextRecordInSection()) != null) {
+      Tokenizer tok = new Tokenizer(line, lines.lineNumber);
+      int id = tok.nextInt();
+      String name = tok.next();
+      String file = tok.next();
+      modules.add(new Module(id, name, file, tok.nextInt()));
+    }
+    Collections.sort(modules);
+    for (Module m : modules) {
+      session.addModule(m);
+    }
+  }
+
+  private static void readCallTree(Lines lines, ProfilerSession session) throws IOException {
+    String line;
+    while ((line = lines.nextInSection()) != null) {
+      Tokenizer tok = new Tokenizer(line, lines.lineNumber);
+      int callerId = tok.nextInt();
+      // Caller line number is not used
+      tok.nextInt();
+      int calleeId = tok.nextInt();
+      session.addCall(callerId, calleeId, tok.nextInt());
+    }
+  }
+
+  private static void readLineSummary(Lines lines, ProfilerSession session) throws IOException {
+    String line;
+    while ((line = lines.nextInSection()) != null) {
+      Tokenizer tok = new Tokenizer(line, lines.lineNumber);
+      Module module = session.getModuleById(tok.nextInt());
+      if (module != null) {
+        int lineNumber = tok.nextInt();
+        int execCount = tok.nextInt();
+        float actualTime = tok.nextFloat();
+        module.addLineSummary(new LineData(lineNumber, execCount, actualTime, tok.nextFloat()));
+      }
+    }
+  }
+
+  private static void readCoverage(Lines lines, ProfilerSession session) throws IOException {
+    // One sub-section per module: header line, then one line number per line, and '.'
+    String line;
+    while ((line = lines.nextRecordInSection()) != null) {
+      Module module = session.getModuleById(new Tokenizer(line, lines.lineNumber).nextInt());
+      while ((line = lines.nextInSection()) != null) {
+        if (module != null)
+          module.addLineToCover(new Tokenizer(line, lines.lineNumber).nextInt());
+      }
+    }
+  }
+
+  private static boolean isEndOfSection(String line) {
+    return ".".equals(line.trim());
+  }
+
+  private static class Lines {
+    private final BufferedReader reader;
+    private int lineNumber;
+
+    Lines(BufferedReader reader) {
+      this.reader = reader;
+    }
+
+    String next() throws IOException {
+      String line = reader.readLine();
+      if (line != null)
+        lineNumber++;
+      return line;
+    }
+
+    /**
+     * Same as {@link #next()}, but quoted strings can span multiple lines
+     */
+    String nextRecord() throws IOException {
+      String line = next();
+      if (line == null)
+        return null;
+      StringBuilder sb = null;
+      int quotes = countQuotes(line);
+      while ((quotes & 1) == 1) {
+        String nextLine = next();
+        if (nextLine == null)
+          break;
+        if (sb == null)
+          sb = new StringBuilder(line);
+        sb.append('\n').append(nextLine);
+        quotes += countQuotes(nextLine);
+      }
+      return sb == null ? line : sb.toString();
+    }
+
+    /**
+     * @return Null at the end of the section or at the end of the file
+     */
+    String nextInSection() throws IOException {
+      String line = next();
+      return (line == null) || isEndOfSection(line) ? null : line;
+    }
+
+    String nextRecordInSection() throws IOException {
+      String line = nextRecord();
+      return (line == null) || isEndOfSection(line) ? null : line;
+    }
+
+    void skipSection() throws IOException {
+      String line;
+      do {
+        line = next();
+      } while ((line != null) && !isEndOfSection(line));
+    }
+
+    private static int countQuotes(String line) {
+      int count = 0;
+      for (int zz = 0; zz < line.length(); zz++) {
+        if (line.charAt(zz) == '"')
+          count++;
+      }
+      return count;
+    }
+  }
+
+  /**
+   * Space-separated values and double-quoted strings (without any escape character)
+   */
+  private static class Tokenizer {
+    private final String line;
+    private final int lineNumber;
+    private int pos;
+
+    Tokenizer(String line, int lineNumber) {
+      this.line = line;
+      this.lineNumber = lineNumber;
+    }
+
+    String next() throws IOException {
+      while ((pos < line.length()) && Character.isWhitespace(line.charAt(pos))) {
+        pos++;
+      }
+      if (pos >= line.length())
+        throw new IOException("Unexpected end of line " + lineNumber);
+      int start = pos;
+      if (line.charAt(pos) == '"') {
+        int end = line.indexOf('"', start + 1);
+        if (end == -1)
+          throw new IOException("Unterminated string on line " + lineNumber);
+        pos = end + 1;
+        return line.substring(start + 1, end);
+      }
+      while ((pos < line.length()) && !Character.isWhitespace(line.charAt(pos))) {
+        pos++;
+      }
+      return line.substring(start, pos);
+    }
+
+    int nextInt() throws IOException {
+      while ((pos < line.length()) && Character.isWhitespace(line.charAt(pos))) {
+        pos++;
+      }
+      int start = pos;
+      int val = 0;
+      while ((pos < line.length()) && (line.charAt(pos) >= '0') && (line.charAt(pos) <= '9')) {
+        val = (val * 10) + (line.charAt(pos++) - '0');
+      }
+      if ((pos == start) || ((pos < line.length()) && !Character.isWhitespace(line.charAt(pos))))
+        throw new IOException("Invalid number on line " + lineNumber + ": " + line);
+      return val;
+    }
+
+    float nextFloat() throws IOException {
+      String str = next();
+      try {
+        return Float.parseFloat(str);
+      } catch (NumberFormatException caught) {
+        throw new IOException("Invalid number on line " + lineNumber + ": " + line, caught);
+      }
+    }
+  }
+}
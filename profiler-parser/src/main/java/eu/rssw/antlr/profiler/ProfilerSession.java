@@ -23,15 +23,21 @@ import java.io.PrintStream;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 public class ProfilerSession {
   private static final DateFormat DATE_FORMATTER = new SimpleDateFormat("MM/dd/yyyy HH:mm:ss");
+  // Above this number of modules, call tree is not stored as a matrix (which would need 4 * n^2 bytes)
+  public static final int DENSE_CALL_TREE_LIMIT = 2048;
 
   // Description
   private final String description;
@@ -44,7 +50,7 @@ public class ProfilerSession {
   private Map<Integer, Module> allModules = new HashMap<>();
   private Map<Integer, Module> modules = new HashMap<>();
   private Map<String, Module> modulesLookup = new HashMap<>();
-  private int[][] adjMatrix = null;
+  private CallTree callTree = null;
 
   // Internal use
   private int highestModuleId = -1;
@@ -88,21 +94,39 @@ public class ProfilerSession {
   }
 
   public void addCall(int callerId, int calleeId, int count) {
-    adjMatrix[callerId][calleeId] += count;
+    callTree.addCall(callerId, calleeId, count);
   }
 
+  /**
+   * Call tree is stored as a matrix if highest module ID is less than {@link #DENSE_CALL_TREE_LIMIT}
+   */
   public void initializeCallTreeMatrix() {
-    if (adjMatrix != null)
+    initializeCallTree(highestModuleId >= DENSE_CALL_TREE_LIMIT);
+  }
+
+  public void initializeCallTree(boolean sparse) {
+    if (callTree != null)
       throw new RuntimeException("Matrix already initialized");
-    adjMatrix = new int[highestModuleId + 1][highestModuleId + 1];
+    callTree = sparse ? new SparseCallTree() : new DenseCallTree(highestModuleId + 1);
   }
 
   public boolean isCallTreeInitialized() {
-    return adjMatrix != null;
+    return callTree != null;
+  }
+
+  /**
+   * @return Null if call tree is not initialized
+   */
+  public CallTree getCallTree() {
+    return callTree;
   }
 
+  /**
+   * @return Adjacency matrix, or null if call tree is not initialized or not stored as a matrix (see
+   *         {@link #getCallTree()} in this case)
+   */
   public int[][] getCallTreeData() {
-    return adjMatrix;
+    return callTree instanceof DenseCallTree ? ((DenseCallTree) callTree).getMatrix() : null;
   }
 
   /**
@@ -161,26 +185,46 @@ public class ProfilerSession {
   }
   
   public void printCallTree(PrintStream out) {
-    for (int zz = 0; zz < adjMatrix.length; zz ++) {
-      for (int yy = 0; yy < adjMatrix.length; yy++) {
-        out.print(adjMatrix[zz][yy] + " ");
+    int[][] adjMatrix = getCallTreeData();
+    if (adjMatrix != null) {
+      for (int zz = 0; zz < adjMatrix.length; zz++) {
+        for (int yy = 0; yy < adjMatrix.length; yy++) {
+          out.print(adjMatrix[zz][yy] + " ");
+        }
+        out.println();
       }
-      out.println();
     }
-    
+
     out.println("SESSION : ");
-    printCallTreeLine(out, 0, 2);
+    if (callTree != null)
+      printCallTreeLines(out);
   }
-  
-  private void printCallTreeLine(PrintStream out, int moduleId, int tabs) {
-    for (int zz = 0; zz < moduleList.size(); zz++) {
-      int calleeId = adjMatrix[moduleId][zz];
-      if (calleeId != 0) {
-        for (int kk = 0 ; kk < tabs; kk++)
-          out.print(" ");
-        out.println(moduleId + " -- " + modules.get(zz).toString());
-        printCallTreeLine(out, zz, tabs + 1);
-      }
+
+  /**
+   * Depth-first walk with an explicit stack, as the call graph can be deep and contains cycles. Each module is only
+   * expanded on its first occurrence.
+   */
+  private void printCallTreeLines(PrintStream out) {
+    Set<Integer> expanded = new HashSet<>();
+    Deque<int[]> stack = new ArrayDeque<>();
+    expanded.add(0);
+    pushCallees(stack, 0, 2);
+    while (!stack.isEmpty()) {
+      int[] call = stack.pop();
+      for (int kk = 0; kk < call[2]; kk++)
+        out.print(" ");
+      out.println(call[0] + " -- " + allModules.get(call[1]));
+      if (expanded.add(call[1]))
+        pushCallees(stack, call[1], call[2] + 1);
+    }
+  }
+
+  private void pushCallees(Deque<int[]> stack, int moduleId, int tabs) {
+    List<int[]> calls = new ArrayList<>();
+    callTree.forEachCallee(moduleId, (callerId, calleeId, count) -> calls.add(new int[] {callerId, calleeId, tabs}));
+    // Reverse order, so that callees are popped in ascending order
+    for (int zz = calls.size() - 1; zz >= 0; zz--) {
+      stack.push(calls.get(zz));
     }
   }
 }
@@ -31,6 +31,10 @@ import eu.rssw.antlr.profiler.ProfilerGrammarParser.DescriptionContext;
 import eu.rssw.antlr.profiler.ProfilerGrammarParser.Line_summary_lineContext;
 import eu.rssw.antlr.profiler.ProfilerGrammarParser.Module_data_lineContext;
 
+/**
+ * @deprecated Requires the full parse tree in memory, use {@link ProfilerReader}
+ */
+@Deprecated
 public class ProfilerSessionVisitor extends ProfilerGrammarBaseVisitor<Void> {
   private final List<Module> modules;
   private ProfilerSession session;
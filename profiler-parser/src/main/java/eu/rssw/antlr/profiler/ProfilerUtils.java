@@ -21,29 +21,25 @@ package eu.rssw.antlr.profiler;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
-
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-
-import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.DefaultErrorStrategy;
-import org.antlr.v4.runtime.FailedPredicateException;
-import org.antlr.v4.runtime.Parser;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import eu.rssw.antlr.profiler.ProfilerReader.Section;
 
 public final class ProfilerUtils {
 
@@ -52,82 +48,88 @@ public final class ProfilerUtils {
   }
 
   public static final ProfilerSession getProfilerSession(File file) throws IOException {
-    return getProfilerSession(new FileInputStream(file));
+    return getProfilerSession(file, EnumSet.noneOf(Section.class));
   }
 
-  public static final ProfilerSession getProfilerSession(InputStream input) throws IOException {
-    ProfilerGrammarLexer lexer = new ProfilerGrammarLexer(CharStreams.fromStream(input));
-    CommonTokenStream tokens = new CommonTokenStream(lexer);
-    ProfilerGrammarParser parser = new ProfilerGrammarParser(tokens);
-    parser.setErrorHandler(new NoFailedPredicateErrorStrategy());
-    ParseTree tree = parser.profiler();
-
-    ProfilerSessionVisitor visitor = new ProfilerSessionVisitor();
-    visitor.visit(tree);
+  /**
+   * @param skipped Sections which are not read, data from those sections won't be available in the session
+   */
+  public static final ProfilerSession getProfilerSession(File file, Set<Section> skipped) throws IOException {
+    try (InputStream input = new FileInputStream(file)) {
+      return new ProfilerReader(skipped).read(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+  }
 
-    return visitor.getSession();
+  public static final ProfilerSession getProfilerSession(InputStream input) throws IOException {
+    return new ProfilerReader().read(new InputStreamReader(input, StandardCharsets.UTF_8));
   }
 
-  public static final void dumpCoverageAsXml(CoverageSession session, Collection<File> propath, File xmlFile) throws IOException {
+  /**
+   * Parse profiler outputs with a pool of threads, and merge their coverage data. Result is the same as successive calls
+   * to {@link CoverageSession#mergeWith(CoverageSession)} in the order of the list, including order of files.
+   */
+  public static final CoverageSession getCoverageSession(List<File> profilerFiles, int threads) throws IOException {
+    ConcurrentMap<String, RankedFileCoverage> map = new ConcurrentHashMap<>();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
     try {
-      Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-
-      // Root element
-      Element root = document.createElement("coverage");
-      root.setAttribute("version", "1");
-      document.appendChild(root);
-
-      for (FileCoverage profiledFile : session.getFiles()) {
-        Element fileElement = document.createElement("file");
-        fileElement.setAttribute("path", getFilePath(propath, profiledFile.getFileName()));
-        root.appendChild(fileElement);
-
-        for (Integer lineNumber : profiledFile.getLinesToCover()) {
-          Element lineElement = document.createElement("lineToCover");
-          lineElement.setAttribute("lineNumber", lineNumber.toString());
-          lineElement.setAttribute("covered", Boolean.toString(profiledFile.getCoveredLines().contains(lineNumber)));
-
-          fileElement.appendChild(lineElement);
-        }
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int zz = 0; zz < profilerFiles.size(); zz++) {
+        File file = profilerFiles.get(zz);
+        long sessionRank = (long) zz << 32;
+        futures.add(executor.submit(() -> {
+          CoverageSession coverage = getProfilerSession(file, EnumSet.of(Section.CALL_TREE)).getCoverage();
+          int pos = 0;
+          for (FileCoverage f : coverage.getFiles()) {
+            mergeInto(map, f, sessionRank | pos++);
+          }
+          return null;
+        }));
       }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException caught) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Coverage merge interrupted");
+    } catch (ExecutionException caught) {
+      if (caught.getCause() instanceof IOException)
+        throw (IOException) caught.getCause();
+      throw new IOException(caught.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
 
-      TransformerFactory factory = TransformerFactory.newInstance();
-      factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-
-      Transformer transformer = factory.newTransformer();
-      transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-      transformer.setOutputProperty(OutputKeys.METHOD, "xml");
-      transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-      transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
-      transformer.transform(new DOMSource(document), new StreamResult(new FileOutputStream(xmlFile)));
-    } catch (ParserConfigurationException | TransformerException caught) {
-      throw new IOException(caught);
+    // Same order as in a sequential merge, i.e. first profiler output where a file appears
+    List<RankedFileCoverage> list = new ArrayList<>(map.values());
+    list.sort(Comparator.comparingLong(r -> r.rank));
+    CoverageSession session = new CoverageSession();
+    for (RankedFileCoverage r : list) {
+      session.add(r.coverage);
     }
+    return session;
   }
 
-  /**
-   * Returns absolute file name if found in work directory or in propath
-   */
-  private static final String getFilePath(Collection<File> propath, String fileName) {
-    if (new File(fileName).exists())
-      return fileName;
-
-    for (File file : propath) {
-      File stdName = new File(file, fileName);
-      File clsName = new File(file, fileName.replace('.', '/') + ".cls");
-      if (stdName.exists())
-        return stdName.getAbsolutePath();
-      if (clsName.exists())
-        return clsName.getAbsolutePath();
-    }
+  private static void mergeInto(ConcurrentMap<String, RankedFileCoverage> map, FileCoverage file, long rank) {
+    map.compute(file.getFileName(), (name, ranked) -> {
+      RankedFileCoverage r = ranked == null ? new RankedFileCoverage(new FileCoverage(name), rank) : ranked;
+      r.rank = Math.min(r.rank, rank);
+      r.coverage.addLinesToCover(file.getLinesToCover());
+      r.coverage.addCoveredLines(file.getCoveredLines());
+      return r;
+    });
+  }
 
-    return fileName;
+  public static final void dumpCoverageAsXml(CoverageSession session, Collection<File> propath, File xmlFile) throws IOException {
+    new CoverageXmlWriter(propath).write(session, xmlFile);
   }
 
-  private static class NoFailedPredicateErrorStrategy extends DefaultErrorStrategy {
-    @Override
-    protected void reportFailedPredicate(Parser recognizer, FailedPredicateException e) {
-      // Nothing here...
+  private static class RankedFileCoverage {
+    private final FileCoverage coverage;
+    private long rank;
+
+    RankedFileCoverage(FileCoverage coverage, long rank) {
+      this.coverage = coverage;
+      this.rank = rank;
     }
   }
 }
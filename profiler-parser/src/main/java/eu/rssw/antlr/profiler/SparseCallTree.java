@@ -0,0 +1,185 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package eu.rssw.antlr.profiler;
+
+import java.util.Arrays;
+
+/**
+ * Call counts stored in an open-addressing hash table keyed by (caller, callee). Compressed rows (callees per caller
+ * and callers per callee) are built on first iteration, and discarded when a new pair is added. Rows only reference
+ * slots of the hash table, so that counts added to an existing pair are always visible.
+ */
+class SparseCallTree implements CallTree {
+  private static final long EMPTY = -1L;
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private long[] keys;
+  private int[] counts;
+  private int size;
+
+  private Rows callees;
+  private Rows callers;
+
+  SparseCallTree() {
+    keys = new long[INITIAL_CAPACITY];
+    Arrays.fill(keys, EMPTY);
+    counts = new int[INITIAL_CAPACITY];
+  }
+
+  /**
+   * Number of (caller, callee) pairs
+   */
+  int size() {
+    return size;
+  }
+
+  @Override
+  public void addCall(int callerId, int calleeId, int count) {
+    if ((callerId < 0) || (calleeId < 0))
+      throw new IllegalArgumentException("Invalid module ID: " + callerId + " -> " + calleeId);
+    long key = key(callerId, calleeId);
+    int pos = find(keys, key);
+    if (keys[pos] == EMPTY) {
+      // Table only grows when a new pair is inserted, existing slots are stable otherwise
+      if (2 * (size + 1) > keys.length) {
+        resize(keys.length * 2);
+        pos = find(keys, key);
+      }
+      keys[pos] = key;
+      size++;
+      callees = null;
+      callers = null;
+    }
+    counts[pos] += count;
+  }
+
+  @Override
+  public int getCallCount(int callerId, int calleeId) {
+    if ((callerId < 0) || (calleeId < 0))
+      return 0;
+    int pos = find(keys, key(callerId, calleeId));
+    return keys[pos] == EMPTY ? 0 : counts[pos];
+  }
+
+  @Override
+  public void forEachCallee(int callerId, CallConsumer consumer) {
+    if (callees == null)
+      callees = new Rows(false);
+    callees.forEach(callerId, consumer);
+  }
+
+  @Override
+  public void forEachCaller(int calleeId, CallConsumer consumer) {
+    if (callers == null)
+      callers = new Rows(true);
+    callers.forEach(calleeId, consumer);
+  }
+
+  private static long key(int callerId, int calleeId) {
+    return ((long) callerId << 32) | calleeId;
+  }
+
+  private static int find(long[] table, long key) {
+    int mask = table.length - 1;
+    long hash = key * 0x9E3779B97F4A7C15L;
+    int pos = (int) (hash ^ (hash >>> 32)) & mask;
+    while ((table[pos] != EMPTY) && (table[pos] != key)) {
+      pos = (pos + 1) & mask;
+    }
+    return pos;
+  }
+
+  private void resize(int capacity) {
+    long[] newKeys = new long[capacity];
+    Arrays.fill(newKeys, EMPTY);
+    int[] newCounts = new int[capacity];
+    for (int zz = 0; zz < keys.length; zz++) {
+      if (keys[zz] != EMPTY) {
+        int pos = find(newKeys, keys[zz]);
+        newKeys[pos] = keys[zz];
+        newCounts[pos] = counts[zz];
+      }
+    }
+    keys = newKeys;
+    counts = newCounts;
+    // Slots have moved
+    callees = null;
+    callers = null;
+  }
+
+  /**
+   * Compressed sparse rows: entries of row N are at positions offsets[N] to offsets[N + 1] (excluded)
+   */
+  private class Rows {
+    private final boolean byCallee;
+    private final int[] offsets;
+    private final int[] ids;
+    private final int[] slots;
+
+    Rows(boolean byCallee) {
+      this.byCallee = byCallee;
+      // Row ID in the upper 32 bits, so that sorting groups entries by row
+      long[] sorted = new long[size];
+      int num = 0;
+      int maxRow = -1;
+      for (long key : keys) {
+        if (key != EMPTY) {
+          long rowKey = byCallee ? key(calleeOf(key), callerOf(key)) : key;
+          sorted[num++] = rowKey;
+          maxRow = Math.max(maxRow, callerOf(rowKey));
+        }
+      }
+      Arrays.sort(sorted);
+
+      offsets = new int[maxRow + 2];
+      ids = new int[size];
+      slots = new int[size];
+      for (int zz = 0; zz < sorted.length; zz++) {
+        int row = callerOf(sorted[zz]);
+        int col = calleeOf(sorted[zz]);
+        offsets[row + 1]++;
+        ids[zz] = col;
+        slots[zz] = byCallee ? find(keys, key(col, row)) : find(keys, key(row, col));
+      }
+      for (int zz = 1; zz < offsets.length; zz++) {
+        offsets[zz] += offsets[zz - 1];
+      }
+    }
+
+    void forEach(int row, CallConsumer consumer) {
+      if ((row < 0) || (row + 1 >= offsets.length))
+        return;
+      for (int zz = offsets[row]; zz < offsets[row + 1]; zz++) {
+        if (byCallee)
+          consumer.accept(ids[zz], row, counts[slots[zz]]);
+        else
+          consumer.accept(row, ids[zz], counts[slots[zz]]);
+      }
+    }
+  }
+
+  private static int callerOf(long key) {
+    return (int) (key >>> 32);
+  }
+
+  private static int calleeOf(long key) {
+    return (int) key;
+  }
+}
@@ -19,15 +19,38 @@
  */
 package eu.rssw.antlr.profiler;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.FailedPredicateException;
+import org.antlr.v4.runtime.Parser;
 import org.testng.Assert;
 import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import eu.rssw.antlr.profiler.ProfilerReader.Section;
 
 public class TestProfiler {
 
@@ -108,4 +131,304 @@ public class TestProfiler {
     Assert.assertEquals(session.getVersionNumber(), 3);
   }
 
+  @Test
+  public void testSameAsParseTree() throws IOException {
+    for (int zz = 1; zz <= 9; zz++) {
+      File file = new File("src/test/resources/profiler" + zz + ".out");
+      ProfilerSession session1 = ProfilerUtils.getProfilerSession(file);
+      ProfilerSession session2 = getProfilerSessionFromParseTree(file);
+      Assert.assertEquals(session1.getVersionNumber(), session2.getVersionNumber(), file.getName());
+      Assert.assertEquals(session1.getDescription(), session2.getDescription(), file.getName());
+      Assert.assertEquals(session1.getTimestamp(), session2.getTimestamp(), file.getName());
+      Assert.assertEquals(session1.getModules().size(), session2.getModules().size(), file.getName());
+      for (Module m2 : session2.getModules()) {
+        Module m1 = session1.getModuleById(m2.getId());
+        Assert.assertEquals(m1.getName(), m2.getName());
+        Assert.assertEquals(m1.getLinesToCover(), m2.getLinesToCover(), m2.toString());
+        Assert.assertEquals(m1.getCoveredLines(), m2.getCoveredLines(), m2.toString());
+        Assert.assertEquals(m1.getCumulativeTime(), m2.getCumulativeTime(), 0.0001f, m2.toString());
+      }
+      Assert.assertTrue(Arrays.deepEquals(session1.getCallTreeData(), session2.getCallTreeData()), file.getName());
+    }
+  }
+
+  @Test
+  public void testSkipSections() throws IOException {
+    File file = new File("src/test/resources/profiler1.out");
+    ProfilerSession session1 = ProfilerUtils.getProfilerSession(file);
+    ProfilerSession session2 = ProfilerUtils.getProfilerSession(file,
+        EnumSet.of(Section.CALL_TREE, Section.LINE_SUMMARY));
+    Assert.assertFalse(session2.isCallTreeInitialized());
+    Assert.assertEquals(session2.getModules().size(), session1.getModules().size());
+    for (Module m1 : session1.getModules()) {
+      Module m2 = session2.getModuleById(m1.getId());
+      // Line summary also contributes to lines to cover
+      Assert.assertTrue(m1.getLinesToCover().containsAll(m2.getLinesToCover()));
+      Assert.assertTrue(m2.getCoveredLines().isEmpty());
+    }
+
+    ProfilerSession session3 = ProfilerUtils.getProfilerSession(file, EnumSet.of(Section.COVERAGE));
+    Assert.assertTrue(session3.isCallTreeInitialized());
+    for (Module m1 : session1.getModules()) {
+      Assert.assertEquals(session3.getModuleById(m1.getId()).getCoveredLines(), m1.getCoveredLines());
+    }
+  }
+
+  @Test
+  public void testMultiLineString() throws IOException {
+    String str = "1 03/21/2013 \"Multi\nline\" 14:06:34 \"gquerret\"\n.\n1 \"test.p\" \"\" 123\n.\n";
+    ProfilerSession session = ProfilerUtils.getProfilerSession(
+        new ByteArrayInputStream(str.getBytes(StandardCharsets.UTF_8)));
+    Assert.assertEquals(session.getDescription(), "Multi\nline");
+    Assert.assertEquals(session.getModules().size(), 1);
+  }
+
+  @Test
+  public void testParallelMerge() throws IOException {
+    List<File> files = new ArrayList<>();
+    for (int zz = 0; zz < 5; zz++) {
+      for (int yy = 9; yy >= 1; yy--) {
+        files.add(new File("src/test/resources/profiler" + yy + ".out"));
+      }
+    }
+    CoverageSession sequential = new CoverageSession();
+    for (File f : files) {
+      sequential.mergeWith(ProfilerUtils.getProfilerSession(f).getCoverage());
+    }
+    CoverageSession parallel = ProfilerUtils.getCoverageSession(files, 4);
+
+    Assert.assertEquals(parallel.getFiles().size(), sequential.getFiles().size());
+    Iterator<FileCoverage> iter = parallel.getFiles().iterator();
+    for (FileCoverage f1 : sequential.getFiles()) {
+      FileCoverage f2 = iter.next();
+      Assert.assertEquals(f2.getFileName(), f1.getFileName());
+      Assert.assertEquals(f2.getLinesToCover(), f1.getLinesToCover(), f1.getFileName());
+      Assert.assertEquals(f2.getCoveredLines(), f1.getCoveredLines(), f1.getFileName());
+    }
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testParallelMergeFailure() throws IOException {
+    ProfilerUtils.getCoverageSession(
+        Arrays.asList(new File("src/test/resources/profiler1.out"), new File("src/test/resources/nothere.out")), 2);
+  }
+
+  @Test
+  public void testLineSet() {
+    LineSet set1 = new LineSet();
+    Assert.assertTrue(set1.isEmpty());
+    Assert.assertTrue(set1.add(12));
+    Assert.assertFalse(set1.add(12));
+    set1.addAll(Arrays.asList(3, 1000, 7));
+    Assert.assertEquals(set1.size(), 4);
+    Assert.assertEquals(new ArrayList<>(set1), Arrays.asList(3, 7, 12, 1000));
+    Assert.assertTrue(set1.contains(1000));
+    Assert.assertFalse(set1.contains(-1));
+    Assert.assertFalse(set1.contains("12"));
+
+    LineSet set2 = new LineSet();
+    set2.addAll(Arrays.asList(1, 7, 1000, 2000));
+    Assert.assertEquals(new ArrayList<>(set1.union(set2)), Arrays.asList(1, 3, 7, 12, 1000, 2000));
+    Assert.assertEquals(new ArrayList<>(set1.intersection(set2)), Arrays.asList(7, 1000));
+    Assert.assertEquals(set1.size(), 4);
+    Assert.assertEquals(set1, new HashSet<>(Arrays.asList(3, 7, 12, 1000)));
+    Assert.assertEquals(set1.hashCode(), new HashSet<>(Arrays.asList(3, 7, 12, 1000)).hashCode());
+
+    Assert.assertTrue(set1.retainAll(set2));
+    Assert.assertEquals(set1, set1.intersection(set2));
+    Assert.assertTrue(set1.remove(7));
+    Assert.assertEquals(set1.lines().toArray(), new int[] {1000});
+    Iterator<Integer> iter = set2.iterator();
+    iter.next();
+    iter.remove();
+    Assert.assertEquals(new ArrayList<>(set2), Arrays.asList(7, 1000, 2000));
+  }
+
+  @Test
+  public void testModuleLineSets() {
+    Module module = new Module(1, "module1.p", "", 0);
+    module.addLineSummary(new LineData(5, 2, 0, 0));
+    module.addLineToCover(8);
+    LineSet lines = module.getLinesToCover();
+    Assert.assertEquals(new ArrayList<>(lines), Arrays.asList(5, 8));
+    Assert.assertEquals(new ArrayList<>(module.getCoveredLines()), Arrays.asList(5));
+    Assert.assertThrows(UnsupportedOperationException.class, () -> lines.add(10));
+    Assert.assertThrows(UnsupportedOperationException.class, () -> lines.remove(5));
+    Assert.assertThrows(UnsupportedOperationException.class, () -> lines.clear());
+    Assert.assertThrows(UnsupportedOperationException.class, () -> lines.retainAll(module.getCoveredLines()));
+    Assert.assertThrows(UnsupportedOperationException.class, () -> module.getCoveredLines().addAll(lines));
+    Iterator<Integer> iter = lines.iterator();
+    iter.next();
+    Assert.assertThrows(UnsupportedOperationException.class, iter::remove);
+    Assert.assertEquals(module.getLineData().size(), 2);
+
+    // Live view, and new sets are writable
+    module.addLineToCover(12);
+    Assert.assertEquals(new ArrayList<>(lines), Arrays.asList(5, 8, 12));
+    LineSet union = lines.union(module.getCoveredLines());
+    Assert.assertTrue(union.add(20));
+    Assert.assertTrue(new LineSet(lines).add(20));
+    Assert.assertEquals(lines.size(), 3);
+  }
+
+  @Test
+  public void testCoverageXml() throws Exception {
+    CoverageSession session = ProfilerUtils.getProfilerSession(
+        new File("src/test/resources/profiler1.out")).getCoverage();
+    CoverageXmlWriter writer = new CoverageXmlWriter(Arrays.asList(new File("src/test")));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writer.write(session, out);
+
+    Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(
+        new ByteArrayInputStream(out.toByteArray()));
+    Assert.assertEquals(doc.getDocumentElement().getNodeName(), "coverage");
+    NodeList files = doc.getElementsByTagName("file");
+    Assert.assertEquals(files.getLength(), session.getFiles().size());
+    int numLines = 0;
+    int numCovered = 0;
+    for (FileCoverage f : session.getFiles()) {
+      numLines += f.getLinesToCover().size();
+      numCovered += f.getCoveredLines().size();
+    }
+    NodeList lines = doc.getElementsByTagName("lineToCover");
+    Assert.assertEquals(lines.getLength(), numLines);
+    int covered = 0;
+    for (int zz = 0; zz < lines.getLength(); zz++) {
+      if ("true".equals(((Element) lines.item(zz)).getAttribute("covered")))
+        covered++;
+    }
+    Assert.assertEquals(covered, numCovered);
+
+    // Resolved from propath, then cached
+    String path = writer.getFilePath("resources/profiler1.out");
+    Assert.assertEquals(path, new File("src/test/resources/profiler1.out").getAbsolutePath());
+    Assert.assertSame(writer.getFilePath("resources/profiler1.out"), path);
+    Assert.assertEquals(writer.getFilePath("nothere.p"), "nothere.p");
+  }
+
+  @Test
+  public void testCoverageXmlPropath() throws IOException {
+    Path dir1 = Files.createTempDirectory("propath");
+    Path dir2 = Files.createTempDirectory("propath");
+    Files.createDirectories(dir2.resolve("rssw"));
+    Files.write(dir1.resolve("a.p"), new byte[0]);
+    Files.write(dir2.resolve("b.p"), new byte[0]);
+    Files.write(dir2.resolve("rssw/Test.cls"), new byte[0]);
+
+    CoverageXmlWriter writer = new CoverageXmlWriter(Arrays.asList(dir1.toFile(), dir2.toFile()));
+    Assert.assertEquals(writer.getFilePath("a.p"), dir1.resolve("a.p").toFile().getAbsolutePath());
+    Assert.assertEquals(writer.getFilePath("b.p"), dir2.resolve("b.p").toFile().getAbsolutePath());
+    Assert.assertEquals(writer.getFilePath("rssw.Test"), dir2.resolve("rssw/Test.cls").toFile().getAbsolutePath());
+    // Directories are only listed once
+    Files.write(dir1.resolve("c.p"), new byte[0]);
+    Assert.assertEquals(writer.getFilePath("c.p"), "c.p");
+    Assert.assertEquals(new CoverageXmlWriter(Arrays.asList(dir1.toFile())).getFilePath("c.p"),
+        dir1.resolve("c.p").toFile().getAbsolutePath());
+  }
+
+  @Test
+  public void testSparseCallTree() throws IOException {
+    ProfilerSession session = ProfilerUtils.getProfilerSession(new File("src/test/resources/profiler1.out"));
+    int[][] matrix = session.getCallTreeData();
+    Assert.assertNotNull(matrix);
+    SparseCallTree sparse = new SparseCallTree();
+    for (int zz = 0; zz < matrix.length; zz++) {
+      for (int yy = 0; yy < matrix.length; yy++) {
+        if (matrix[zz][yy] != 0)
+          sparse.addCall(zz, yy, matrix[zz][yy]);
+      }
+    }
+    for (int zz = 0; zz < matrix.length + 1; zz++) {
+      for (int yy = 0; yy < matrix.length + 1; yy++) {
+        Assert.assertEquals(sparse.getCallCount(zz, yy), session.getCallTree().getCallCount(zz, yy));
+      }
+      Assert.assertEquals(callees(sparse, zz), callees(session.getCallTree(), zz));
+      Assert.assertEquals(callers(sparse, zz), callers(session.getCallTree(), zz));
+    }
+  }
+
+  @Test
+  public void testSparseCallTreeUpdate() {
+    SparseCallTree tree = new SparseCallTree();
+    tree.addCall(1, 2, 3);
+    tree.addCall(4, 2, 1);
+    Assert.assertEquals(callees(tree, 1), Arrays.asList("1-2x3"));
+    Assert.assertEquals(callers(tree, 2), Arrays.asList("1-2x3", "4-2x1"));
+    // Existing pair, rows are not rebuilt
+    tree.addCall(1, 2, 2);
+    Assert.assertEquals(callees(tree, 1), Arrays.asList("1-2x5"));
+    Assert.assertEquals(callers(tree, 2), Arrays.asList("1-2x5", "4-2x1"));
+    // New pair
+    tree.addCall(1, 4, 1);
+    Assert.assertEquals(callees(tree, 1), Arrays.asList("1-2x5", "1-4x1"));
+
+    // Existing pair added when table is half full, table isn't resized
+    SparseCallTree tree2 = new SparseCallTree();
+    for (int zz = 0; zz < 512; zz++) {
+      tree2.addCall(1, zz, 1);
+    }
+    Assert.assertEquals(sumCallees(tree2, 1), 512);
+    tree2.addCall(1, 0, 100);
+    Assert.assertEquals(tree2.getCallCount(1, 0), 101);
+    Assert.assertEquals(sumCallees(tree2, 1), 612);
+  }
+
+  private static int sumCallees(CallTree tree, int callerId) {
+    int[] sum = {0};
+    tree.forEachCallee(callerId, (caller, callee, count) -> sum[0] += count);
+    return sum[0];
+  }
+
+  @Test
+  public void testLargeCallTree() {
+    ProfilerSession session = new ProfilerSession("desc", "user", "03/21/2013 14:06:34", "1");
+    for (int zz = 0; zz < 60000; zz++) {
+      session.addModule(new Module(zz, "module" + zz + ".p", "", 0));
+    }
+    session.initializeCallTreeMatrix();
+    Assert.assertNull(session.getCallTreeData());
+    for (int zz = 1; zz < 60000; zz++) {
+      session.addCall(0, zz, 1);
+      session.addCall(zz, zz / 2, 2);
+    }
+    session.addCall(59999, 3, 5);
+    CallTree tree = session.getCallTree();
+    Assert.assertEquals(tree.getCallCount(59999, 3), 5);
+    Assert.assertEquals(tree.getCallCount(3, 59999), 0);
+    Assert.assertEquals(callees(tree, 59999), Arrays.asList("59999-3x5", "59999-29999x2"));
+    Assert.assertEquals(callers(tree, 3), Arrays.asList("0-3x1", "6-3x2", "7-3x2", "59999-3x5"));
+
+    // Cycles in the call graph, each call is printed once
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    session.printCallTree(new PrintStream(out));
+    Assert.assertEquals(out.toString().split("\n").length, 1 + 2 * 59999 + 1);
+  }
+
+  private static List<String> callees(CallTree tree, int callerId) {
+    List<String> list = new ArrayList<>();
+    tree.forEachCallee(callerId, (caller, callee, count) -> list.add(caller + "-" + callee + "x" + count));
+    return list;
+  }
+
+  private static List<String> callers(CallTree tree, int calleeId) {
+    List<String> list = new ArrayList<>();
+    tree.forEachCaller(calleeId, (caller, callee, count) -> list.add(caller + "-" + callee + "x" + count));
+    return list;
+  }
+
+  @SuppressWarnings("deprecation")
+  private static ProfilerSession getProfilerSessionFromParseTree(File file) throws IOException {
+    ProfilerGrammarParser parser = new ProfilerGrammarParser(
+        new CommonTokenStream(new ProfilerGrammarLexer(CharStreams.fromFileName(file.getPath()))));
+    parser.setErrorHandler(new DefaultErrorStrategy() {
+      @Override
+      protected void reportFailedPredicate(Parser recognizer, FailedPredicateException e) {
+        // Nothing
+      }
+    });
+    ProfilerSessionVisitor visitor = new ProfilerSessionVisitor();
+    visitor.visit(parser.profiler());
+    return visitor.getSession();
+  }
+
 }
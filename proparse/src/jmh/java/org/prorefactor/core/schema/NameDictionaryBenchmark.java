@@ -0,0 +1,108 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Riverside Software
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU Lesser General Public License v3.0
+ * which is available at https://www.gnu.org/licenses/lgpl-3.0.txt
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR LGPL-3.0
+ ********************************************************************************/
+package org.prorefactor.core.schema;
+
+import java.util.Iterator;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link NameDictionary} with lookups in a TreeSet through tailSet() (previous implementation of
+ * Schema.lookupTable() and Table.lookupField()). Exact names, abbreviations and unknown names are queried.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NameDictionaryBenchmark {
+  @Param({"20", "500"})
+  private int size;
+
+  private SortedSet<ITable> tables;
+  private NameDictionary<ITable> dictionary;
+  private String[] probes;
+
+  @Setup
+  public void setUp() {
+    IDatabase db = new Database("sports");
+    tables = new TreeSet<>(Constants.TABLE_NAME_ORDER);
+    for (int zz = 0; zz < size; zz++) {
+      tables.add(new Table("Table" + Integer.toString(zz * 7919, 36) + "Name", db));
+    }
+    dictionary = new NameDictionary<>(tables, ITable::getName);
+    probes = new String[size];
+    int zz = 0;
+    for (ITable tbl : tables) {
+      String name = tbl.getName();
+      switch (zz % 3) {
+        case 0:
+          probes[zz] = name.toUpperCase();
+          break;
+        case 1:
+          probes[zz] = name.substring(0, name.length() - 3);
+          break;
+        default:
+          probes[zz] = name + "X";
+      }
+      zz++;
+    }
+  }
+
+  @Benchmark
+  public void tailSet(Blackhole bh) {
+    for (String probe : probes) {
+      bh.consume(lookupTailSet(probe));
+    }
+  }
+
+  @Benchmark
+  public void nameDictionary(Blackhole bh) {
+    for (String probe : probes) {
+      bh.consume(dictionary.lookupUniquePrefix(probe));
+    }
+  }
+
+  private ITable lookupTailSet(String name) {
+    String lname = name.toLowerCase();
+    Iterator<ITable> it = tables.tailSet(new Table(name)).iterator();
+    if (!it.hasNext())
+      return null;
+    ITable table = it.next();
+    if (!table.getName().toLowerCase().startsWith(lname))
+      return null;
+    if (lname.length() < table.getName().length() && it.hasNext()) {
+      ITable next = it.next();
+      if (next.getName().toLowerCase().startsWith(lname))
+        return null;
+    }
+    return table;
+  }
+}
@@ -17,6 +17,7 @@ package org.prorefactor.core;
 
 import java.nio.CharBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -45,9 +46,13 @@ public class JPNode implements AST {
   private JPNode left;
   private JPNode up;
 
-  private Map<Integer, Integer> attrMap;
+  // Integer attributes and links are only a handful per node, so they're stored in small arrays instead of maps.
+  // Attributes are (key, value) pairs, links have keys and values at the same index
+  private int[] attributes;
+  private int[] linkKeys;
+  private Object[] links;
+  // Rare string attributes
   private Map<String, String> attrMapStrings;
-  private Map<Integer, Object> linkMap;
   private Map<Integer, String> stringAttributes;
 
   private static final BiMap<Integer, String> attrStrEqs;
@@ -511,8 +516,9 @@ public class JPNode implements AST {
   // *****************************
 
   public int attrGet(int key) {
-    if ((attrMap != null) && attrMap.containsKey(key)) {
-      return attrMap.get(key);
+    int pos = attrIndex(key);
+    if (pos >= 0) {
+      return attributes[pos + 1];
     }
     switch (key) {
       case IConstants.ABBREVIATED:
@@ -554,9 +560,36 @@ public class JPNode implements AST {
   }
 
   public void attrSet(Integer key, int val) {
-    if (attrMap == null)
-      initAttrMap();
-    attrMap.put(key, val);
+    int pos = attrIndex(key);
+    if (pos >= 0) {
+      attributes[pos + 1] = val;
+    } else if (attributes == null) {
+      attributes = new int[] {key, val};
+    } else {
+      attributes = Arrays.copyOf(attributes, attributes.length + 2);
+      attributes[attributes.length - 2] = key;
+      attributes[attributes.length - 1] = val;
+    }
+  }
+
+  private int attrIndex(int key) {
+    if (attributes != null) {
+      for (int zz = 0; zz < attributes.length; zz += 2) {
+        if (attributes[zz] == key)
+          return zz;
+      }
+    }
+    return -1;
+  }
+
+  private int linkIndex(int key) {
+    if (linkKeys != null) {
+      for (int zz = 0; zz < linkKeys.length; zz++) {
+        if (linkKeys[zz] == key)
+          return zz;
+      }
+    }
+    return -1;
   }
 
   public void attrSetS(String key, String value) {
@@ -576,16 +609,13 @@ public class JPNode implements AST {
    * Get a link to an arbitrary object. Integers from -200 through -499 are reserved for Joanju.
    */
   public Object getLink(Integer key) {
-    if (linkMap == null)
-      return null;
-    return linkMap.get(key);
+    int pos = linkIndex(key);
+    return pos >= 0 ? links[pos] : null;
   }
 
   /** If this AST was constructed from another, then get the original. */
   public JPNode getOriginal() {
-    if (linkMap == null)
-      return null;
-    return (JPNode) linkMap.get(IConstants.ORIGINAL);
+    return (JPNode) getLink(IConstants.ORIGINAL);
   }
 
   public int getState2() {
@@ -771,18 +801,6 @@ public class JPNode implements AST {
 
 
 
-  private void initAttrMap() {
-    if (attrMap == null) {
-      attrMap = new HashMap<>();
-    }
-  }
-
-  private void initLinkMap() {
-    if (linkMap == null) {
-      linkMap = new HashMap<>();
-    }
-  }
-
   public boolean isAbbreviated() {
     return token.getNodeType().isAbbreviated(getText());
   }
@@ -828,9 +846,18 @@ public class JPNode implements AST {
 
   /** @see #getLink(Integer) */
   public void setLink(Integer key, Object value) {
-    if (linkMap == null)
-      initLinkMap();
-    linkMap.put(key, value);
+    int pos = linkIndex(key);
+    if (pos >= 0) {
+      links[pos] = value;
+    } else if (linkKeys == null) {
+      linkKeys = new int[] {key};
+      links = new Object[] {value};
+    } else {
+      linkKeys = Arrays.copyOf(linkKeys, linkKeys.length + 1);
+      links = Arrays.copyOf(links, links.length + 1);
+      linkKeys[linkKeys.length - 1] = key;
+      links[links.length - 1] = value;
+    }
   }
 
   /** Assigned by the tree parser. */
@@ -906,10 +933,10 @@ public class JPNode implements AST {
     }
 
     // On attributes
-    if (attrMap != null) {
-      for (Map.Entry<Integer,Integer> entry : attrMap.entrySet()) {
-        if (!entry.getValue().equals(other.attrGet(entry.getKey()))) {
-          System.err.println(CharBuffer.allocate(level).toString().replace('\0', ' ') + " -- AttrMap[" + entry.getKey() + "]: " + entry.getValue() + " -- " + other.attrGet(entry.getKey()));
+    if (attributes != null) {
+      for (int zz = 0; zz < attributes.length; zz += 2) {
+        if (attributes[zz + 1] != other.attrGet(attributes[zz])) {
+          System.err.println(CharBuffer.allocate(level).toString().replace('\0', ' ') + " -- AttrMap[" + attributes[zz] + "]: " + attributes[zz + 1] + " -- " + other.attrGet(attributes[zz]));
           return 7;
         }
       }
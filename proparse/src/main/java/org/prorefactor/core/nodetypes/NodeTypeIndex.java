@@ -0,0 +1,95 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Riverside Software
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU Lesser General Public License v3.0
+ * which is available at https://www.gnu.org/licenses/lgpl-3.0.txt
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR LGPL-3.0
+ ********************************************************************************/
+package org.prorefactor.core.nodetypes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.prorefactor.core.ABLNodeType;
+import org.prorefactor.core.ICallback;
+import org.prorefactor.core.JPNode;
+
+/**
+ * Nodes of a tree grouped by node type, in the same order as {@link JPNode#walk(ICallback)}. Separate views are kept
+ * for statement heads and for nodes of the main file.
+ */
+class NodeTypeIndex implements ICallback<NodeTypeIndex> {
+  private final List<JPNode> nodes = new ArrayList<>();
+  private final List<JPNode> stateHeads = new ArrayList<>();
+  private final Map<ABLNodeType, List<JPNode>> byType = new EnumMap<>(ABLNodeType.class);
+  private final Map<ABLNodeType, List<JPNode>> stateHeadsByType = new EnumMap<>(ABLNodeType.class);
+  private final Map<ABLNodeType, List<JPNode>> mainFileByType = new EnumMap<>(ABLNodeType.class);
+  private final Map<JPNode, Integer> positions = new IdentityHashMap<>();
+
+  NodeTypeIndex(JPNode root) {
+    root.walk(this);
+  }
+
+  @Override
+  public NodeTypeIndex getResult() {
+    return this;
+  }
+
+  @Override
+  public boolean visitNode(JPNode node) {
+    positions.put(node, nodes.size());
+    nodes.add(node);
+    byType.computeIfAbsent(node.getNodeType(), key -> new ArrayList<>()).add(node);
+    if (node.isStateHead()) {
+      stateHeads.add(node);
+      stateHeadsByType.computeIfAbsent(node.getNodeType(), key -> new ArrayList<>()).add(node);
+    }
+    if (node.getFileIndex() == 0) {
+      mainFileByType.computeIfAbsent(node.getNodeType(), key -> new ArrayList<>()).add(node);
+    }
+    return true;
+  }
+
+  List<JPNode> query(ABLNodeType type, ABLNodeType... types) {
+    return type == null ? new ArrayList<>(nodes) : select(byType, type, types);
+  }
+
+  List<JPNode> queryMainFile(ABLNodeType type, ABLNodeType... types) {
+    if (type == null) {
+      List<JPNode> list = new ArrayList<>();
+      for (JPNode node : nodes) {
+        if (node.getFileIndex() == 0)
+          list.add(node);
+      }
+      return list;
+    }
+    return select(mainFileByType, type, types);
+  }
+
+  List<JPNode> queryStateHead(ABLNodeType type, ABLNodeType... types) {
+    return type == null ? new ArrayList<>(stateHeads) : select(stateHeadsByType, type, types);
+  }
+
+  private List<JPNode> select(Map<ABLNodeType, List<JPNode>> map, ABLNodeType type, ABLNodeType... types) {
+    if (types.length == 0)
+      return new ArrayList<>(map.getOrDefault(type, Collections.emptyList()));
+    List<JPNode> list = new ArrayList<>();
+    for (ABLNodeType t : EnumSet.of(type, types)) {
+      list.addAll(map.getOrDefault(t, Collections.emptyList()));
+    }
+    list.sort((n1, n2) -> Integer.compare(positions.get(n1), positions.get(n2)));
+    return list;
+  }
+}
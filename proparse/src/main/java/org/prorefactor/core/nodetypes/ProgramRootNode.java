@@ -15,9 +15,19 @@
  ********************************************************************************/
 package org.prorefactor.core.nodetypes;
 
+import java.util.List;
+
+import org.prorefactor.core.ABLNodeType;
+import org.prorefactor.core.JPNode;
 import org.prorefactor.core.ProToken;
 
+/**
+ * Root node of a tree. Queries are answered from an index of nodes per type, built on first use, instead of walking the
+ * whole tree each time.
+ */
 public class ProgramRootNode extends BlockNode {
+  private NodeTypeIndex nodeIndex;
+
   public ProgramRootNode(ProToken t) {
     super(t);
   }
@@ -28,6 +38,43 @@ public class ProgramRootNode extends BlockNode {
   public void backLinkAndFinalize() {
     backLink();
     finalizeTrailingHidden();
+    nodeIndex = null;
+  }
+
+  /**
+   * Discard node index. Has to be called if tree is modified after the first query.
+   */
+  public void resetNodeIndex() {
+    nodeIndex = null;
+  }
+
+  private NodeTypeIndex getNodeIndex() {
+    NodeTypeIndex idx = nodeIndex;
+    if (idx == null) {
+      idx = new NodeTypeIndex(this);
+      nodeIndex = idx;
+    }
+    return idx;
+  }
+
+  @Override
+  public List<JPNode> query(ABLNodeType type, ABLNodeType... findTypes) {
+    return getNodeIndex().query(type, findTypes);
+  }
+
+  @Override
+  public List<JPNode> queryMainFile(ABLNodeType type, ABLNodeType... findTypes) {
+    return getNodeIndex().queryMainFile(type, findTypes);
+  }
+
+  @Override
+  public List<JPNode> queryStateHead() {
+    return getNodeIndex().queryStateHead(null);
+  }
+
+  @Override
+  public List<JPNode> queryStateHead(ABLNodeType type, ABLNodeType... findTypes) {
+    return getNodeIndex().queryStateHead(type, findTypes);
   }
 
 }
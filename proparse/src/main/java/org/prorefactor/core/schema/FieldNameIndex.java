@@ -0,0 +1,92 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Riverside Software
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU Lesser General Public License v3.0
+ * which is available at https://www.gnu.org/licenses/lgpl-3.0.txt
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR LGPL-3.0
+ ********************************************************************************/
+package org.prorefactor.core.schema;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Schema-wide index of field names, used to resolve unqualified (and possibly abbreviated) field names without asking
+ * every table. Field names are stored in lowercase and sorted, so that all names starting with a given prefix are a
+ * contiguous range. For each range, the first owning table (in the order of the collection given at creation time) is
+ * found in constant time with a sparse table of range minimums. Immutable once built, so it can be shared by threads.
+ */
+class FieldNameIndex {
+  private final ITable[] tables;
+  private final String[] names;
+  // minTable[k][i] = lowest table number owning one of names[i] ... names[i + 2^k - 1]
+  private final int[][] minTable;
+
+  FieldNameIndex(Collection<ITable> allTables) {
+    tables = allTables.toArray(new ITable[allTables.size()]);
+    Map<String, Integer> map = new TreeMap<>();
+    for (int zz = 0; zz < tables.length; zz++) {
+      // Field names only, so that tables loaded on demand are not built
+      for (String fld : tables[zz].getFieldNames()) {
+        map.putIfAbsent(key(fld), zz);
+      }
+    }
+    names = map.keySet().toArray(new String[map.size()]);
+
+    int levels = 1;
+    while ((1 << levels) <= names.length) {
+      levels++;
+    }
+    minTable = new int[levels][];
+    minTable[0] = new int[names.length];
+    int pos = 0;
+    for (Integer tbl : map.values()) {
+      minTable[0][pos++] = tbl;
+    }
+    for (int kk = 1; kk < levels; kk++) {
+      int half = 1 << (kk - 1);
+      minTable[kk] = new int[names.length - (1 << kk) + 1];
+      for (int ii = 0; ii < minTable[kk].length; ii++) {
+        minTable[kk][ii] = Math.min(minTable[kk - 1][ii], minTable[kk - 1][ii + half]);
+      }
+    }
+  }
+
+  /**
+   * Returns the first table (in creation order) with a field whose name is, or starts with, this name
+   * 
+   * @return Null if no field matches
+   */
+  ITable lookupTable(String name) {
+    String lname = key(name);
+    int lo = lowerBound(lname);
+    int hi = lowerBound(lname + Character.MAX_VALUE);
+    if (lo >= hi)
+      return null;
+    int kk = 31 - Integer.numberOfLeadingZeros(hi - lo);
+    return tables[Math.min(minTable[kk][lo], minTable[kk][hi - (1 << kk)])];
+  }
+
+  int size() {
+    return names.length;
+  }
+
+  private int lowerBound(String str) {
+    int pos = Arrays.binarySearch(names, str);
+    return pos >= 0 ? pos : -pos - 1;
+  }
+
+  private static String key(String name) {
+    return name.toLowerCase(Locale.ENGLISH);
+  }
+}
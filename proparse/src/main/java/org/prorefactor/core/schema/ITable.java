@@ -15,6 +15,7 @@
  ********************************************************************************/
 package org.prorefactor.core.schema;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.SortedSet;
 
@@ -59,6 +60,18 @@ public interface ITable {
    */
   List<IField> getFieldPosOrder();
 
+  /**
+   * Names of fields in field position order. Implementations building fields on demand can return names without
+   * building field objects.
+   */
+  default List<String> getFieldNames() {
+    List<String> list = new ArrayList<>();
+    for (IField fld : getFieldPosOrder()) {
+      list.add(fld.getName());
+    }
+    return list;
+  }
+
   List<IIndex> getIndexes();
   
   IIndex lookupIndex(String name);
@@ -0,0 +1,123 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Riverside Software
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU Lesser General Public License v3.0
+ * which is available at https://www.gnu.org/licenses/lgpl-3.0.txt
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR LGPL-3.0
+ ********************************************************************************/
+package org.prorefactor.core.schema;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Case-insensitive dictionary of named objects, supporting exact and abbreviated lookups without any allocation. Backed
+ * by a collection already sorted in case-insensitive name order (typically a TreeSet with one of the comparators of
+ * {@link Constants}), which can still receive new elements: the sorted snapshot is rebuilt on the first lookup after
+ * the collection size has changed.
+ */
+public class NameDictionary<T> {
+  private final Collection<T> elements;
+  private final Function<T, String> nameFunction;
+  private volatile Snapshot snapshot;
+
+  /**
+   * @param elements Collection iterated in case-insensitive name order
+   * @param nameFunction Returns name of an element
+   */
+  public NameDictionary(Collection<T> elements, Function<T, String> nameFunction) {
+    this.elements = elements;
+    this.nameFunction = nameFunction;
+  }
+
+  /**
+   * @return Element with this name (case-insensitive), or null
+   */
+  public T lookupExact(String name) {
+    Snapshot snap = getSnapshot();
+    int pos = snap.lowerBound(name);
+    if ((pos < snap.names.length) && snap.names[pos].equalsIgnoreCase(name))
+      return snap.get(pos);
+    return null;
+  }
+
+  /**
+   * @return Element with this name, or first element (in name order) whose name starts with this name, or null
+   */
+  public T lookupPrefix(String name) {
+    Snapshot snap = getSnapshot();
+    int pos = snap.lowerBound(name);
+    if ((pos < snap.names.length) && startsWith(snap.names[pos], name))
+      return snap.get(pos);
+    return null;
+  }
+
+  /**
+   * @return Element with this name, or the only element whose name starts with this name. Null if not found or if
+   *         abbreviation is ambiguous
+   */
+  public T lookupUniquePrefix(String name) {
+    Snapshot snap = getSnapshot();
+    int pos = snap.lowerBound(name);
+    if ((pos >= snap.names.length) || !startsWith(snap.names[pos], name))
+      return null;
+    if ((name.length() < snap.names[pos].length()) && (pos + 1 < snap.names.length)
+        && startsWith(snap.names[pos + 1], name))
+      return null;
+    return snap.get(pos);
+  }
+
+  private static boolean startsWith(String str, String prefix) {
+    return str.regionMatches(true, 0, prefix, 0, prefix.length());
+  }
+
+  private Snapshot getSnapshot() {
+    Snapshot snap = snapshot;
+    if ((snap == null) || (snap.names.length != elements.size())) {
+      snap = new Snapshot(elements.toArray());
+      snapshot = snap;
+    }
+    return snap;
+  }
+
+  private final class Snapshot {
+    private final Object[] values;
+    private final String[] names;
+
+    Snapshot(Object[] values) {
+      this.values = values;
+      this.names = new String[values.length];
+      for (int zz = 0; zz < values.length; zz++) {
+        names[zz] = nameFunction.apply(get(zz));
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int pos) {
+      return (T) values[pos];
+    }
+
+    /**
+     * Position of first name greater than or equal to this one
+     */
+    int lowerBound(String name) {
+      int lo = 0;
+      int hi = names.length;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (String.CASE_INSENSITIVE_ORDER.compare(names[mid], name) < 0)
+          lo = mid + 1;
+        else
+          hi = mid;
+      }
+      return lo;
+    }
+  }
+}
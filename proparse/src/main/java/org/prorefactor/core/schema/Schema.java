@@ -20,14 +20,16 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.prorefactor.treeparser.DataType;
 import org.slf4j.Logger;
@@ -40,7 +42,8 @@ import com.google.common.io.LineProcessor;
 
 /**
  * Schema is a singleton with methods and fields for working with database schema names, and references to those from
- * 4gl compile units.
+ * 4gl compile units. Once loaded, lookups don't modify any internal structure, so that the same instance can be shared
+ * between threads.
  */
 public class Schema implements ISchema {
   private static final Logger LOGGER = LoggerFactory.getLogger(Schema.class);
@@ -56,9 +59,14 @@ public class Schema implements ISchema {
   };
 
 
-  private final Map<String, String> aliases = new HashMap<>();
+  private final Map<String, String> aliases = new ConcurrentHashMap<>();
   private final SortedSet<IDatabase> dbSet = new TreeSet<>(Constants.DB_NAME_ORDER);
   private final SortedSet<ITable> allTables = new TreeSet<>(ALLTABLES_ORDER);
+  private final NameDictionary<IDatabase> dbNames = new NameDictionary<>(dbSet, IDatabase::getName);
+  private final NameDictionary<ITable> tableNames = new NameDictionary<>(allTables, ITable::getName);
+  private final Map<IDatabase, NameDictionary<ITable>> tableNamesPerDb = new ConcurrentHashMap<>();
+  // Built on first unqualified field lookup
+  private volatile FieldNameIndex fieldIndex;
 
   public Schema(String file) throws IOException {
     this(file, false);
@@ -119,24 +127,38 @@ public class Schema implements ISchema {
     return allTables.iterator();
   }
 
+  /**
+   * Add meta-schema tables (_File, _Field, ...) to each database. Meta-schema is only read once per JVM, and then copied
+   * in each database.
+   */
   public final void injectMetaSchema() {
+    fieldIndex = null;
     for (IDatabase db : dbSet) {
-      SchemaLineProcessor lineProcessor = new SchemaLineProcessor(db);
-      try (BufferedReader reader = new BufferedReader(
-          new InputStreamReader(this.getClass().getResourceAsStream("/meta.txt")))) {
-        String line;
-        while (((line = reader.readLine()) != null) && lineProcessor.processLine(line)) {
-        }
-      } catch (IOException caught) {
-        LOGGER.error("Unable to open file 'meta.txt'", caught);
+      for (ITable tbl : MetaSchema.TEMPLATE.getTableSet()) {
+        copyMetaTable(tbl, db);
+      }
+    }
+  }
+
+  private void copyMetaTable(ITable template, IDatabase db) {
+    Table table = new Table(template.getName(), db);
+    allTables.add(table);
+    for (IField fld : template.getFieldPosOrder()) {
+      fld.copyBare(table);
+    }
+    for (IIndex idx : template.getIndexes()) {
+      Index i = new Index(table, idx.getName(), idx.isUnique(), idx.isPrimary());
+      for (IField fld : idx.getFields()) {
+        i.addField(table.lookupField(fld.getName()));
       }
+      table.add(i);
     }
   }
 
   private final void loadSchema(File file) throws IOException {
     Database db = new Database(Files.getNameWithoutExtension(file.getName()));
     dbSet.add(db);
-    Files.asCharSource(file, Charset.defaultCharset()).readLines(new SchemaLineProcessor(db));
+    Files.asCharSource(file, Charset.defaultCharset()).readLines(new SchemaLineProcessor(db, allTables));
   }
 
   /**
@@ -176,7 +198,7 @@ public class Schema implements ISchema {
         return firstTry;
       return lookupMetaTable(inName);
     }
-    return lookupTableCheckName(allTables.tailSet(new Table(inName)), inName);
+    return tableNames.lookupUniquePrefix(inName);
   }
 
   @Override
@@ -184,52 +206,47 @@ public class Schema implements ISchema {
     IDatabase db = lookupDatabase(dbName);
     if (db == null)
       return null;
-    return lookupTableCheckName(db.getTableSet().tailSet(new Table(tableName)), tableName);
+    return getTableNames(db).lookupUniquePrefix(tableName);
   }
 
   @Override
   public IField lookupUnqualifiedField(String name) {
-    IField field;
-    for (ITable table : allTables) {
-      field = table.lookupField(name);
-      if (field != null)
-        return field;
+    // Same result as asking each table in allTables order, but only the matching table is queried
+    ITable table = getFieldIndex().lookupTable(name);
+    return table == null ? null : table.lookupField(name);
+  }
+
+  private FieldNameIndex getFieldIndex() {
+    FieldNameIndex idx = fieldIndex;
+    if (idx == null) {
+      synchronized (this) {
+        idx = fieldIndex;
+        if (idx == null) {
+          idx = new FieldNameIndex(allTables);
+          fieldIndex = idx;
+        }
+      }
     }
-    return null;
+    return idx;
   }
 
   /**
    * Lookup Database by name. Called twice by lookupDatabase().
    */
   private IDatabase lookupDatabase2(String inName) {
-    SortedSet<IDatabase> dbTailSet = dbSet.tailSet(new Database(inName));
-    if (dbTailSet.isEmpty())
-      return null;
-    IDatabase db = dbTailSet.first();
-    if (db == null || db.getName().compareToIgnoreCase(inName) != 0)
-      return null;
-    return db;
+    return dbNames.lookupExact(inName);
   }
 
   // It turns out that we *do* have to test for uniqueness - we can't just leave
   // that job to the compiler. That's because when looking up schema names for
   // a DEF..LIKE x, if x is non-unique in schema, then we move on to temp/work/buffer names.
-  private ITable lookupTableCheckName(SortedSet<ITable> set, String name) {
-    String lname = name.toLowerCase();
-    Iterator<ITable> it = set.iterator();
-    if (!it.hasNext())
-      return null;
-    ITable table = it.next();
-    // test that we got a match
-    if (!table.getName().toLowerCase().startsWith(lname))
-      return null;
-    // test that we got a unique match
-    if (lname.length() < table.getName().length() && it.hasNext()) {
-      ITable next = it.next();
-      if (next.getName().toLowerCase().startsWith(lname))
-        return null;
-    }
-    return table;
+  // See NameDictionary#lookupUniquePrefix().
+  private NameDictionary<ITable> getTableNames(IDatabase db) {
+    return tableNamesPerDb.computeIfAbsent(db, Schema::newTableNames);
+  }
+
+  private static NameDictionary<ITable> newTableNames(IDatabase db) {
+    return new NameDictionary<>(db.getTableSet(), ITable::getName);
   }
 
   /** Lookup a qualified table name */
@@ -254,15 +271,42 @@ public class Schema implements ISchema {
     if ((db == null) || (parts[1] == null) || (!parts[1].startsWith("_"))) {
       return null;
     }
-    return lookupTableCheckName(db.getTableSet().tailSet(new Table(parts[1])), parts[1]);
+    return getTableNames(db).lookupUniquePrefix(parts[1]);
+  }
+
+  /**
+   * Meta-schema tables in a template database, only used as a source of copies. Lazily loaded on first use.
+   */
+  private static final class MetaSchema {
+    private static final IDatabase TEMPLATE = load();
+
+    private MetaSchema() {
+      // No constructor
+    }
+
+    private static IDatabase load() {
+      IDatabase db = new Database("meta");
+      SchemaLineProcessor lineProcessor = new SchemaLineProcessor(db, new ArrayList<>());
+      try (BufferedReader reader = new BufferedReader(
+          new InputStreamReader(Schema.class.getResourceAsStream("/meta.txt")))) {
+        String line;
+        while (((line = reader.readLine()) != null) && lineProcessor.processLine(line)) {
+        }
+      } catch (IOException caught) {
+        LOGGER.error("Unable to open file 'meta.txt'", caught);
+      }
+      return db;
+    }
   }
 
-  private class SchemaLineProcessor implements LineProcessor<Void> {
-    private IDatabase currDatabase;
+  private static class SchemaLineProcessor implements LineProcessor<Void> {
+    private final IDatabase currDatabase;
+    private final Collection<ITable> tables;
     private Table currTable;
 
-    public SchemaLineProcessor(IDatabase currDatabase) {
+    public SchemaLineProcessor(IDatabase currDatabase, Collection<ITable> tables) {
       this.currDatabase = currDatabase;
+      this.tables = tables;
     }
 
     @Override
@@ -272,7 +316,7 @@ public class Schema implements ISchema {
       } else if (line.startsWith("T")) {
         currTable = new Table(line.substring(1), currDatabase);
         currDatabase.add(currTable);
-        allTables.add(currTable);
+        tables.add(currTable);
       } else if (line.startsWith("F")) {
         // FieldName:DataType:Extent
         int ch1 = line.indexOf(':');
@@ -284,7 +328,6 @@ public class Schema implements ISchema {
         if (f.getDataType() == null)
           throw new IOException("Unknown datatype: " + line.substring(ch1 + 1, ch2));
         f.setExtent(Integer.parseInt(line.substring(ch2 + 1)));
-        currTable.add(f);
       } else if (line.startsWith("I")) {
         if (currTable == null)
           throw new IOException("No associated table for " + line);
@@ -35,6 +35,7 @@ public class Table implements ITable {
   private List<IField> fieldPosOrder = new ArrayList<>();
   private List<IIndex> indexes = new ArrayList<>();
   private SortedSet<IField> fieldSet = new TreeSet<>(Constants.FIELD_NAME_ORDER);
+  private final NameDictionary<IField> fieldNames = new NameDictionary<>(fieldSet, IField::getName);
 
   /** Constructor for schema */
   public Table(String name, IDatabase database) {
@@ -121,13 +122,7 @@ public class Table implements ITable {
 
   @Override
   public IField lookupField(String lookupName) {
-    SortedSet<IField> fieldTailSet = fieldSet.tailSet(new Field(lookupName));
-    if (fieldTailSet.isEmpty())
-      return null;
-    IField field = fieldTailSet.first();
-    if (field == null || !field.getName().toLowerCase().startsWith(lookupName.toLowerCase()))
-      return null;
-    return field;
+    return fieldNames.lookupPrefix(lookupName);
   }
 
   @Override
@@ -53,15 +53,7 @@ public class RootSymbolScope extends SymbolScope {
       return true;
 
     // Then look through rcode
-    ITypeInfo info = typeInfo;
-    while (info != null) {
-      if (info.hasProperty(name)) {
-        return true;
-      }
-      info = getSession().getTypeInfo(info.getParentTypeName());
-    }
-
-    return false;
+    return (typeInfo != null) && getSession().getTypeHierarchy(typeInfo).hasProperty(name);
   }
 
   @Override
@@ -73,12 +65,8 @@ public class RootSymbolScope extends SymbolScope {
     }
 
     // Then look through rcode
-    ITypeInfo info = typeInfo;
-    while (info != null) {
-      if (info.hasBuffer(inName)) {
-        return FieldType.TTABLE;
-      }
-      info = getSession().getTypeInfo(info.getParentTypeName());
+    if ((typeInfo != null) && (getSession().getTypeHierarchy(typeInfo).getBuffer(inName) != null)) {
+      return FieldType.TTABLE;
     }
 
     return null;
@@ -93,12 +81,8 @@ public class RootSymbolScope extends SymbolScope {
     String lname = name.toLowerCase();
     // Methods take precedent over built-in functions. The compiler (10.2b)
     // does not seem to try recognize by function/method signature.
-    ITypeInfo info = typeInfo;
-    while (info != null) {
-      if (info.hasMethod(name)) {
-        return ABLNodeType.LOCAL_METHOD_REF.getType();
-      }
-      info = getSession().getTypeInfo(info.getParentTypeName());
+    if ((typeInfo != null) && getSession().getTypeHierarchy(typeInfo).hasMethod(name)) {
+      return ABLNodeType.LOCAL_METHOD_REF.getType();
     }
 
     if (functionSet.contains(lname))
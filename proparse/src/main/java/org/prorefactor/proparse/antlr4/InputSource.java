@@ -73,22 +73,19 @@ public class InputSource {
   }
 
   public InputSource(int sourceNum, File file, Charset charset, int fileIndex, boolean skipXCode, boolean isPrimary) throws IOException {
+    this(sourceNum, file, readFile(file, charset, skipXCode), fileIndex, isPrimary);
+  }
+
+  /**
+   * Input source from already decoded file content, see {@link #readFile(File, Charset, boolean)}
+   */
+  public InputSource(int sourceNum, File file, String content, int fileIndex, boolean isPrimary) {
     LOGGER.trace("New InputSource object for file '{}'", file.getName());
     this.sourceNum = sourceNum;
     this.primaryInput = isPrimary;
     this.fileIndex = fileIndex;
     this.macroExpansion = false;
-    try (InputStream input = new FileInputStream(file)) {
-      ByteSource src = ByteSource.wrap(ByteStreams.toByteArray(input));
-      if (src.read(new XCodedFileByteProcessor())) {
-        if (skipXCode)
-          this.fileContent = " ";
-        else
-          throw new XCodedFileException(file.getName());
-      } else {
-        this.fileContent = src.asCharSource(charset).read();
-      }
-    }
+    this.fileContent = content;
     // Skip first character if it's a BOM
     if (!fileContent.isEmpty() && fileContent.charAt(0) == 0xFEFF)
       currPos++;
@@ -113,6 +110,25 @@ public class InputSource {
       currPos++;
   }
 
+  /**
+   * Read and decode file content
+   * 
+   * @throws XCodedFileException If file is xcode'd and skipXCode is false
+   */
+  public static String readFile(File file, Charset charset, boolean skipXCode) throws IOException {
+    try (InputStream input = new FileInputStream(file)) {
+      ByteSource src = ByteSource.wrap(ByteStreams.toByteArray(input));
+      if (src.read(new XCodedFileByteProcessor())) {
+        if (skipXCode)
+          return " ";
+        else
+          throw new XCodedFileException(file.getName());
+      } else {
+        return src.asCharSource(charset).read();
+      }
+    }
+  }
+
   public int get() {
     // We use nextLine and nextCol - that way '\n' can have a column number at the end of the line it's on, rather than
     // at column 0 of the following line.
@@ -178,7 +194,7 @@ public class InputSource {
   /**
    * XCode'd files start with byte 0x11 or 0x13
    */
-  private class XCodedFileByteProcessor implements ByteProcessor<Boolean> {
+  private static class XCodedFileByteProcessor implements ByteProcessor<Boolean> {
     private boolean isXCoded = false;
 
     @Override
@@ -852,7 +852,9 @@ public class ProgressLexer implements TokenSource, IPreprocessor {
       throw new UncheckedIOException(new IncludeFileNotFoundException(getFilename(), referencedWithName));
     }
     try {
-      currentInput = new InputSource(++sourceCounter, ff, session.getCharset(), addFilename(fName), ppSettings.getSkipXCode(), false);
+      String content = session.getIncludeCache().get(ff,
+          f -> InputSource.readFile(f, session.getCharset(), ppSettings.getSkipXCode()));
+      currentInput = new InputSource(++sourceCounter, ff, content, addFilename(fName), false);
     } catch (IOException caught) {
       throw new UncheckedIOException(caught);
     }
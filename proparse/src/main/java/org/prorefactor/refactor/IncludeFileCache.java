@@ -0,0 +1,111 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Riverside Software
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU Lesser General Public License v3.0
+ * which is available at https://www.gnu.org/licenses/lgpl-3.0.txt
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR LGPL-3.0
+ ********************************************************************************/
+package org.prorefactor.refactor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Decoded content of include files, shared by all lexers of a session. Entries are keyed by canonical path, last
+ * modification time and size, so that a modified file is read again. Cache is bounded by the total number of characters,
+ * least recently used entries are evicted first.
+ */
+public class IncludeFileCache {
+  /**
+   * Default maximum number of characters kept in cache
+   */
+  public static final long DEFAULT_MAX_SIZE = 32L * 1024 * 1024;
+
+  private final Cache<Key, String> cache;
+
+  public IncludeFileCache(long maxSize) {
+    cache = CacheBuilder.newBuilder().maximumWeight(maxSize).weigher(
+        (Key key, String value) -> value.length()).recordStats().build();
+  }
+
+  /**
+   * Returns content of file, either from cache or from the loader
+   *
+   * @throws IOException If file can't be read or decoded by loader. Content is not kept in cache in this case.
+   */
+  public String get(File file, ContentLoader loader) throws IOException {
+    Key key = new Key(file.getCanonicalPath(), file.lastModified(), file.length());
+    try {
+      return cache.get(key, () -> loader.load(file));
+    } catch (ExecutionException | UncheckedExecutionException caught) {
+      Throwables.throwIfInstanceOf(caught.getCause(), IOException.class);
+      Throwables.throwIfUnchecked(caught.getCause());
+      throw new IllegalStateException(caught.getCause());
+    }
+  }
+
+  public long getHitCount() {
+    return cache.stats().hitCount();
+  }
+
+  public long getMissCount() {
+    return cache.stats().missCount();
+  }
+
+  /**
+   * Number of characters currently in cache
+   */
+  public long getSize() {
+    return cache.asMap().values().stream().mapToLong(String::length).sum();
+  }
+
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  @FunctionalInterface
+  public interface ContentLoader {
+    String load(File file) throws IOException;
+  }
+
+  private static final class Key {
+    private final String path;
+    private final long lastModified;
+    private final long size;
+
+    Key(String path, long lastModified, long size) {
+      this.path = path;
+      this.lastModified = lastModified;
+      this.size = size;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Key))
+        return false;
+      Key other = (Key) obj;
+      return (lastModified == other.lastModified) && (size == other.size) && path.equals(other.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, lastModified, size);
+    }
+  }
+}
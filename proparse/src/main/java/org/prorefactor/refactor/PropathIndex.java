@@ -0,0 +1,200 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Riverside Software
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU Lesser General Public License v3.0
+ * which is available at https://www.gnu.org/licenses/lgpl-3.0.txt
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR LGPL-3.0
+ ********************************************************************************/
+package org.prorefactor.refactor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Index of all files and directories found in PROPATH entries, so that a relative name can be resolved without probing
+ * the file system once per entry. When the same relative name exists in several entries, the first entry wins (same
+ * semantic as the OpenEdge runtime). Index is built when the object is created, and has to be explicitly rebuilt with
+ * {@link #revalidate()} when the directory tree changes.
+ */
+public class PropathIndex {
+  private static final Logger LOG = LoggerFactory.getLogger(PropathIndex.class);
+
+  private final List<String> entries;
+  private final boolean ignoreCase;
+
+  private volatile Map<String, Location> index = Collections.emptyMap();
+
+  /**
+   * @param entries PROPATH entries, in order
+   * @param ignoreCase Resolve names in a case-insensitive way (for sources coming from Windows)
+   */
+  public PropathIndex(List<String> entries, boolean ignoreCase) {
+    this.entries = ImmutableList.copyOf(entries);
+    this.ignoreCase = ignoreCase;
+    revalidate();
+  }
+
+  /**
+   * Scan again all PROPATH entries. Lookups executed in other threads keep on using the previous index until the new one
+   * is fully built.
+   */
+  public final void revalidate() {
+    long startTime = System.currentTimeMillis();
+    Map<String, Location> map = new HashMap<>();
+    for (int zz = 0; zz < entries.size(); zz++) {
+      scan(zz, map);
+    }
+    index = map;
+    LOG.debug("PROPATH index built in {} ms - {} entries", System.currentTimeMillis() - startTime, map.size());
+  }
+
+  public boolean isIgnoreCase() {
+    return ignoreCase;
+  }
+
+  /**
+   * Number of files and directories in the index
+   */
+  public int size() {
+    return index.size();
+  }
+
+  /**
+   * @return True if name can be resolved by this index, i.e. relative name without any '..' segment
+   */
+  public static boolean accepts(String fileName) {
+    if (Strings.isNullOrEmpty(fileName))
+      return false;
+    char c = fileName.charAt(0);
+    if ((c == '/') || (c == '\\') || ((fileName.length() > 1) && (fileName.charAt(1) == ':')))
+      return false;
+    for (String str : fileName.replace('\\', '/').split("/")) {
+      if ("..".equals(str))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Find a file (or directory) on the PROPATH
+   *
+   * @return Null if not found or if name is not accepted by the index
+   */
+  @Nullable
+  public File lookup(String fileName) {
+    Location loc = find(fileName);
+    return loc == null ? null : loc.file;
+  }
+
+  /**
+   * @return Zero-based position of the first PROPATH entry containing this file, or -1 if not found
+   */
+  public int lookupEntry(String fileName) {
+    Location loc = find(fileName);
+    return loc == null ? -1 : loc.entry;
+  }
+
+  private Location find(String fileName) {
+    if (!accepts(fileName))
+      return null;
+    return index.get(key(fileName));
+  }
+
+  private String key(String fileName) {
+    StringBuilder sb = new StringBuilder(fileName.length());
+    for (String str : fileName.replace('\\', '/').split("/")) {
+      if (str.isEmpty() || ".".equals(str))
+        continue;
+      if (sb.length() > 0)
+        sb.append('/');
+      sb.append(str);
+    }
+    return ignoreCase ? sb.toString().toLowerCase(Locale.ENGLISH) : sb.toString();
+  }
+
+  private void scan(int entryNum, Map<String, Location> map) {
+    String entry = entries.get(entryNum);
+    if (Strings.isNullOrEmpty(entry))
+      return;
+    Path root;
+    try {
+      root = Paths.get(entry);
+    } catch (InvalidPathException caught) {
+      LOG.debug("Invalid PROPATH entry '{}'", entry);
+      return;
+    }
+    if (!Files.isDirectory(root))
+      return;
+
+    try {
+      Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+          new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+              if (!dir.equals(root))
+                add(dir);
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+              add(file);
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+              // Symlink loops and unreadable directories are just skipped
+              LOG.debug("Unable to read '{}' - {}", file, exc.getMessage());
+              return FileVisitResult.CONTINUE;
+            }
+
+            private void add(Path path) {
+              String relative = root.relativize(path).toString();
+              map.putIfAbsent(key(relative), new Location(entryNum, new File(entry, relative)));
+            }
+          });
+    } catch (IOException caught) {
+      LOG.error("Unable to index PROPATH entry '{}'", entry, caught);
+    }
+  }
+
+  private static final class Location {
+    private final int entry;
+    private final File file;
+
+    Location(int entry, File file) {
+      this.entry = entry;
+      this.file = file;
+    }
+  }
+}
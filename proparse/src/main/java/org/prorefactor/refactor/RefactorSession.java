@@ -18,9 +18,8 @@ package org.prorefactor.refactor;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nullable;
 
@@ -37,6 +36,7 @@ import eu.rssw.pct.elements.ITypeInfo;
 /**
  * This class provides an interface to an org.prorefactor.refactor session. Much of this class was originally put in
  * place for use of Proparse within an Eclipse environment, with references to multiple projects within Eclipse.
+ * A single session can be shared by several threads parsing different files.
  */
 public class RefactorSession {
   private static final Logger LOG = LoggerFactory.getLogger(RefactorSession.class);
@@ -46,7 +46,13 @@ public class RefactorSession {
   private final Charset charset;
 
   // Structure from rcode
-  private final Map<String, ITypeInfo> typeInfoMap = Collections.synchronizedMap(new HashMap<>());
+  private final Map<String, ITypeInfo> typeInfoMap = new ConcurrentHashMap<>();
+  // Flattened class hierarchies, discarded as soon as new type info is injected
+  private final Map<String, TypeHierarchy> hierarchies = new ConcurrentHashMap<>();
+  // Content of include files
+  private final IncludeFileCache includeCache;
+  // Optional index of PROPATH content
+  private PropathIndex propathIndex;
 
   @Inject
   public RefactorSession(IProparseSettings proparseSettings, ISchema schema) {
@@ -55,9 +61,17 @@ public class RefactorSession {
 
   public RefactorSession(IProparseSettings proparseSettings, ISchema schema,
       Charset charset) {
+    this(proparseSettings, schema, charset, IncludeFileCache.DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * @param includeCacheSize Maximum number of characters of include files kept in memory
+   */
+  public RefactorSession(IProparseSettings proparseSettings, ISchema schema, Charset charset, long includeCacheSize) {
     this.proparseSettings = proparseSettings;
     this.schema = schema;
     this.charset = charset;
+    this.includeCache = new IncludeFileCache(includeCacheSize);
   }
 
   public Charset getCharset() {
@@ -68,6 +82,31 @@ public class RefactorSession {
     return schema;
   }
 
+  public IncludeFileCache getIncludeCache() {
+    return includeCache;
+  }
+
+  @Nullable
+  public PropathIndex getPropathIndex() {
+    return propathIndex;
+  }
+
+  /**
+   * Resolve files on the PROPATH with an index instead of probing each entry. Index is not used for absolute names or
+   * names containing '..'. Set to null to stop using the index.
+   */
+  public void setPropathIndex(@Nullable PropathIndex propathIndex) {
+    this.propathIndex = propathIndex;
+  }
+
+  /**
+   * Build and use an index of current PROPATH
+   */
+  public PropathIndex enablePropathIndex(boolean ignoreCase) {
+    propathIndex = new PropathIndex(proparseSettings.getPropathAsList(), ignoreCase);
+    return propathIndex;
+  }
+
   /**
    * Returns the Settings for the currently loaded project
    */
@@ -98,6 +137,22 @@ public class RefactorSession {
     if ((unit == null) || Strings.isNullOrEmpty(unit.getTypeName()))
       return;
     typeInfoMap.put(unit.getTypeName(), unit);
+    if (!hierarchies.isEmpty())
+      hierarchies.clear();
+  }
+
+  /**
+   * Returns members of this class and of its parent classes. Result is computed once per class.
+   */
+  public TypeHierarchy getTypeHierarchy(ITypeInfo info) {
+    if (Strings.isNullOrEmpty(info.getTypeName()))
+      return new TypeHierarchy(info, this::getTypeInfo);
+    TypeHierarchy hierarchy = hierarchies.get(info.getTypeName());
+    if ((hierarchy == null) || (hierarchy.getTypeInfo() != info)) {
+      hierarchy = new TypeHierarchy(info, this::getTypeInfo);
+      hierarchies.put(info.getTypeName(), hierarchy);
+    }
+    return hierarchy;
   }
 
   public File findFile3(String fileName) {
@@ -114,6 +169,10 @@ public class RefactorSession {
         return new File(fileName);
     }
 
+    PropathIndex idx = propathIndex;
+    if ((idx != null) && PropathIndex.accepts(fileName))
+      return idx.lookup(fileName);
+
     for (String p : proparseSettings.getPropathAsList()) {
       String tryPath = p + File.separatorChar + fileName;
       if (new File(tryPath).exists())
@@ -136,6 +195,12 @@ public class RefactorSession {
         return fileName;
     }
 
+    PropathIndex idx = propathIndex;
+    if ((idx != null) && PropathIndex.accepts(fileName)) {
+      File f = idx.lookup(fileName);
+      return f == null ? "" : f.getPath();
+    }
+
     for (String p : proparseSettings.getPropathAsList()) {
       String tryPath = p + File.separatorChar + fileName;
       if (new File(tryPath).exists())
@@ -162,6 +227,10 @@ public class RefactorSession {
         return inFile;
       return null;
     }
+    PropathIndex idx = propathIndex;
+    if ((idx != null) && PropathIndex.accepts(filename))
+      return idx.lookup(filename);
+
     String propath = proparseSettings.getPropath();
     String[] parts = propath.split(",");
     for (String part : parts) {
@@ -0,0 +1,90 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Riverside Software
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU Lesser General Public License v3.0
+ * which is available at https://www.gnu.org/licenses/lgpl-3.0.txt
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR LGPL-3.0
+ ********************************************************************************/
+package org.prorefactor.refactor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import eu.rssw.pct.elements.ElementIndex;
+import eu.rssw.pct.elements.IBufferElement;
+import eu.rssw.pct.elements.IMethodElement;
+import eu.rssw.pct.elements.IPropertyElement;
+import eu.rssw.pct.elements.ITableElement;
+import eu.rssw.pct.elements.ITypeInfo;
+
+/**
+ * Members of a class and of all its parent classes, flattened in a single set of case-insensitive maps. When a name is
+ * defined at different levels, the element of the nearest class wins (same result as walking the parent chain).
+ */
+public class TypeHierarchy {
+  private final ITypeInfo typeInfo;
+  private final Set<String> methods = new HashSet<>();
+  // Only public and protected properties
+  private final Map<String, IPropertyElement> properties = new HashMap<>();
+  private final Map<String, ITableElement> tables = new HashMap<>();
+  private final Map<String, IBufferElement> buffers = new HashMap<>();
+
+  /**
+   * @param typeInfo Class
+   * @param resolver Returns type info from type name, or null if not found
+   */
+  public TypeHierarchy(ITypeInfo typeInfo, Function<String, ITypeInfo> resolver) {
+    this.typeInfo = typeInfo;
+    Set<ITypeInfo> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    ITypeInfo info = typeInfo;
+    // Malformed rcode could generate a cycle in parent chain
+    while ((info != null) && visited.add(info)) {
+      for (IMethodElement mthd : info.getMethods()) {
+        methods.add(ElementIndex.key(mthd.getName()));
+      }
+      for (IPropertyElement prop : info.getProperties()) {
+        if (prop.isPublic() || prop.isProtected())
+          properties.putIfAbsent(ElementIndex.key(prop.getName()), prop);
+      }
+      for (ITableElement tbl : info.getTables()) {
+        tables.putIfAbsent(ElementIndex.key(tbl.getName()), tbl);
+      }
+      for (IBufferElement buf : info.getBuffers()) {
+        buffers.putIfAbsent(ElementIndex.key(buf.getName()), buf);
+      }
+      info = resolver.apply(info.getParentTypeName());
+    }
+  }
+
+  public ITypeInfo getTypeInfo() {
+    return typeInfo;
+  }
+
+  public boolean hasMethod(String name) {
+    return methods.contains(ElementIndex.key(name));
+  }
+
+  public boolean hasProperty(String name) {
+    return properties.containsKey(ElementIndex.key(name));
+  }
+
+  public IBufferElement getBuffer(String name) {
+    return buffers.get(ElementIndex.key(name));
+  }
+
+  public ITableElement getTempTable(String name) {
+    return tables.get(ElementIndex.key(name));
+  }
+}
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.function.Supplier;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -41,11 +42,13 @@ import org.prorefactor.refactor.RefactorSession;
 import org.prorefactor.treeparser01.ITreeParserAction;
 import org.prorefactor.treeparser01.TP01Support;
 import org.prorefactor.treeparser01.TreeParser01;
+import org.prorefactor.xref.XrefModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 
 import com.google.common.base.Strings;
+import com.google.common.base.Suppliers;
 import com.google.common.io.ByteSource;
 import com.google.common.io.ByteStreams;
 
@@ -74,7 +77,8 @@ public class ParseUnit {
   private List<EditableCodeSection> sections;
   private TreeParserRootSymbolScope rootScope;
   private JPNodeMetrics metrics;
-  private Document xref = null;
+  private Supplier<Document> xref = null;
+  private XrefModel xrefModel = null;
   private ITypeInfo typeInfo = null;
   private List<Integer> trxBlocks;
   // TEMP-ANTLR4
@@ -247,7 +251,19 @@ public class ParseUnit {
   }
 
   public void attachXref(Document xref) {
-    this.xref = xref;
+    this.xref = xref == null ? null : Suppliers.ofInstance(xref);
+  }
+
+  /**
+   * Attach XREF document which is only built on first call to {@link #getXref()}, so that the DOM tree doesn't have to
+   * be created when no rule is using it
+   */
+  public void attachLazyXref(Supplier<Document> xref) {
+    this.xref = xref == null ? null : Suppliers.memoize(xref::get);
+  }
+
+  public void attachXrefModel(XrefModel xrefModel) {
+    this.xrefModel = xrefModel;
   }
 
   public void attachTypeInfo(ITypeInfo unit) {
@@ -260,7 +276,15 @@ public class ParseUnit {
 
   @Nullable
   public Document getXref() {
-    return xref;
+    return xref == null ? null : xref.get();
+  }
+
+  /**
+   * @return XREF references, or null if no XREF file was attached
+   */
+  @Nullable
+  public XrefModel getXrefModel() {
+    return xrefModel;
   }
 
   @Nullable
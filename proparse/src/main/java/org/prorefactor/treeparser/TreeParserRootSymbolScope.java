@@ -34,6 +34,7 @@ import org.sonar.plugins.openedge.api.objects.RCodeTTWrapper;
 import com.google.common.base.Strings;
 
 import eu.rssw.pct.elements.IBufferElement;
+import eu.rssw.pct.elements.ITableElement;
 import eu.rssw.pct.elements.ITypeInfo;
 
 /**
@@ -157,12 +158,8 @@ public class TreeParserRootSymbolScope extends TreeParserSymbolScope {
       return var;
     }
 
-    ITypeInfo info = typeInfo;
-    while (info != null) {
-      if (info.hasProperty(name)) {
-        return new Variable(name, this);
-      }
-      info = refSession.getTypeInfo(info.getParentTypeName());
+    if ((typeInfo != null) && refSession.getTypeHierarchy(typeInfo).hasProperty(name)) {
+      return new Variable(name, this);
     }
     return null;
   }
@@ -195,23 +192,19 @@ public class TreeParserRootSymbolScope extends TreeParserSymbolScope {
       return buff;
     }
 
-    ITypeInfo info = typeInfo;
-    while (info != null) {
-      if (info.hasBuffer(name)) {
-        IBufferElement elem = info.getBuffer(name);
-        ITable tbl = null;
-        if (!Strings.isNullOrEmpty(elem.getDatabaseName())) {
-          tbl = refSession.getSchema().lookupTable(elem.getDatabaseName(), elem.getTableName());
-        } else {
-          tbl = lookupTempTable(elem.getTableName()).getTable();
-        }
-        if (tbl == null) {
-          // Defaults to fake temp-table
-          tbl = new Table(name, IConstants.ST_TTABLE);
-        }
-        return new TableBuffer(name, this, tbl);
+    IBufferElement elem = typeInfo == null ? null : refSession.getTypeHierarchy(typeInfo).getBuffer(name);
+    if (elem != null) {
+      ITable tbl = null;
+      if (!Strings.isNullOrEmpty(elem.getDatabaseName())) {
+        tbl = refSession.getSchema().lookupTable(elem.getDatabaseName(), elem.getTableName());
+      } else {
+        tbl = lookupTempTable(elem.getTableName()).getTable();
+      }
+      if (tbl == null) {
+        // Defaults to fake temp-table
+        tbl = new Table(name, IConstants.ST_TTABLE);
       }
-      info = refSession.getTypeInfo(info.getParentTypeName());
+      return new TableBuffer(name, this, tbl);
     }
     return null;
   }
@@ -222,12 +215,9 @@ public class TreeParserRootSymbolScope extends TreeParserSymbolScope {
     if (buff != null) {
       return buff;
     }
-    ITypeInfo info = typeInfo;
-    while (info != null) {
-      if (info.hasTempTable(name)) {
-        return new TableBuffer(name, this, new RCodeTTWrapper(info.getTempTable(name)));
-      }
-      info = refSession.getTypeInfo(info.getParentTypeName());
+    ITableElement elem = typeInfo == null ? null : refSession.getTypeHierarchy(typeInfo).getTempTable(name);
+    if (elem != null) {
+      return new TableBuffer(name, this, new RCodeTTWrapper(elem));
     }
     return null;
   }
@@ -0,0 +1,81 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Riverside Software
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU Lesser General Public License v3.0
+ * which is available at https://www.gnu.org/licenses/lgpl-3.0.txt
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR LGPL-3.0
+ ********************************************************************************/
+package org.prorefactor.xref;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed view of an XML XREF file, with references grouped by Reference-type and by file number and line number. Built
+ * by {@link XrefReader}, and immutable once built.
+ */
+public class XrefModel {
+  private final List<XrefReference> references;
+  private final Map<String, List<XrefReference>> byType = new HashMap<>();
+  private final Map<Long, List<XrefReference>> byLine = new HashMap<>();
+
+  XrefModel(List<XrefReference> references) {
+    this.references = Collections.unmodifiableList(references);
+    for (XrefReference ref : references) {
+      byType.computeIfAbsent(ref.getReferenceType(), key -> new ArrayList<>()).add(ref);
+      byLine.computeIfAbsent(lineKey(ref.getFileNum(), ref.getLineNum()), key -> new ArrayList<>()).add(ref);
+    }
+  }
+
+  /**
+   * @return All references, in file order
+   */
+  public List<XrefReference> getReferences() {
+    return references;
+  }
+
+  /**
+   * @param referenceType Reference-type attribute, such as <code>NEW-SHR-VARIABLE</code>. Case-sensitive.
+   * @return All references of this type, in file order
+   */
+  public List<XrefReference> getReferences(String referenceType) {
+    return Collections.unmodifiableList(byType.getOrDefault(referenceType, Collections.emptyList()));
+  }
+
+  /**
+   * @return References of this type in one file (1 being the main file), in file order
+   */
+  public List<XrefReference> getReferences(String referenceType, int fileNum) {
+    List<XrefReference> list = new ArrayList<>();
+    for (XrefReference ref : byType.getOrDefault(referenceType, Collections.emptyList())) {
+      if (ref.getFileNum() == fileNum)
+        list.add(ref);
+    }
+    return list;
+  }
+
+  /**
+   * @return All references on this line of this file (1 being the main file), in file order
+   */
+  public List<XrefReference> getReferencesAt(int fileNum, int lineNum) {
+    return Collections.unmodifiableList(byLine.getOrDefault(lineKey(fileNum, lineNum), Collections.emptyList()));
+  }
+
+  public int size() {
+    return references.size();
+  }
+
+  private static long lineKey(int fileNum, int lineNum) {
+    return ((long) fileNum << 32) | (lineNum & 0xFFFFFFFFL);
+  }
+}
@@ -0,0 +1,112 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Riverside Software
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU Lesser General Public License v3.0
+ * which is available at https://www.gnu.org/licenses/lgpl-3.0.txt
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR LGPL-3.0
+ ********************************************************************************/
+package org.prorefactor.xref;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streams an XML XREF file (as generated by <code>COMPILE ... XREF-XML</code>) into an {@link XrefModel}, without
+ * building the DOM tree.
+ */
+public final class XrefReader {
+  private static final String SOURCE_ELEMENT = "Source";
+  private static final String REFERENCE_ELEMENT = "Reference";
+
+  // Factory is thread-safe once configured, readers are not
+  private static final XMLInputFactory FACTORY = createFactory();
+
+  private XrefReader() {
+    // No constructor
+  }
+
+  private static XMLInputFactory createFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    return factory;
+  }
+
+  /**
+   * Read XREF content from stream. Stream is not closed.
+   * 
+   * @throws XMLStreamException If XML content is invalid
+   */
+  public static XrefModel read(InputStream input) throws XMLStreamException {
+    List<XrefReference> references = new ArrayList<>();
+    XMLStreamReader reader = FACTORY.createXMLStreamReader(input);
+    try {
+      String fileName = "";
+      XrefReference.Builder current = null;
+      // Depth inside current Reference element
+      int depth = 0;
+      String childName = null;
+      StringBuilder text = new StringBuilder();
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            if (current != null) {
+              depth++;
+              if (depth == 1) {
+                childName = reader.getLocalName();
+                text.setLength(0);
+              }
+            } else if (REFERENCE_ELEMENT.equals(reader.getLocalName())) {
+              current = new XrefReference.Builder(getAttribute(reader, "Reference-type"),
+                  getAttribute(reader, "Object-identifier"), fileName);
+              depth = 0;
+            } else if (SOURCE_ELEMENT.equals(reader.getLocalName())) {
+              fileName = getAttribute(reader, "File-name");
+            }
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.CDATA:
+            if ((current != null) && (depth == 1))
+              text.append(reader.getText());
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            if (current != null) {
+              if (depth == 0) {
+                references.add(current.build());
+                current = null;
+              } else {
+                if (depth == 1)
+                  current.setProperty(childName, text.toString());
+                depth--;
+              }
+            }
+            break;
+          default:
+            break;
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    return new XrefModel(references);
+  }
+
+  private static String getAttribute(XMLStreamReader reader, String name) {
+    String str = reader.getAttributeValue(null, name);
+    return str == null ? "" : str;
+  }
+}
@@ -0,0 +1,185 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Riverside Software
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU Lesser General Public License v3.0
+ * which is available at https://www.gnu.org/licenses/lgpl-3.0.txt
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR LGPL-3.0
+ ********************************************************************************/
+package org.prorefactor.xref;
+
+/**
+ * One <code>Reference</code> element of an XML XREF file. Only direct text children of the element are kept; nested
+ * elements (Class-ref, String-ref, Parameter-ref, ...) are only available through the DOM.
+ */
+public class XrefReference {
+  private final String referenceType;
+  private final String objectIdentifier;
+  private final String fileName;
+  private final int fileNum;
+  private final int lineNum;
+  private final String objectContext;
+  private final String accessMode;
+  private final String dataMemberRef;
+  private final String tempRef;
+  private final String detail;
+  private final boolean isStatic;
+  private final boolean isAbstract;
+
+  XrefReference(Builder builder) {
+    this.referenceType = builder.referenceType;
+    this.objectIdentifier = builder.objectIdentifier;
+    this.fileName = builder.fileName;
+    this.fileNum = builder.fileNum;
+    this.lineNum = builder.lineNum;
+    this.objectContext = builder.objectContext;
+    this.accessMode = builder.accessMode;
+    this.dataMemberRef = builder.dataMemberRef;
+    this.tempRef = builder.tempRef;
+    this.detail = builder.detail;
+    this.isStatic = builder.isStatic;
+    this.isAbstract = builder.isAbstract;
+  }
+
+  /**
+   * Reference-type attribute, such as <code>SEARCH</code> or <code>NEW-SHR-VARIABLE</code>
+   */
+  public String getReferenceType() {
+    return referenceType;
+  }
+
+  /**
+   * Object-identifier attribute
+   */
+  public String getObjectIdentifier() {
+    return objectIdentifier;
+  }
+
+  /**
+   * File-name attribute of the enclosing <code>Source</code> element
+   */
+  public String getFileName() {
+    return fileName;
+  }
+
+  /**
+   * File number, 1 being the main file
+   */
+  public int getFileNum() {
+    return fileNum;
+  }
+
+  public int getLineNum() {
+    return lineNum;
+  }
+
+  public String getObjectContext() {
+    return objectContext;
+  }
+
+  public String getAccessMode() {
+    return accessMode;
+  }
+
+  public String getDataMemberRef() {
+    return dataMemberRef;
+  }
+
+  public String getTempRef() {
+    return tempRef;
+  }
+
+  public String getDetail() {
+    return detail;
+  }
+
+  public boolean isStatic() {
+    return isStatic;
+  }
+
+  public boolean isAbstract() {
+    return isAbstract;
+  }
+
+  @Override
+  public String toString() {
+    return new StringBuilder(referenceType).append(' ').append(objectIdentifier).append(" @ ").append(fileNum).append(
+        ':').append(lineNum).toString();
+  }
+
+  static class Builder {
+    private String referenceType = "";
+    private String objectIdentifier = "";
+    private String fileName = "";
+    private int fileNum;
+    private int lineNum;
+    private String objectContext = "";
+    private String accessMode = "";
+    private String dataMemberRef = "";
+    private String tempRef = "";
+    private String detail = "";
+    private boolean isStatic;
+    private boolean isAbstract;
+
+    Builder(String referenceType, String objectIdentifier, String fileName) {
+      this.referenceType = referenceType;
+      this.objectIdentifier = objectIdentifier;
+      this.fileName = fileName;
+    }
+
+    /**
+     * Assign value of a child element
+     */
+    void setProperty(String elementName, String value) {
+      switch (elementName) {
+        case "File-num":
+          fileNum = parseInt(value);
+          break;
+        case "Line-num":
+          lineNum = parseInt(value);
+          break;
+        case "Object-context":
+          objectContext = value;
+          break;
+        case "Access-mode":
+          accessMode = value;
+          break;
+        case "Data-member-ref":
+          dataMemberRef = value;
+          break;
+        case "Temp-ref":
+          tempRef = value;
+          break;
+        case "Detail":
+          detail = value;
+          break;
+        case "Is-static":
+          isStatic = Boolean.parseBoolean(value);
+          break;
+        case "Is-abstract":
+          isAbstract = Boolean.parseBoolean(value);
+          break;
+        default:
+          // Not kept in the model
+      }
+    }
+
+    XrefReference build() {
+      return new XrefReference(this);
+    }
+
+    private static int parseInt(String value) {
+      try {
+        return Integer.parseInt(value.trim());
+      } catch (NumberFormatException caught) {
+        return 0;
+      }
+    }
+  }
+}
@@ -15,12 +15,20 @@
  ********************************************************************************/
 package org.prorefactor.core.unittest;
 
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
 import java.io.File;
 
+import org.prorefactor.core.schema.Database;
+import org.prorefactor.core.schema.IField;
+import org.prorefactor.core.schema.IIndex;
 import org.prorefactor.core.schema.ISchema;
+import org.prorefactor.core.schema.ITable;
+import org.prorefactor.core.schema.Schema;
 import org.prorefactor.core.unittest.util.UnitTestModule;
 import org.prorefactor.refactor.RefactorSession;
 import org.prorefactor.treeparser.ParseUnit;
@@ -94,4 +102,27 @@ public class AliasesTest {
     assertNotNull(schema.lookupTable("foo._file"), "Table foo._file exists");
     assertNotNull(schema.lookupTable("sports2000._file"), "Table sports2000._file exists");
   }
+
+  @Test
+  public void test06() {
+    // Meta-schema tables are copied in each database
+    ITable file1 = schema.lookupTable("sports2000._file");
+    assertNotNull(file1);
+    assertEquals(file1.getDatabase(), schema.lookupDatabase("sports2000"));
+    IField fileName = file1.lookupField("_file-name");
+    assertNotNull(fileName);
+    assertEquals(fileName.getTable(), file1);
+    assertEquals(file1.getFieldPosOrder().size(), file1.getFieldSet().size());
+    IIndex idx = file1.lookupIndex("_File-Name");
+    assertNotNull(idx);
+    assertTrue(idx.isPrimary());
+    assertEquals(idx.getFields().size(), 1);
+    assertEquals(idx.getFields().get(0), fileName);
+
+    ITable file2 = new Schema(new Database("sp2k")).lookupTable("sp2k._file");
+    assertNotNull(file2);
+    assertNotSame(file2, file1);
+    assertEquals(file2.getFieldPosOrder().size(), file1.getFieldPosOrder().size());
+    assertEquals(file2.lookupField("_file-name").getTable(), file2);
+  }
 }
@@ -0,0 +1,101 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Riverside Software
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU Lesser General Public License v3.0
+ * which is available at https://www.gnu.org/licenses/lgpl-3.0.txt
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR LGPL-3.0
+ ********************************************************************************/
+package org.prorefactor.core.unittest;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.prorefactor.core.unittest.util.UnitTestModule;
+import org.prorefactor.proparse.antlr4.InputSource;
+import org.prorefactor.refactor.IncludeFileCache;
+import org.prorefactor.refactor.RefactorSession;
+import org.prorefactor.treeparser.ParseUnit;
+import org.testng.annotations.Test;
+
+import com.google.common.io.Files;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import antlr.ANTLRException;
+
+public class IncludeFileCacheTest {
+
+  @Test
+  public void testHitAndMiss() throws IOException {
+    File f = File.createTempFile("inc", ".i");
+    f.deleteOnExit();
+    Files.asCharSink(f, StandardCharsets.UTF_8).write("MESSAGE 'Hello'.");
+
+    IncludeFileCache cache = new IncludeFileCache(IncludeFileCache.DEFAULT_MAX_SIZE);
+    assertEquals(cache.get(f, file -> InputSource.readFile(file, StandardCharsets.UTF_8, false)), "MESSAGE 'Hello'.");
+    assertEquals(cache.get(f, file -> InputSource.readFile(file, StandardCharsets.UTF_8, false)), "MESSAGE 'Hello'.");
+    assertEquals(cache.getMissCount(), 1);
+    assertEquals(cache.getHitCount(), 1);
+
+    // Different size, so file has to be read again
+    Files.asCharSink(f, StandardCharsets.UTF_8).write("MESSAGE 'Hello world'.");
+    assertEquals(cache.get(f, file -> InputSource.readFile(file, StandardCharsets.UTF_8, false)),
+        "MESSAGE 'Hello world'.");
+    assertEquals(cache.getMissCount(), 2);
+    assertEquals(cache.getHitCount(), 1);
+  }
+
+  @Test
+  public void testFailure() throws IOException {
+    File f = File.createTempFile("inc", ".i");
+    f.deleteOnExit();
+    IncludeFileCache cache = new IncludeFileCache(IncludeFileCache.DEFAULT_MAX_SIZE);
+    try {
+      cache.get(f, file -> {
+        throw new IOException("Invalid file");
+      });
+      fail("IOException should have been thrown");
+    } catch (IOException caught) {
+      assertEquals(caught.getMessage(), "Invalid file");
+    }
+    assertEquals(cache.get(f, file -> "Foobar"), "Foobar");
+    assertEquals(cache.getSize(), 6);
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    File f1 = File.createTempFile("inc", ".i");
+    f1.deleteOnExit();
+    File f2 = File.createTempFile("inc", ".i");
+    f2.deleteOnExit();
+    IncludeFileCache cache = new IncludeFileCache(10);
+    cache.get(f1, file -> "12345678");
+    cache.get(f2, file -> "12345678");
+    assertTrue(cache.getSize() <= 10);
+  }
+
+  @Test
+  public void testSession() throws ANTLRException {
+    Injector injector = Guice.createInjector(new UnitTestModule());
+    RefactorSession session = injector.getInstance(RefactorSession.class);
+    ParseUnit unit1 = new ParseUnit(new File("src/test/resources/data/include.p"), session);
+    unit1.treeParser01();
+    ParseUnit unit2 = new ParseUnit(new File("src/test/resources/data/include.p"), session);
+    unit2.treeParser01();
+    // inc.i and inc2.i
+    assertEquals(session.getIncludeCache().getMissCount(), 2);
+    assertEquals(session.getIncludeCache().getHitCount(), 2);
+  }
+}
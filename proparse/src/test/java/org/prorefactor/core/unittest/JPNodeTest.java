@@ -15,12 +15,19 @@
 package org.prorefactor.core.unittest;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.prorefactor.core.ABLNodeType;
+import org.prorefactor.core.ICallback;
+import org.prorefactor.core.IConstants;
 import org.prorefactor.core.JPNode;
+import org.prorefactor.core.ProToken;
 import org.prorefactor.core.unittest.util.UnitTestModule;
 import org.prorefactor.refactor.RefactorSession;
 import org.prorefactor.treeparser.ParseUnit;
@@ -63,4 +70,72 @@ public class JPNodeTest {
     assertEquals(msgStmts.get(2).query(ABLNodeType.VIEWAS).size(), 1);
   }
 
+  @Test
+  public void testNodeIndex() throws ANTLRException {
+    ParseUnit unit = new ParseUnit(new File("src/test/resources/data/include.p"), session);
+    unit.parse();
+
+    List<JPNode> nodes = new ArrayList<>();
+    unit.getTopNode().walk(new ICallback<List<JPNode>>() {
+      @Override
+      public List<JPNode> getResult() {
+        return nodes;
+      }
+
+      @Override
+      public boolean visitNode(JPNode node) {
+        nodes.add(node);
+        return true;
+      }
+    });
+
+    List<JPNode> stateHeads = new ArrayList<>();
+    List<JPNode> mainFileMessages = new ArrayList<>();
+    List<JPNode> messagesAndStrings = new ArrayList<>();
+    for (JPNode node : nodes) {
+      if (node.isStateHead())
+        stateHeads.add(node);
+      if ((node.getNodeType() == ABLNodeType.MESSAGE) && (node.getFileIndex() == 0))
+        mainFileMessages.add(node);
+      if ((node.getNodeType() == ABLNodeType.MESSAGE) || (node.getNodeType() == ABLNodeType.QSTRING))
+        messagesAndStrings.add(node);
+    }
+    assertEquals(unit.getTopNode().query(null), nodes);
+    assertEquals(unit.getTopNode().queryStateHead(), stateHeads);
+    assertEquals(unit.getTopNode().queryMainFile(ABLNodeType.MESSAGE), mainFileMessages);
+    assertEquals(unit.getTopNode().query(ABLNodeType.QSTRING, ABLNodeType.MESSAGE, ABLNodeType.QSTRING), messagesAndStrings);
+    assertEquals(mainFileMessages.size(), 2);
+    assertTrue(messagesAndStrings.size() > mainFileMessages.size());
+  }
+
+  @Test
+  public void testAttributes() {
+    JPNode node = new JPNode(new ProToken(ABLNodeType.DEFINE, "define"));
+    assertEquals(node.attrGet(IConstants.STATE2), 0);
+    assertNull(node.getLink(IConstants.SYMBOL));
+
+    node.setStatementHead(ABLNodeType.VARIABLE.getType());
+    node.setOperator();
+    node.attrSet(IConstants.STATE2, ABLNodeType.TEMPTABLE.getType());
+    assertTrue(node.isStateHead());
+    assertEquals(node.attrGet(IConstants.OPERATOR), IConstants.TRUE);
+    assertEquals(node.getState2(), ABLNodeType.TEMPTABLE.getType());
+    // Stored value takes precedence over computed value
+    node.attrSet(IConstants.ABBREVIATED, 2);
+    assertEquals(node.attrGet(IConstants.ABBREVIATED), 2);
+
+    Object link1 = new Object();
+    Object link2 = new Object();
+    node.setLink(IConstants.SYMBOL, link1);
+    node.setLink(IConstants.CALL, link2);
+    assertSame(node.getLink(IConstants.SYMBOL), link1);
+    assertSame(node.getLink(IConstants.CALL), link2);
+    node.setLink(IConstants.SYMBOL, link2);
+    assertSame(node.getLink(IConstants.SYMBOL), link2);
+    assertNull(node.getOriginal());
+
+    node.attrSet(IConstants.QUALIFIED_CLASS_INT, "foo.bar");
+    assertEquals(node.attrGetS(IConstants.QUALIFIED_CLASS_INT), "foo.bar");
+  }
+
 }
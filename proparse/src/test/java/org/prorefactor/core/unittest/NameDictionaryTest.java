@@ -0,0 +1,99 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Riverside Software
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU Lesser General Public License v3.0
+ * which is available at https://www.gnu.org/licenses/lgpl-3.0.txt
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR LGPL-3.0
+ ********************************************************************************/
+package org.prorefactor.core.unittest;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.prorefactor.core.schema.Constants;
+import org.prorefactor.core.schema.Database;
+import org.prorefactor.core.schema.IDatabase;
+import org.prorefactor.core.schema.ITable;
+import org.prorefactor.core.schema.NameDictionary;
+import org.prorefactor.core.schema.Table;
+import org.testng.annotations.Test;
+
+public class NameDictionaryTest {
+
+  private static SortedSet<ITable> createTables(String... names) {
+    IDatabase db = new Database("sports");
+    SortedSet<ITable> set = new TreeSet<>(Constants.TABLE_NAME_ORDER);
+    for (String name : names) {
+      set.add(new Table(name, db));
+    }
+    return set;
+  }
+
+  @Test
+  public void testExact() {
+    NameDictionary<ITable> dict = new NameDictionary<>(createTables("Customer", "Cust", "Order"), ITable::getName);
+    assertEquals(dict.lookupExact("CUSTOMER").getName(), "Customer");
+    assertEquals(dict.lookupExact("cust").getName(), "Cust");
+    assertNull(dict.lookupExact("Custo"));
+    assertNull(dict.lookupExact("Ord"));
+    assertNull(dict.lookupExact("Zzz"));
+    assertNull(dict.lookupExact(""));
+  }
+
+  @Test
+  public void testPrefix() {
+    NameDictionary<ITable> dict = new NameDictionary<>(createTables("Customer", "CustNum", "Order"), ITable::getName);
+    // First name in alphabetical order
+    assertEquals(dict.lookupPrefix("cust").getName(), "CustNum");
+    assertEquals(dict.lookupPrefix("custo").getName(), "Customer");
+    assertEquals(dict.lookupPrefix("CustN").getName(), "CustNum");
+    assertEquals(dict.lookupPrefix("o").getName(), "Order");
+    assertNull(dict.lookupPrefix("Orders"));
+    assertNull(dict.lookupPrefix("Abc"));
+  }
+
+  @Test
+  public void testUniquePrefix() {
+    NameDictionary<ITable> dict = new NameDictionary<>(createTables("Customer", "CustNum", "Cust", "Order"),
+        ITable::getName);
+    // Exact match, even if other names start with the same string
+    assertEquals(dict.lookupUniquePrefix("CUST").getName(), "Cust");
+    // Ambiguous
+    assertNull(dict.lookupUniquePrefix("Cu"));
+    assertEquals(dict.lookupUniquePrefix("Custo").getName(), "Customer");
+    assertEquals(dict.lookupUniquePrefix("ord").getName(), "Order");
+    assertNull(dict.lookupUniquePrefix("Zzz"));
+  }
+
+  @Test
+  public void testUpdate() {
+    SortedSet<ITable> set = createTables("Customer");
+    NameDictionary<ITable> dict = new NameDictionary<>(set, ITable::getName);
+    assertEquals(dict.lookupUniquePrefix("Cu").getName(), "Customer");
+    set.add(new Table("Cust", new Database("sports")));
+    assertNull(dict.lookupUniquePrefix("Cu"));
+    assertEquals(dict.lookupExact("cust").getName(), "Cust");
+  }
+
+  @Test
+  public void testDatabases() {
+    SortedSet<IDatabase> set = new TreeSet<>(Constants.DB_NAME_ORDER);
+    set.add(new Database("sports"));
+    set.add(new Database("sports2000"));
+    NameDictionary<IDatabase> dict = new NameDictionary<>(set, IDatabase::getName);
+    assertEquals(dict.lookupExact("SPORTS").getName(), "sports");
+    assertNull(dict.lookupExact("sport"));
+    assertEquals(dict.lookupUniquePrefix("sports").getName(), "sports");
+    assertNull(dict.lookupUniquePrefix("sport"));
+  }
+}
@@ -0,0 +1,116 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Riverside Software
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU Lesser General Public License v3.0
+ * which is available at https://www.gnu.org/licenses/lgpl-3.0.txt
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR LGPL-3.0
+ ********************************************************************************/
+package org.prorefactor.core.unittest;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.prorefactor.core.unittest.util.UnitTestModule;
+import org.prorefactor.refactor.PropathIndex;
+import org.prorefactor.refactor.RefactorSession;
+import org.prorefactor.treeparser.ParseUnit;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import antlr.ANTLRException;
+
+public class PropathIndexTest {
+  private Path dir1;
+  private Path dir2;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    dir1 = Files.createTempDirectory("propath");
+    dir2 = Files.createTempDirectory("propath");
+    Files.createDirectories(dir1.resolve("foo"));
+    Files.createDirectories(dir2.resolve("foo"));
+    Files.createFile(dir1.resolve("foo/Bar.cls"));
+    Files.createFile(dir2.resolve("foo/Bar.cls"));
+    Files.createFile(dir2.resolve("inc.i"));
+  }
+
+  @Test
+  public void testFirstMatch() {
+    PropathIndex index = new PropathIndex(Arrays.asList(dir1.toString(), dir2.toString()), false);
+    assertEquals(index.lookup("foo/Bar.cls"), dir1.resolve("foo/Bar.cls").toFile());
+    assertEquals(index.lookupEntry("foo/Bar.cls"), 0);
+    assertEquals(index.lookup("inc.i"), dir2.resolve("inc.i").toFile());
+    assertEquals(index.lookupEntry("./inc.i"), 1);
+    assertEquals(index.lookup("foo\\Bar.cls"), dir1.resolve("foo/Bar.cls").toFile());
+    assertEquals(index.lookup("foo"), dir1.resolve("foo").toFile());
+    assertNull(index.lookup("foo/bar.cls"));
+    assertNull(index.lookup("foo/Baz.cls"));
+    assertEquals(index.lookupEntry("foo/Baz.cls"), -1);
+  }
+
+  @Test
+  public void testIgnoreCase() {
+    PropathIndex index = new PropathIndex(Arrays.asList(dir1.toString(), dir2.toString()), true);
+    assertEquals(index.lookup("FOO/bar.CLS"), dir1.resolve("foo/Bar.cls").toFile());
+    assertEquals(index.lookup("Inc.I"), dir2.resolve("inc.i").toFile());
+  }
+
+  @Test
+  public void testRevalidate() throws IOException {
+    PropathIndex index = new PropathIndex(Arrays.asList(dir1.toString(), dir2.toString()), false);
+    assertEquals(index.lookupEntry("inc.i"), 1);
+    Files.createFile(dir1.resolve("inc.i"));
+    assertEquals(index.lookupEntry("inc.i"), 1);
+    index.revalidate();
+    assertEquals(index.lookupEntry("inc.i"), 0);
+  }
+
+  @Test
+  public void testAccepts() {
+    assertTrue(PropathIndex.accepts("foo/bar.i"));
+    assertTrue(PropathIndex.accepts("./foo/bar.i"));
+    assertFalse(PropathIndex.accepts("../foo/bar.i"));
+    assertFalse(PropathIndex.accepts("foo/../bar.i"));
+    assertFalse(PropathIndex.accepts("/foo/bar.i"));
+    assertFalse(PropathIndex.accepts("C:\\foo\\bar.i"));
+    assertFalse(PropathIndex.accepts(""));
+  }
+
+  @Test
+  public void testSession() throws ANTLRException {
+    Injector injector = Guice.createInjector(new UnitTestModule());
+    RefactorSession session = injector.getInstance(RefactorSession.class);
+    String withoutIndex = session.findFile("data/inc.i");
+    File clsWithoutIndex = session.findFileForClassName("data.ttClass");
+    session.enablePropathIndex(false);
+    assertNotNull(session.getPropathIndex());
+    assertEquals(session.findFile("data/inc.i"), withoutIndex);
+    assertEquals(session.findFileForClassName("data.ttClass"), clsWithoutIndex);
+    assertEquals(session.findFile("inc.i"), new File("src/test/resources/data", "inc.i").getPath());
+    assertEquals(session.findFile("nothere.i"), "");
+    assertNull(session.findFile3("nothere.i"));
+
+    ParseUnit unit = new ParseUnit(new File("src/test/resources/data/include.p"), session);
+    unit.treeParser01();
+    assertNotNull(unit.getTopNode());
+  }
+}
@@ -0,0 +1,77 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Riverside Software
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU Lesser General Public License v3.0
+ * which is available at https://www.gnu.org/licenses/lgpl-3.0.txt
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR LGPL-3.0
+ ********************************************************************************/
+package org.prorefactor.core.unittest;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import org.prorefactor.core.unittest.util.UnitTestModule;
+import org.prorefactor.refactor.RefactorSession;
+import org.prorefactor.refactor.TypeHierarchy;
+import org.testng.annotations.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import eu.rssw.pct.ProgressClasses;
+import eu.rssw.pct.RCodeInfo;
+import eu.rssw.pct.RCodeInfo.InvalidRCodeException;
+import eu.rssw.pct.elements.ITypeInfo;
+
+public class TypeHierarchyTest {
+
+  @Test
+  public void testInheritedMembers() throws IOException, InvalidRCodeException {
+    Injector injector = Guice.createInjector(new UnitTestModule());
+    RefactorSession session = injector.getInstance(RefactorSession.class);
+    session.injectTypeInfoCollection(ProgressClasses.getProgressClasses());
+    session.injectTypeInfo(
+        new RCodeInfo(new FileInputStream("src/test/resources/data/rssw/pct/ParentClass.r")).getTypeInfo());
+    ITypeInfo child = new RCodeInfo(new FileInputStream("src/test/resources/data/rssw/pct/ChildClass.r")).getTypeInfo();
+    session.injectTypeInfo(child);
+
+    // Members of the class itself
+    assertTrue(child.hasMethod("METHOD1"));
+    assertTrue(child.hasBuffer("BTT2"));
+    assertNotNull(child.getBuffer("btt2"));
+    assertFalse(child.hasBuffer("xtt1"));
+    assertFalse(child.hasTempTable("tt1"));
+
+    TypeHierarchy hierarchy = session.getTypeHierarchy(child);
+    assertSame(session.getTypeHierarchy(child), hierarchy);
+    assertTrue(hierarchy.hasMethod("Method2"));
+    assertTrue(hierarchy.hasMethod("toString"));
+    assertFalse(hierarchy.hasMethod("method3"));
+    assertNotNull(hierarchy.getBuffer("BTT2"));
+    assertNotNull(hierarchy.getBuffer("XTT1"));
+    assertEquals(hierarchy.getBuffer("xcust").getTableName(), "Customer");
+    assertNotNull(hierarchy.getTempTable("TT1"));
+    assertNull(hierarchy.getTempTable("tt2"));
+
+    // Injecting new type info invalidates flattened views
+    session.injectTypeInfo(
+        new RCodeInfo(new FileInputStream("src/test/resources/data/rssw/pct/ParentClass.r")).getTypeInfo());
+    assertNotSame(session.getTypeHierarchy(child), hierarchy);
+    assertNotNull(session.getTypeHierarchy(child).getTempTable("tt1"));
+  }
+}
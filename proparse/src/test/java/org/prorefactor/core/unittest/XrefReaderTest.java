@@ -0,0 +1,132 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Riverside Software
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the Eclipse
+ * Public License, v. 2.0 are satisfied: GNU Lesser General Public License v3.0
+ * which is available at https://www.gnu.org/licenses/lgpl-3.0.txt
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR LGPL-3.0
+ ********************************************************************************/
+package org.prorefactor.core.unittest;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamException;
+
+import org.prorefactor.core.unittest.util.UnitTestModule;
+import org.prorefactor.refactor.RefactorSession;
+import org.prorefactor.treeparser.ParseUnit;
+import org.prorefactor.xref.XrefModel;
+import org.prorefactor.xref.XrefReader;
+import org.prorefactor.xref.XrefReference;
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+public class XrefReaderTest {
+  private static final File XREF_FILE = new File("src/test/resources/data/xref/shared.p.xref");
+
+  private static XrefModel read(File file) throws IOException, XMLStreamException {
+    try (InputStream input = new FileInputStream(file)) {
+      return XrefReader.read(input);
+    }
+  }
+
+  @Test
+  public void testReferences() throws IOException, XMLStreamException {
+    XrefModel model = read(XREF_FILE);
+    assertEquals(model.size(), 5);
+    XrefReference ref = model.getReferences().get(0);
+    assertEquals(ref.getReferenceType(), "COMPILE");
+    assertEquals(ref.getObjectIdentifier(), "src/shared.p");
+    assertEquals(ref.getFileName(), "src/shared.p");
+    assertEquals(ref.getFileNum(), 1);
+    assertEquals(ref.getLineNum(), 1);
+    assertFalse(ref.isStatic());
+
+    // Nested elements are skipped
+    XrefReference invoke = model.getReferences("INVOKE").get(0);
+    assertEquals(invoke.getLineNum(), 4);
+    assertEquals(invoke.getAccessMode(), "PUBLIC");
+    assertEquals(invoke.getDetail(), "Detail & more");
+    assertTrue(invoke.isStatic());
+  }
+
+  @Test
+  public void testGroups() throws IOException, XMLStreamException {
+    XrefModel model = read(XREF_FILE);
+    List<XrefReference> vars = model.getReferences("NEW-SHR-VARIABLE");
+    assertEquals(vars.size(), 2);
+    assertEquals(vars.get(0).getObjectIdentifier(), "xx");
+    assertEquals(vars.get(1).getObjectIdentifier(), "yy");
+    assertEquals(vars.get(1).getFileName(), "src/shared.i");
+    assertEquals(model.getReferences("NEW-SHR-VARIABLE", 2).size(), 1);
+    assertEquals(model.getReferences("NEW-SHR-TEMPTABLE").get(0).getTempRef(), "T");
+    assertTrue(model.getReferences("NEW-SHR-DATASET").isEmpty());
+
+    List<XrefReference> line4 = model.getReferencesAt(1, 4);
+    assertEquals(line4.size(), 2);
+    assertEquals(line4.get(0).getReferenceType(), "NEW-SHR-TEMPTABLE");
+    assertEquals(line4.get(1).getReferenceType(), "INVOKE");
+    assertTrue(model.getReferencesAt(2, 4).isEmpty());
+  }
+
+  @Test
+  public void testSameAsDom() throws Exception {
+    Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(XREF_FILE);
+    assertEquals(read(XREF_FILE).size(), doc.getElementsByTagName("Reference").getLength());
+  }
+
+  @Test(expectedExceptions = XMLStreamException.class)
+  public void testInvalidXml() throws XMLStreamException {
+    XrefReader.read(new ByteArrayInputStream("<Cross-reference><Source>".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void testLazyDocument() throws Exception {
+    Injector injector = Guice.createInjector(new UnitTestModule());
+    RefactorSession session = injector.getInstance(RefactorSession.class);
+    ParseUnit unit = new ParseUnit(new File("src/test/resources/data/include.p"), session);
+    assertNull(unit.getXref());
+    assertNull(unit.getXrefModel());
+
+    AtomicInteger numParse = new AtomicInteger();
+    unit.attachXrefModel(read(XREF_FILE));
+    unit.attachLazyXref(() -> {
+      numParse.incrementAndGet();
+      try {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(XREF_FILE);
+      } catch (Exception caught) {
+        throw new IllegalStateException(caught);
+      }
+    });
+    assertNotNull(unit.getXrefModel());
+    assertEquals(numParse.get(), 0);
+    Document doc = unit.getXref();
+    assertNotNull(doc);
+    assertSame(unit.getXref(), doc);
+    assertEquals(numParse.get(), 1);
+  }
+}
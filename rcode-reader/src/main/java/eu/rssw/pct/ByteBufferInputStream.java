@@ -0,0 +1,62 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package eu.rssw.pct;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * InputStream reading from a ByteBuffer, without copying buffer content
+ */
+class ByteBufferInputStream extends InputStream {
+  private final ByteBuffer bb;
+
+  ByteBufferInputStream(ByteBuffer bb) {
+    this.bb = bb;
+  }
+
+  @Override
+  public int read() {
+    return bb.hasRemaining() ? bb.get() & 0xFF : -1;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) {
+    if (len == 0)
+      return 0;
+    if (!bb.hasRemaining())
+      return -1;
+    int num = Math.min(len, bb.remaining());
+    bb.get(b, off, num);
+    return num;
+  }
+
+  @Override
+  public long skip(long n) {
+    int num = (int) Math.max(0, Math.min(n, bb.remaining()));
+    bb.position(bb.position() + num);
+    return num;
+  }
+
+  @Override
+  public int available() {
+    return bb.remaining();
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package eu.rssw.pct;
+
+import java.nio.ByteOrder;
+import java.util.Collection;
+import java.util.List;
+
+import eu.rssw.pct.RCodeInfo.InvalidRCodeException;
+import eu.rssw.pct.elements.IBufferElement;
+import eu.rssw.pct.elements.IEventElement;
+import eu.rssw.pct.elements.IMethodElement;
+import eu.rssw.pct.elements.IPropertyElement;
+import eu.rssw.pct.elements.ITableElement;
+import eu.rssw.pct.elements.ITypeInfo;
+import eu.rssw.pct.elements.IVariableElement;
+
+/**
+ * Type info backed by a type block, only decoded when something else than the type name is requested
+ */
+class LazyTypeInfo implements ITypeInfo {
+  private final String typeName;
+  private final int version;
+  private final ByteOrder order;
+  private byte[] block;
+  private volatile ITypeInfo info;
+
+  LazyTypeInfo(String typeName, int version, ByteOrder order, byte[] block) {
+    this.typeName = typeName;
+    this.version = version;
+    this.order = order;
+    this.block = block;
+  }
+
+  private ITypeInfo get() {
+    ITypeInfo result = info;
+    if (result == null) {
+      synchronized (this) {
+        result = info;
+        if (result == null) {
+          try {
+            result = RCodeInfo.newTypeInfo(block, version, order);
+          } catch (InvalidRCodeException caught) {
+            throw new IllegalStateException("Invalid type block in catalog for " + typeName, caught);
+          }
+          info = result;
+          block = null;
+        }
+      }
+    }
+    return result;
+  }
+
+  boolean isDecoded() {
+    return info != null;
+  }
+
+  @Override
+  public String getTypeName() {
+    return typeName;
+  }
+
+  @Override
+  public String getParentTypeName() {
+    return get().getParentTypeName();
+  }
+
+  @Override
+  public String getAssemblyName() {
+    return get().getAssemblyName();
+  }
+
+  @Override
+  public List<String> getInterfaces() {
+    return get().getInterfaces();
+  }
+
+  @Override
+  public boolean isFinal() {
+    return get().isFinal();
+  }
+
+  @Override
+  public boolean isInterface() {
+    return get().isInterface();
+  }
+
+  @Override
+  public boolean hasStatics() {
+    return get().hasStatics();
+  }
+
+  @Override
+  public boolean isBuiltIn() {
+    return get().isBuiltIn();
+  }
+
+  @Override
+  public boolean isHybrid() {
+    return get().isHybrid();
+  }
+
+  @Override
+  public boolean hasDotNetBase() {
+    return get().hasDotNetBase();
+  }
+
+  @Override
+  public boolean isAbstract() {
+    return get().isAbstract();
+  }
+
+  @Override
+  public boolean isSerializable() {
+    return get().isSerializable();
+  }
+
+  @Override
+  public boolean isUseWidgetPool() {
+    return get().isUseWidgetPool();
+  }
+
+  @Override
+  public Collection<IMethodElement> getMethods() {
+    return get().getMethods();
+  }
+
+  @Override
+  public Collection<IPropertyElement> getProperties() {
+    return get().getProperties();
+  }
+
+  @Override
+  public Collection<IEventElement> getEvents() {
+    return get().getEvents();
+  }
+
+  @Override
+  public Collection<IVariableElement> getVariables() {
+    return get().getVariables();
+  }
+
+  @Override
+  public Collection<ITableElement> getTables() {
+    return get().getTables();
+  }
+
+  @Override
+  public Collection<IBufferElement> getBuffers() {
+    return get().getBuffers();
+  }
+
+  @Override
+  public IBufferElement getBuffer(String inName) {
+    return get().getBuffer(inName);
+  }
+
+  @Override
+  public IBufferElement getBufferFor(String name) {
+    return get().getBufferFor(name);
+  }
+
+  @Override
+  public IPropertyElement getProperty(String name) {
+    return get().getProperty(name);
+  }
+
+  @Override
+  public ITableElement getTempTable(String inName) {
+    return get().getTempTable(inName);
+  }
+
+  @Override
+  public boolean hasTempTable(String inName) {
+    return get().hasTempTable(inName);
+  }
+
+  @Override
+  public boolean hasMethod(String name) {
+    return get().hasMethod(name);
+  }
+
+  @Override
+  public boolean hasProperty(String name) {
+    return get().hasProperty(name);
+  }
+
+  @Override
+  public boolean hasBuffer(String inName) {
+    return get().hasBuffer(inName);
+  }
+
+  @Override
+  public String toString() {
+    return get().toString();
+  }
+}
@@ -19,21 +19,25 @@
  */
 package eu.rssw.pct;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
-
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
-
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Class for reading and extracting contents of a Progress Library file.
+ * Class for reading and extracting contents of a Progress Library file. The library is memory-mapped once, and the
+ * table of contents is read in a single pass on first access.
  * 
  * @author <a href="mailto:g.querret+PCT@gmail.com">Gilles QUERRET</a>
  */
@@ -42,9 +46,12 @@ public class PLReader {
   private static final int ENCODING_OFFSET = 0x02;
   private static final int ENCODING_SIZE = 20;
   private static final int FILE_LIST_OFFSET_V11 = 0x22;
+  private static final int ENTRY_DESCRIPTION_SIZE = 48;
 
   private File pl;
+  private ByteBuffer buffer = null;
   private List<FileEntry> files = null;
+  private Map<String, FileEntry> index = null;
 
   public PLReader(File file) {
     String name = file.getPath();
@@ -68,56 +75,66 @@ public class PLReader {
   }
 
   public FileEntry getEntry(String name) {
-    for (FileEntry entry : getFileList()) {
-      if (entry.getFileName().equals(name))
-        return entry;
-    }
-
-    return null;
+    if (this.index == null)
+      readFileList();
+    return index.get(name);
   }
 
-  private void readFileList() {
-    try (RandomAccessFile raf = new RandomAccessFile(pl, "r")) {
-      FileChannel fc = raf.getChannel();
-      ByteBuffer magic = ByteBuffer.allocate(2);
-      fc.read(magic);
-      if ((magic.getShort(0) & 0xffff) != MAGIC_V11)
-        throw new RuntimeException("Not a valid PL file");
-
-      Charset charset = getCharset(fc);
-      int offset = getTOCOffset(fc);
-      files = new ArrayList<>();
-      FileEntry fe = null;
-      while ((fe = readEntry(fc, offset, charset)) != null) {
-        if (fe.isValid())
-          files.add(fe);
-        offset += fe.getTocSize();
+  private synchronized void readFileList() {
+    if (files != null)
+      return;
+    ByteBuffer bb = getBuffer();
+    if ((bb.limit() < FILE_LIST_OFFSET_V11 + 4) || ((bb.getShort(0) & 0xffff) != MAGIC_V11))
+      throw new RuntimeException("Not a valid PL file");
+
+    Charset charset = getCharset(bb);
+    int offset = bb.getInt(FILE_LIST_OFFSET_V11);
+    List<FileEntry> list = new ArrayList<>();
+    Map<String, FileEntry> map = new HashMap<>();
+    FileEntry fe = null;
+    while ((fe = readEntry(bb, offset, charset)) != null) {
+      if (fe.isValid()) {
+        list.add(fe);
+        map.putIfAbsent(fe.getFileName(), fe);
       }
-    } catch (IOException caught) {
-      throw new RuntimeException(caught);
+      offset += fe.getTocSize();
     }
+    index = Collections.unmodifiableMap(map);
+    files = Collections.unmodifiableList(list);
   }
 
-  public InputStream getInputStream(FileEntry fe) throws IOException {
-    ByteBuffer bb = null;
-    try (RandomAccessFile raf = new RandomAccessFile(pl, "r")) {
-      FileChannel fc = raf.getChannel();
-      bb = ByteBuffer.allocate(fe.getSize());
-      fc.read(bb, fe.getOffset());
+  private synchronized ByteBuffer getBuffer() {
+    if (buffer == null) {
+      try (RandomAccessFile raf = new RandomAccessFile(pl, "r")) {
+        FileChannel fc = raf.getChannel();
+        // Mapping stays valid after channel is closed
+        buffer = fc.map(MapMode.READ_ONLY, 0, fc.size()).order(ByteOrder.BIG_ENDIAN);
+      } catch (IOException caught) {
+        throw new UncheckedIOException(caught);
+      }
     }
+    return buffer;
+  }
 
-    return new ByteArrayInputStream(bb.array());
+  /**
+   * Returns content of this entry, without any copy. Position of returned buffer is 0 and its limit is the entry size.
+   */
+  public ByteBuffer getByteBuffer(FileEntry fe) {
+    ByteBuffer bb = getBuffer().duplicate();
+    bb.position(fe.getOffset());
+    bb.limit(fe.getOffset() + fe.getSize());
+    return bb.slice().asReadOnlyBuffer();
+  }
+
+  public InputStream getInputStream(FileEntry fe) throws IOException {
+    return new ByteBufferInputStream(getByteBuffer(fe));
   }
 
-  private Charset getCharset(FileChannel fc) throws IOException {
-    ByteBuffer bEncoding = ByteBuffer.allocate(ENCODING_SIZE);
-    if (fc.read(bEncoding, ENCODING_OFFSET) != ENCODING_SIZE)
-      throw new RuntimeException("Invalid PL file");
-    bEncoding.position(0);
+  private static Charset getCharset(ByteBuffer bb) {
     StringBuilder sbEncoding = new StringBuilder();
     int zz = 0;
-    while ((zz < 20) && (bEncoding.get(zz) != 0)) {
-      sbEncoding.append((char) bEncoding.get(zz++));
+    while ((zz < ENCODING_SIZE) && (bb.get(ENCODING_OFFSET + zz) != 0)) {
+      sbEncoding.append((char) bb.get(ENCODING_OFFSET + zz++));
     }
     try {
       return Charset.forName(sbEncoding.toString());
@@ -126,39 +143,30 @@ public class PLReader {
     }
   }
 
-  private int getTOCOffset(FileChannel fc) throws IOException {
-    ByteBuffer bTOC = ByteBuffer.allocate(4);
-    if (fc.read(bTOC, FILE_LIST_OFFSET_V11) != 4)
-      throw new RuntimeException("Invalid PL file");
-    return bTOC.getInt(0);
-  }
+  private static FileEntry readEntry(ByteBuffer bb, int offset, Charset charset) {
+    if ((offset < 0) || (offset >= bb.limit()))
+      return null;
 
-  private FileEntry readEntry(FileChannel fc, int offset, Charset charset) throws IOException {
-    ByteBuffer b1 = ByteBuffer.allocate(1);
-    fc.read(b1, offset);
-
-    if (b1.get(0) == (byte) 0xFE) {
-      boolean stop = false;
-      int zz = 0;
-      while (!stop) {
-        b1.position(0);
-        int kk = fc.read(b1, offset + ++zz);
-        stop = (kk == -1) || (b1.get(0) == (byte) 0xFF);
+    if (bb.get(offset) == (byte) 0xFE) {
+      int zz = 1;
+      while ((offset + zz < bb.limit()) && (bb.get(offset + zz) != (byte) 0xFF)) {
+        zz++;
       }
 
       return new FileEntry(zz);
-    } else if (b1.get(0) == (byte) 0xFF) {
-      b1.position(0);
-      fc.read(b1, offset + 1);
-      int fNameSize = (int) b1.get(0) & 0xFF;
+    } else if (bb.get(offset) == (byte) 0xFF) {
+      int fNameSize = offset + 1 < bb.limit() ? bb.get(offset + 1) & 0xFF : 0;
       if (fNameSize == 0)
         return new FileEntry(29);
-      ByteBuffer b2 = ByteBuffer.allocate(fNameSize);
-      fc.read(b2, offset + 2);
-      b2.position(0);
+      ByteBuffer b2 = bb.duplicate();
+      b2.position(Math.min(offset + 2, bb.limit()));
+      b2.limit(Math.min(offset + 2 + fNameSize, bb.limit()));
       String fName = charset.decode(b2).toString();
-      ByteBuffer b3 = ByteBuffer.allocate(48); // Ou 47
-      fc.read(b3, offset + 2 + fNameSize);
+      // Description may be truncated at the end of the file
+      ByteBuffer b3 = ByteBuffer.allocate(ENTRY_DESCRIPTION_SIZE);
+      for (int zz = 0; (zz < ENTRY_DESCRIPTION_SIZE) && (offset + 2 + fNameSize + zz < bb.limit()); zz++) {
+        b3.put(zz, bb.get(offset + 2 + fNameSize + zz));
+      }
       int fileOffset = b3.getInt(6); // 7
       int fileSize = b3.getInt(11); // 12
       long added = b3.getInt(15) * 1000L; // 16
@@ -169,6 +177,5 @@ public class PLReader {
     } else {
       return null;
     }
-
   }
 }
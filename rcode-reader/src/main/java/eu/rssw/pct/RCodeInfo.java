@@ -19,11 +19,15 @@
  */
 package eu.rssw.pct;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -50,6 +54,7 @@ public class RCodeInfo {
 
   // Header values
   private static final int HEADER_SIZE = 68;
+  private static final int HEADER_V12_EXTRA_SIZE = 16;
   private static final int HEADER_OFFSET_MAGIC = 0;
   private static final int HEADER_OFFSET_TIMESTAMP = 4;
   private static final int HEADER_OFFSET_DIGEST = 10;
@@ -72,6 +77,8 @@ public class RCodeInfo {
   private static final int SEGMENT_TABLE_OFFSET_IPACS_TABLE_SIZE = 32;
   private static final int SEGMENT_TABLE_OFFSET_FRAME_SEGMENT_TABLE_SIZE = 34;
   private static final int SEGMENT_TABLE_OFFSET_TEXT_SEGMENT_TABLE_SIZE = 36;
+  // Only the first bytes of the segment table are used when not in debug mode
+  private static final int SEGMENT_TABLE_READ_SIZE = 38;
 
   protected ByteOrder order;
   protected int version;
@@ -99,6 +106,7 @@ public class RCodeInfo {
   private boolean isClass = false;
 
   private ITypeInfo typeInfo;
+  private byte[] typeBlock;
 
   public RCodeInfo(InputStream input) throws InvalidRCodeException, IOException {
     this(input, null);
@@ -108,39 +116,44 @@ public class RCodeInfo {
    * Parse InputStream and store debug segment information
    * 
    * @param input Has to be closed by caller
-   * @param out Output stream for debug. Can be null
+   * @param out Output stream for debug. Can be null, in which case signature block, initial value and debug segments
+   *          are skipped without being read in memory
    * 
    * @throws InvalidRCodeException
    * @throws IOException
    */
   public RCodeInfo(InputStream input, PrintStream out) throws InvalidRCodeException, IOException {
     processHeader(input, out);
-    processSignatureBlock(input, out);
-    processSegmentTable(input, out);
+    if (out == null) {
+      int readSize = Math.min(SEGMENT_TABLE_READ_SIZE, segmentTableSize);
+      skipFully(input, signatureSize, "segment table");
+      processSegmentTable(input, out, readSize);
+      skipFully(input, segmentTableSize - readSize, "end of segment table");
+    } else {
+      processSignatureBlock(input, out);
+      processSegmentTable(input, out, segmentTableSize);
+    }
 
     if ((initialValueSegmentOffset >= 0) && (initialValueSegmentSize > 0)) {
-      long bytesRead = input.skip(initialValueSegmentOffset);
-      if (bytesRead != initialValueSegmentOffset) {
-        throw new InvalidRCodeException("Not enough bytes to reach initial values segment");
-      }
-      processInitialValueSegment(input, out);
+      skipFully(input, initialValueSegmentOffset, "initial values segment");
+      if (out == null)
+        skipFully(input, initialValueSegmentSize, "end of initial values segment");
+      else
+        processInitialValueSegment(input, out);
     }
 
     if ((debugSegmentOffset > 0) && (debugSegmentSize > 0)) {
-      long bytesRead = input.skip(debugSegmentOffset - initialValueSegmentSize);
-      if (bytesRead != debugSegmentOffset - initialValueSegmentSize) {
-        throw new InvalidRCodeException("Not enough bytes to reach debug segment");
-      }
-      processDebugSegment(input, out);
+      skipFully(input, debugSegmentOffset - initialValueSegmentSize, "debug segment");
+      if (out == null)
+        skipFully(input, debugSegmentSize, "end of debug segment");
+      else
+        processDebugSegment(input, out);
     }
 
     if (typeBlockSize > 0) {
       int skip = debugSegmentOffset > 0 ? rcodeSize - debugSegmentOffset - debugSegmentSize
           : rcodeSize - initialValueSegmentSize - debugSegmentSize;
-      long bytesRead = input.skip(skip);
-      if (bytesRead != skip) {
-        throw new InvalidRCodeException("Not enough bytes to reach type block");
-      }
+      skipFully(input, skip, "type block");
       processTypeBlock(input, out);
       isClass = true;
     }
@@ -148,6 +161,121 @@ public class RCodeInfo {
     input.close();
   }
 
+  /**
+   * Read header and type block, by seeking directly to the type block. Signature block and segments are never read.
+   * 
+   * @param channel Has to be closed by caller
+   * 
+   * @throws InvalidRCodeException
+   * @throws IOException
+   */
+  public RCodeInfo(FileChannel channel) throws InvalidRCodeException, IOException {
+    // Stream is not closed, as it would close the channel
+    InputStream input = Channels.newInputStream(channel.position(0));
+    processHeader(input, null);
+    if (typeBlockSize > 0) {
+      processSegmentTableStart(input);
+      ByteBuffer segment = ByteBuffer.allocate(typeBlockSize);
+      long offset = getTypeBlockOffset();
+      while (segment.hasRemaining()) {
+        if (channel.read(segment, offset + segment.position()) < 0)
+          throw new InvalidRCodeException("Not enough bytes in type block");
+      }
+      typeBlock = segment.array();
+      typeInfo = newTypeInfo(typeBlock, version, order);
+      isClass = true;
+    }
+  }
+
+  /**
+   * Read header and type block from a buffer (for example an entry of a memory-mapped procedure library), without
+   * copying anything else than the type block. Buffer position is not modified.
+   * 
+   * @param buffer RCode content, from current position to limit
+   * 
+   * @throws InvalidRCodeException
+   * @throws IOException
+   */
+  public RCodeInfo(ByteBuffer buffer) throws InvalidRCodeException, IOException {
+    ByteBuffer bb = buffer.slice();
+    InputStream input = new ByteBufferInputStream(bb.duplicate());
+    processHeader(input, null);
+    if (typeBlockSize > 0) {
+      processSegmentTableStart(input);
+      long offset = getTypeBlockOffset();
+      if ((offset < 0) || (offset + typeBlockSize > bb.limit()))
+        throw new InvalidRCodeException("Not enough bytes in type block");
+      typeBlock = new byte[typeBlockSize];
+      bb.position((int) offset);
+      bb.get(typeBlock);
+      typeInfo = newTypeInfo(typeBlock, version, order);
+      isClass = true;
+    }
+  }
+
+  private RCodeInfo() {
+    // Only used by probe()
+  }
+
+  /**
+   * Only read rcode header. {@link #isClass()}, {@link #getVersion()} and {@link #getTimeStamp()} are available, but
+   * {@link #getTypeInfo()} always returns null.
+   * 
+   * @param input Has to be closed by caller
+   */
+  public static RCodeInfo probe(InputStream input) throws InvalidRCodeException, IOException {
+    RCodeInfo rci = new RCodeInfo();
+    rci.processHeader(input, null);
+    rci.isClass = rci.typeBlockSize > 0;
+    return rci;
+  }
+
+  /**
+   * Returns true if rcode contains a type block. Only the header is read.
+   */
+  public static boolean isClass(File file) throws InvalidRCodeException, IOException {
+    try (InputStream input = new FileInputStream(file)) {
+      return probe(input).isClass();
+    }
+  }
+
+  /**
+   * Read first part of segment table (initial values and debug segments), input has to be positioned after the header
+   */
+  private void processSegmentTableStart(InputStream input) throws IOException, InvalidRCodeException {
+    skipFully(input, signatureSize, "segment table");
+    processSegmentTable(input, null, Math.min(SEGMENT_TABLE_READ_SIZE, segmentTableSize));
+  }
+
+  /**
+   * Offset of type block from the beginning of the rcode, same arithmetic as in
+   * {@link #RCodeInfo(InputStream, PrintStream)}
+   */
+  private long getTypeBlockOffset() {
+    long offset = (long) getHeaderSize() + signatureSize + segmentTableSize + rcodeSize;
+    if ((initialValueSegmentOffset >= 0) && (initialValueSegmentSize > 0))
+      offset += initialValueSegmentOffset;
+    return offset;
+  }
+
+  private int getHeaderSize() {
+    return (version & 0x3FFF) >= 1200 ? HEADER_SIZE + HEADER_V12_EXTRA_SIZE : HEADER_SIZE;
+  }
+
+  private static void skipFully(InputStream input, long bytes, String target) throws IOException, InvalidRCodeException {
+    long remaining = bytes;
+    while (remaining > 0) {
+      long skipped = input.skip(remaining);
+      if (skipped <= 0) {
+        // Some streams only report end of stream through read()
+        if (input.read() == -1)
+          throw new InvalidRCodeException("Not enough bytes to reach " + target);
+        skipped = 1;
+      }
+      remaining -= skipped;
+    }
+  }
+
   private final void processHeader(InputStream input, PrintStream out) throws IOException, InvalidRCodeException {
     byte[] header = new byte[HEADER_SIZE];
     int bytesRead = input.read(header);
@@ -172,8 +300,8 @@ public class RCodeInfo {
     version = ByteBuffer.wrap(header, HEADER_OFFSET_RCODE_VERSION, Short.BYTES).order(order).getShort();
     sixtyFourBits = (version & 0x4000) != 0;
     if ((version & 0x3FFF) >= 1200) {
-      byte[] header2 = new byte[16];
-      if (input.read(header2) != 16) {
+      byte[] header2 = new byte[HEADER_V12_EXTRA_SIZE];
+      if (input.read(header2) != HEADER_V12_EXTRA_SIZE) {
         throw new InvalidRCodeException("Not enough bytes in OE12 header");
       }
       
@@ -231,10 +359,10 @@ public class RCodeInfo {
     }
   }
 
-  private final void processSegmentTable(InputStream input, PrintStream out) throws IOException, InvalidRCodeException {
-    byte[] header = new byte[segmentTableSize];
+  private final void processSegmentTable(InputStream input, PrintStream out, int size) throws IOException, InvalidRCodeException {
+    byte[] header = new byte[size];
     int bytesRead = input.read(header);
-    if (bytesRead != segmentTableSize) {
+    if (bytesRead != size) {
       throw new InvalidRCodeException("Not enough bytes in segment table block");
     }
     if (out != null) {
@@ -266,11 +394,22 @@ public class RCodeInfo {
       out.printf("%n**********%nTYPE BLOCK%n***********%n");
       printByteBuffer(out, segment);
     }
+    typeBlock = segment;
+    typeInfo = newTypeInfo(segment, version, order);
+  }
 
+  /**
+   * Decode type block
+   * 
+   * @param segment Type block, as returned by {@link #getTypeBlock()}
+   * @param version RCode version, as returned by {@link #getVersion()}
+   * @param order Byte order, as returned by {@link #getByteOrder()}
+   */
+  public static ITypeInfo newTypeInfo(byte[] segment, int version, ByteOrder order) throws InvalidRCodeException {
     if ((version & 0x3FFF) >= 1200) {
-      this.typeInfo = TypeInfoV12.newTypeInfo(segment, order);
+      return TypeInfoV12.newTypeInfo(segment, order);
     } else {
-      this.typeInfo = TypeInfoV11.newTypeInfo(segment, order);
+      return TypeInfoV11.newTypeInfo(segment, order);
     }
   }
 
@@ -303,6 +442,17 @@ public class RCodeInfo {
     return typeInfo;
   }
 
+  /**
+   * Raw content of type block, or null if rcode is not a class (or if only header was read)
+   */
+  public byte[] getTypeBlock() {
+    return typeBlock;
+  }
+
+  public ByteOrder getByteOrder() {
+    return order;
+  }
+
   public static void printByteBuffer(PrintStream writer, byte[] block) {
     StringBuilder sb = new StringBuilder();
     int pos = 0;
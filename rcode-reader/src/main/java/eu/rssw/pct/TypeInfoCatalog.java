@@ -0,0 +1,199 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package eu.rssw.pct;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import eu.rssw.pct.elements.ITypeInfo;
+
+/**
+ * Persistent catalog of type blocks, keyed by path of rcode (or procedure library), last modification date and file
+ * size. The whole catalog is loaded in one sequential read, and type info of valid entries is only decoded on first use.
+ * Stale or unknown entries have to be read again from rcode and added with {@link #put(File, List)}. Only entries used
+ * or added since the catalog was loaded are written back.
+ */
+public class TypeInfoCatalog {
+  private static final int MAGIC = 0x4F45_5443;
+  private static final int FORMAT_VERSION = 1;
+
+  private final Map<String, Entry> previous;
+  private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+  public TypeInfoCatalog() {
+    this.previous = Collections.emptyMap();
+  }
+
+  private TypeInfoCatalog(Map<String, Entry> previous) {
+    this.previous = previous;
+  }
+
+  /**
+   * Load catalog from file. An empty catalog is returned if file doesn't exist.
+   * 
+   * @throws IOException If file can't be read, or is not a valid catalog
+   */
+  public static TypeInfoCatalog read(File file) throws IOException {
+    if (!file.exists())
+      return new TypeInfoCatalog();
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536))) {
+      if ((input.readInt() != MAGIC) || (input.readInt() != FORMAT_VERSION))
+        throw new IOException("Invalid type info catalog " + file.getAbsolutePath());
+      int numEntries = input.readInt();
+      Map<String, Entry> map = new HashMap<>(numEntries * 4 / 3 + 1);
+      for (int zz = 0; zz < numEntries; zz++) {
+        String path = input.readUTF();
+        long lastModified = input.readLong();
+        long size = input.readLong();
+        int numTypes = input.readInt();
+        List<TypeBlock> types = new ArrayList<>(numTypes);
+        for (int yy = 0; yy < numTypes; yy++) {
+          String typeName = input.readUTF();
+          int version = input.readInt();
+          ByteOrder order = input.readBoolean() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+          byte[] block = new byte[input.readInt()];
+          input.readFully(block);
+          types.add(new TypeBlock(typeName, version, order, block));
+        }
+        map.put(path, new Entry(lastModified, size, types));
+      }
+      return new TypeInfoCatalog(map);
+    }
+  }
+
+  /**
+   * Write catalog to file. Content is first written to a temporary file, then moved to target.
+   */
+  public void write(File file) throws IOException {
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (!parent.exists())
+      Files.createDirectories(parent.toPath());
+    File tmp = new File(parent, file.getName() + ".tmp");
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 65536))) {
+      output.writeInt(MAGIC);
+      output.writeInt(FORMAT_VERSION);
+      output.writeInt(current.size());
+      for (Map.Entry<String, Entry> mapEntry : current.entrySet()) {
+        Entry entry = mapEntry.getValue();
+        output.writeUTF(mapEntry.getKey());
+        output.writeLong(entry.lastModified);
+        output.writeLong(entry.size);
+        output.writeInt(entry.types.size());
+        for (TypeBlock type : entry.types) {
+          output.writeUTF(type.typeName);
+          output.writeInt(type.version);
+          output.writeBoolean(type.order == ByteOrder.BIG_ENDIAN);
+          output.writeInt(type.block.length);
+          output.write(type.block);
+        }
+      }
+    }
+    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Returns type info stored for this file, or null if file is unknown or has been modified since it was stored. Type
+   * info is decoded on first access.
+   */
+  public List<ITypeInfo> get(File file) {
+    String key = file.getAbsolutePath();
+    Entry entry = previous.get(key);
+    if ((entry == null) || (entry.lastModified != file.lastModified()) || (entry.size != file.length()))
+      return null;
+    current.put(key, entry);
+    List<ITypeInfo> list = new ArrayList<>(entry.types.size());
+    for (TypeBlock type : entry.types) {
+      list.add(new LazyTypeInfo(type.typeName, type.version, type.order, type.block));
+    }
+    return list;
+  }
+
+  /**
+   * Store type blocks read from this file
+   * 
+   * @param file RCode or procedure library
+   * @param rcodes Decoded rcode, non-class rcode are ignored
+   */
+  public void put(File file, List<RCodeInfo> rcodes) {
+    List<TypeBlock> types = new ArrayList<>();
+    for (RCodeInfo rci : rcodes) {
+      if (rci.isClass() && (rci.getTypeBlock() != null)) {
+        types.add(new TypeBlock(rci.getTypeInfo().getTypeName(), (int) rci.getVersion(), rci.getByteOrder(),
+            rci.getTypeBlock()));
+      }
+    }
+    current.put(file.getAbsolutePath(), new Entry(file.lastModified(), file.length(), types));
+  }
+
+  /**
+   * Number of entries loaded from file
+   */
+  public int getLoadedSize() {
+    return previous.size();
+  }
+
+  /**
+   * Number of entries that will be written
+   */
+  public int size() {
+    return current.size();
+  }
+
+  private static final class Entry {
+    private final long lastModified;
+    private final long size;
+    private final List<TypeBlock> types;
+
+    Entry(long lastModified, long size, List<TypeBlock> types) {
+      this.lastModified = lastModified;
+      this.size = size;
+      this.types = types;
+    }
+  }
+
+  private static final class TypeBlock {
+    private final String typeName;
+    private final int version;
+    private final ByteOrder order;
+    private final byte[] block;
+
+    TypeBlock(String typeName, int version, ByteOrder order, byte[] block) {
+      this.typeName = typeName;
+      this.version = version;
+      this.order = order;
+      this.block = block;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package eu.rssw.pct.elements;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Case-insensitive index of a collection of elements, giving the same result as a linear scan with equalsIgnoreCase
+ * (i.e. first element wins when names are duplicated). Collection can still be modified after the index is created, as
+ * long as elements are only added: index is rebuilt when collection size changes.
+ */
+public class ElementIndex<T extends IElement> {
+  private final Collection<T> elements;
+  private volatile Snapshot<T> snapshot;
+
+  public ElementIndex(Collection<T> elements) {
+    this.elements = elements;
+  }
+
+  /**
+   * @return Null if not found
+   */
+  public T get(String name) {
+    if (name == null)
+      return null;
+    Snapshot<T> snap = snapshot;
+    if ((snap == null) || (snap.size != elements.size())) {
+      snap = new Snapshot<>(elements);
+      snapshot = snap;
+    }
+    return snap.map.get(key(name));
+  }
+
+  public boolean contains(String name) {
+    return get(name) != null;
+  }
+
+  public static String key(String name) {
+    return name.toLowerCase(Locale.ENGLISH);
+  }
+
+  private static class Snapshot<T extends IElement> {
+    private final int size;
+    private final Map<String, T> map;
+
+    Snapshot(Collection<T> elements) {
+      this.size = elements.size();
+      this.map = new HashMap<>(size * 4 / 3 + 1);
+      for (T elem : elements) {
+        map.putIfAbsent(key(elem.getName()), elem);
+      }
+    }
+  }
+}
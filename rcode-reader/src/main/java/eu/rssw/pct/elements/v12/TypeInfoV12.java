@@ -29,6 +29,7 @@ import java.util.Set;
 import eu.rssw.pct.RCodeInfo;
 import eu.rssw.pct.RCodeInfo.InvalidRCodeException;
 import eu.rssw.pct.elements.AccessType;
+import eu.rssw.pct.elements.ElementIndex;
 import eu.rssw.pct.elements.ElementKind;
 import eu.rssw.pct.elements.IBufferElement;
 import eu.rssw.pct.elements.IDataSourceElement;
@@ -59,12 +60,18 @@ public class TypeInfoV12 implements ITypeInfo {
   protected int flags;
   private List<String> interfaces = new ArrayList<>();
 
-  private Collection<IMethodElement> methods = new ArrayList<>();
-  private Collection<IPropertyElement> properties = new ArrayList<>();
-  private Collection<IEventElement> events = new ArrayList<>();
-  private Collection<IVariableElement> variables = new ArrayList<>();
-  private Collection<ITableElement> tables = new ArrayList<>();
-  private Collection<IBufferElement> buffers = new ArrayList<>();
+  private final Collection<IMethodElement> methods = new ArrayList<>();
+  private final Collection<IPropertyElement> properties = new ArrayList<>();
+  private final Collection<IEventElement> events = new ArrayList<>();
+  private final Collection<IVariableElement> variables = new ArrayList<>();
+  private final Collection<ITableElement> tables = new ArrayList<>();
+  private final Collection<IBufferElement> buffers = new ArrayList<>();
+
+  // Lookup by name, rebuilt when collections are modified
+  private final ElementIndex<IMethodElement> methodIndex = new ElementIndex<>(methods);
+  private final ElementIndex<IPropertyElement> propertyIndex = new ElementIndex<>(properties);
+  private final ElementIndex<ITableElement> tableIndex = new ElementIndex<>(tables);
+  private final ElementIndex<IBufferElement> bufferIndex = new ElementIndex<>(buffers);
 
   private TypeInfoV12() {
     // No-op
@@ -168,81 +175,44 @@ public class TypeInfoV12 implements ITypeInfo {
 
   @Override
   public IBufferElement getBufferFor(String name) {
-    for (IBufferElement tbl : buffers) {
-      if (tbl.getName().equalsIgnoreCase(name)) {
-        return tbl;
-      }
-    }
-    return null;
+    return bufferIndex.get(name);
   }
 
   @Override
   public boolean hasTempTable(String inName) {
-    for (ITableElement tbl : tables) {
-      if (tbl.getName().equalsIgnoreCase(inName)) {
-        return true;
-      }
-    }
-    return false;
+    return tableIndex.contains(inName);
   }
 
   @Override
   public boolean hasMethod(String name) {
-    for (IMethodElement mthd : methods) {
-      if (mthd.getName().equalsIgnoreCase(name))
-        return true;
-    }
-    return false;
+    return methodIndex.contains(name);
   }
 
   @Override
   public ITableElement getTempTable(String inName) {
-    for (ITableElement tbl : tables) {
-      if (tbl.getName().equalsIgnoreCase(inName)) {
-        return tbl;
-      }
-    }
-    return null;
+    return tableIndex.get(inName);
   }
 
   @Override
   public boolean hasProperty(String name) {
-    for (IPropertyElement prop : properties) {
-      if (prop.getName().equalsIgnoreCase(name) && (prop.isPublic() || prop.isProtected()))
-        return true;
-    }
-    return false;
+    IPropertyElement prop = propertyIndex.get(name);
+    return (prop != null) && (prop.isPublic() || prop.isProtected());
   }
 
   @Override
   public IPropertyElement getProperty(String name) {
-    // Only for testing
-    for (IPropertyElement prop : properties) {
-      if (prop.getName().equalsIgnoreCase(name))
-        return prop;
-    }
-    return null;
+    return propertyIndex.get(name);
   }
 
   @Override
   public boolean hasBuffer(String inName) {
     // TODO Can it be abbreviated ??
-    for (IBufferElement buf : buffers) {
-      if (buf.getName().equalsIgnoreCase(inName)) {
-        return true;
-      }
-    }
-    return false;
+    return bufferIndex.contains(inName);
   }
 
   @Override
   public IBufferElement getBuffer(String inName) {
-    for (IBufferElement buf : buffers) {
-      if (buf.getName().equalsIgnoreCase(inName)) {
-        return buf;
-      }
-    }
-    return null;
+    return bufferIndex.get(inName);
   }
 
   @Override
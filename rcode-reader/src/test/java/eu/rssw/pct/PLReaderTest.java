@@ -21,6 +21,7 @@ package eu.rssw.pct;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -40,4 +41,37 @@ public class PLReaderTest {
     Assert.assertTrue(rci.getTypeInfo().getTables().size() == 0);
   }
 
+  @Test
+  public void testFileList() {
+    PLReader pl = new PLReader(new File("src/test/resources/ablunit.pl"));
+    Assert.assertEquals(pl.getFileList().size(), 19);
+    Assert.assertEquals(pl.getFileList().get(0).getFileName(), "ABLUnitCore.r");
+    Assert.assertEquals(pl.getFileList().get(0).getSize(), 17665);
+    Assert.assertEquals(pl.getFileList().get(0).getOffset(), 42);
+    Assert.assertEquals(pl.getFileList().get(18).getFileName(), "OpenEdge/ABLUnit/Runner/TestConfig.r");
+    Assert.assertEquals(pl.getFileList().get(18).getOffset(), 373571);
+    for (FileEntry entry : pl.getFileList()) {
+      Assert.assertSame(pl.getEntry(entry.getFileName()), entry);
+    }
+    Assert.assertNull(pl.getEntry("NotInPL.r"));
+  }
+
+  @Test
+  public void testByteBuffer() throws IOException, InvalidRCodeException {
+    PLReader pl = new PLReader(new File("src/test/resources/ablunit.pl"));
+    for (FileEntry entry : pl.getFileList()) {
+      ByteBuffer bb = pl.getByteBuffer(entry);
+      Assert.assertTrue(bb.isReadOnly());
+      Assert.assertEquals(bb.remaining(), entry.getSize());
+      RCodeInfo rci1 = new RCodeInfo(bb);
+      Assert.assertEquals(bb.remaining(), entry.getSize());
+      RCodeInfo rci2 = new RCodeInfo(pl.getInputStream(entry));
+      Assert.assertEquals(rci1.isClass(), rci2.isClass(), entry.getFileName());
+      if (rci1.isClass()) {
+        Assert.assertEquals(rci1.getTypeInfo().getTypeName(), rci2.getTypeInfo().getTypeName());
+        Assert.assertEquals(rci1.getTypeInfo().getMethods().size(), rci2.getTypeInfo().getMethods().size());
+      }
+    }
+  }
+
 }
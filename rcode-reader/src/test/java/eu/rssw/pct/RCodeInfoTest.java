@@ -22,10 +22,16 @@ package eu.rssw.pct;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
 
 import org.testng.annotations.Test;
 
@@ -33,6 +39,8 @@ import eu.rssw.pct.RCodeInfo.InvalidRCodeException;
 import eu.rssw.pct.elements.IPropertyElement;
 import eu.rssw.pct.elements.ITypeInfo;
 
+import com.google.common.io.ByteStreams;
+
 public class RCodeInfoTest {
 
   @Test
@@ -210,4 +218,54 @@ public class RCodeInfoTest {
     }
   }
 
+  @Test
+  public void testLazyReaders() throws IOException, InvalidRCodeException {
+    File[] files = new File("src/test/resources/rcode").listFiles((dir, name) -> name.endsWith(".r"));
+    assertTrue(files.length > 0);
+    int numWithOffset = 0;
+    for (File f : files) {
+      RCodeInfo full;
+      try (FileInputStream input = new FileInputStream(f)) {
+        full = new RCodeInfo(input, new PrintStream(ByteStreams.nullOutputStream()));
+      }
+      RCodeInfo skipped;
+      try (FileInputStream input = new FileInputStream(f)) {
+        skipped = new RCodeInfo(input);
+      }
+      RCodeInfo seek;
+      try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+        seek = new RCodeInfo(channel);
+      }
+      RCodeInfo mmap;
+      try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+        mmap = new RCodeInfo(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+      }
+      RCodeInfo probe;
+      try (FileInputStream input = new FileInputStream(f)) {
+        probe = RCodeInfo.probe(input);
+      }
+      if (full.initialValueSegmentOffset > 0)
+        numWithOffset++;
+      assertNull(probe.getTypeInfo());
+      assertEquals(RCodeInfo.isClass(f), full.isClass(), f.getName());
+      for (RCodeInfo rci : new RCodeInfo[] {skipped, seek, mmap, probe}) {
+        assertEquals(rci.isClass(), full.isClass(), f.getName());
+        assertEquals(rci.getVersion(), full.getVersion(), f.getName());
+        assertEquals(rci.getTimeStamp(), full.getTimeStamp(), f.getName());
+      }
+      if (full.isClass()) {
+        for (RCodeInfo rci : new RCodeInfo[] {skipped, seek, mmap}) {
+          assertEquals(rci.getTypeInfo().getTypeName(), full.getTypeInfo().getTypeName(), f.getName());
+          assertEquals(rci.getTypeInfo().getParentTypeName(), full.getTypeInfo().getParentTypeName(), f.getName());
+          assertEquals(rci.getTypeInfo().getMethods().size(), full.getTypeInfo().getMethods().size(), f.getName());
+          assertEquals(rci.getTypeInfo().getProperties().size(), full.getTypeInfo().getProperties().size(),
+              f.getName());
+        }
+      }
+    }
+    // InitialValueOffset.r and InitialValueOffsetV12.r: propList.r and WebRequestV12.r with padding inserted before
+    // initial values segment
+    assertEquals(numWithOffset, 2);
+  }
+
 }
@@ -0,0 +1,98 @@
+/*
+ * OpenEdge plugin for SonarQube
+ * Copyright (c) 2015-2018 Riverside Software
+ * contact AT riverside DASH software DOT fr
+ * 
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package eu.rssw.pct;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import eu.rssw.pct.RCodeInfo.InvalidRCodeException;
+import eu.rssw.pct.elements.ITypeInfo;
+
+public class TypeInfoCatalogTest {
+
+  @Test
+  public void testWriteAndRead() throws IOException, InvalidRCodeException {
+    File dir = Files.createTempDirectory("catalog").toFile();
+    File rcode = new File(dir, "propList.r");
+    Files.copy(new File("src/test/resources/rcode/propList.r").toPath(), rcode.toPath());
+    File proc = new File(dir, "compile.r");
+    Files.copy(new File("src/test/resources/rcode/compile.r").toPath(), proc.toPath());
+
+    TypeInfoCatalog catalog = new TypeInfoCatalog();
+    assertNull(catalog.get(rcode));
+    catalog.put(rcode, Collections.singletonList(read(rcode)));
+    catalog.put(proc, Collections.singletonList(read(proc)));
+    File file = new File(dir, "sub/catalog.bin");
+    catalog.write(file);
+
+    TypeInfoCatalog catalog2 = TypeInfoCatalog.read(file);
+    assertEquals(catalog2.getLoadedSize(), 2);
+    assertEquals(catalog2.size(), 0);
+    assertTrue(catalog2.get(proc).isEmpty());
+    List<ITypeInfo> list = catalog2.get(rcode);
+    assertNotNull(list);
+    assertEquals(list.size(), 1);
+    ITypeInfo info = list.get(0);
+    assertEquals(info.getTypeName(), "propList");
+    assertFalse(((LazyTypeInfo) info).isDecoded());
+    assertEquals(info.getProperties().size(), 6);
+    assertTrue(info.getProperty("prop6").isStatic());
+    assertTrue(((LazyTypeInfo) info).isDecoded());
+    assertEquals(catalog2.size(), 2);
+
+    // Stale entry
+    assertTrue(rcode.setLastModified(rcode.lastModified() - 10000));
+    assertNull(catalog2.get(rcode));
+    // Unused entries are not written back
+    TypeInfoCatalog catalog3 = TypeInfoCatalog.read(file);
+    catalog3.get(proc);
+    catalog3.write(file);
+    assertEquals(TypeInfoCatalog.read(file).getLoadedSize(), 1);
+  }
+
+  @Test
+  public void testMissingFile() throws IOException {
+    assertEquals(TypeInfoCatalog.read(new File("target/doesnotexist.bin")).getLoadedSize(), 0);
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testInvalidFile() throws IOException {
+    TypeInfoCatalog.read(new File("src/test/resources/rcode/propList.cls"));
+  }
+
+  private static RCodeInfo read(File file) throws IOException, InvalidRCodeException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return new RCodeInfo(channel);
+    }
+  }
+}